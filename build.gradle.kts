@@ -3,6 +3,7 @@ plugins {
     jacoco
     id("org.springframework.boot") version "3.4.4"
     id("io.spring.dependency-management") version "1.1.7"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "udehnih"
@@ -75,6 +76,11 @@ dependencies {
 
     implementation("org.springframework.boot:spring-boot-starter-actuator")
 	implementation("io.micrometer:micrometer-registry-prometheus")
+	implementation("com.github.ben-manes.caffeine:caffeine")
+	implementation("org.apache.httpcomponents.client5:httpclient5")
+
+    // Benchmarks under src/jmh build fixtures with the Spring mock servlet API
+    jmh("org.springframework:spring-test")
 }
 
 tasks.named<org.springframework.boot.gradle.tasks.bundling.BootJar>("bootJar") {
@@ -115,6 +121,20 @@ tasks.test {
     finalizedBy(tasks.jacocoTestReport)
 }
 
+// ./gradlew jmh                       runs every benchmark
+// ./gradlew jmh -PjmhIncludes=JwtUtil  runs the benchmarks whose name matches the regex
+jmh {
+    jmhVersion.set("1.37")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    profilers.add("gc")
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("reports/jmh/results.json"))
+    humanOutputFile.set(layout.buildDirectory.file("reports/jmh/human.txt"))
+    (project.findProperty("jmhIncludes") as String?)?.let { includes.add(it) }
+}
+
 tasks.jacocoTestReport {
     dependsOn(tasks.test)
     reports {
@@ -0,0 +1,72 @@
+package udehnih.report.client;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import udehnih.report.model.UserInfo;
+
+/**
+ * User lookup against an in-memory H2 auth schema. {@code sequential} is the
+ * old COUNT / id / name / roles sequence of four statements; {@code aggregated}
+ * is the single query AuthServiceClient runs now. H2 has no network hop, so
+ * the gap here is a lower bound on what the real auth database would show.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UserLookupBenchmark {
+    private static final String EMAIL = "student@example.com";
+    private JdbcTemplate jdbcTemplate;
+    private AuthServiceClient client;
+    @Setup
+
+    public void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource();
+        dataSource.setDriverClassName("org.h2.Driver");
+        dataSource.setUrl("jdbc:h2:mem:userlookupbenchmark;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS users (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+            + "email VARCHAR(255) NOT NULL UNIQUE, password VARCHAR(255) NOT NULL, name VARCHAR(255))");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS roles (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+            + "name VARCHAR(50) NOT NULL UNIQUE)");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS user_roles (user_id BIGINT NOT NULL, "
+            + "role_id BIGINT NOT NULL, PRIMARY KEY (user_id, role_id))");
+        jdbcTemplate.update("MERGE INTO roles (id, name) KEY (id) VALUES (1, 'STUDENT')");
+        jdbcTemplate.update("MERGE INTO users (id, email, password, name) KEY (id) VALUES (1, ?, 'x', 'Student')",
+            EMAIL);
+        jdbcTemplate.update("MERGE INTO user_roles (user_id, role_id) KEY (user_id, role_id) VALUES (1, 1)");
+        client = new AuthServiceClient();
+        ReflectionTestUtils.setField(client, "authJdbcTemplate", jdbcTemplate);
+        // Caching disabled so every call measures the database round trips
+        ReflectionTestUtils.setField(client, "userInfoCache", new UserInfoCache(0, 0, null));
+    }
+    @Benchmark
+
+    public UserInfo aggregated() {
+        return client.getUserByEmail(EMAIL);
+    }
+    @Benchmark
+
+    public UserInfo sequential() {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE email = ?", Integer.class,
+            EMAIL);
+        if (count == null || count == 0) {
+            return null;
+        }
+        Long id = jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = ?", Long.class, EMAIL);
+        String name = jdbcTemplate.queryForObject("SELECT name FROM users WHERE email = ?", String.class, EMAIL);
+        List<String> roles = jdbcTemplate.queryForList("SELECT r.name FROM roles r "
+            + "JOIN user_roles ur ON r.id = ur.role_id "
+            + "JOIN users u ON u.id = ur.user_id "
+            + "WHERE u.email = ?", String.class, EMAIL);
+        return UserInfo.builder().id(id).email(EMAIL).name(name).roles(roles).build();
+    }
+}
@@ -0,0 +1,40 @@
+package udehnih.report.dto;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import udehnih.report.enums.RejectionMessage;
+import udehnih.report.enums.ReportStatus;
+import udehnih.report.model.Report;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ReportMapperBenchmark {
+    private Report report;
+    @Setup
+
+    public void setUp() {
+        report = Report.builder()
+            .reportId(1)
+            .studentId("12345")
+            .title("Broken video")
+            .detail("The video of session 3 stops after two minutes.")
+            .status(ReportStatus.REJECTED)
+            .rejectionMessage(RejectionMessage.INCOMPLETE_DETAIL)
+            .createdAt(LocalDateTime.of(2025, 5, 20, 14, 30))
+            .updatedAt(LocalDateTime.of(2025, 5, 21, 9, 0))
+            .version(2L)
+            .build();
+    }
+    @Benchmark
+
+    public ReportResponseDto toDto() {
+        return ReportMapper.toDto(report);
+    }
+}
@@ -0,0 +1,93 @@
+package udehnih.report.filter;
+import jakarta.servlet.FilterChain;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import udehnih.report.client.AuthServiceClient;
+import udehnih.report.client.RoleVersionRegistry;
+import udehnih.report.config.JwtConfig;
+import udehnih.report.model.UserInfo;
+import udehnih.report.repository.RevokedTokenRepository;
+import udehnih.report.service.TokenRevocationService;
+import udehnih.report.util.AppConstants;
+import udehnih.report.util.BenchmarkFixtures;
+import udehnih.report.util.JwtUtil;
+
+/**
+ * One authenticated request through the filter, with the verified-token
+ * cache off so every request pays for its one signature check. The auth
+ * service client is an in-memory stub, so {@code database} measures the
+ * filter's own work when the user lookup is answered from cache;
+ * {@code trusted} skips the lookup. Each invocation builds a fresh mock
+ * request and response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtAuthenticationFilterBenchmark {
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> { };
+    @Param({"database", "trusted"})
+    public String mode;
+    private JwtAuthenticationFilter filter;
+    private String authorizationHeader;
+    @Setup
+
+    public void setUp() {
+        UserInfo user = UserInfo.builder()
+            .id(42L)
+            .email(BenchmarkFixtures.EMAIL)
+            .name("Student")
+            .roles(List.of("STUDENT"))
+            .build();
+        JwtConfig jwtConfig = BenchmarkFixtures.config(0, "trusted".equals(mode));
+        JwtUtil jwtUtil = BenchmarkFixtures.jwtUtil(jwtConfig);
+        filter = new JwtAuthenticationFilter();
+        ReflectionTestUtils.setField(filter, "jwtUtil", jwtUtil);
+        ReflectionTestUtils.setField(filter, "jwtConfig", jwtConfig);
+        ReflectionTestUtils.setField(filter, "authServiceClient", new AuthServiceClient() {
+            @Override
+            public UserInfo getUserByEmail(String email) {
+                return user;
+            }
+        });
+        ReflectionTestUtils.setField(filter, "roleVersionRegistry", new RoleVersionRegistry(null, 30, 10, null) {
+            @Override
+            public boolean isCurrent(Long userId, Long tokenVersion) {
+                return true;
+            }
+        });
+        // An empty deny list, so every request pays only for the Bloom filter lookup
+        RevokedTokenRepository emptyDenyList = (RevokedTokenRepository) Proxy.newProxyInstance(
+            RevokedTokenRepository.class.getClassLoader(), new Class<?>[]{RevokedTokenRepository.class},
+            (proxy, method, args) -> method.getReturnType() == List.class ? List.of() : null);
+        ReflectionTestUtils.setField(filter, "tokenRevocationService",
+            new TokenRevocationService(emptyDenyList, 100_000, 0.001, Duration.ofHours(1)));
+        authorizationHeader = AppConstants.BEARER_PREFIX
+            + jwtUtil.generateToken(BenchmarkFixtures.EMAIL, "STUDENT", 42L, "Student", 0L);
+    }
+    @Benchmark
+
+    public MockHttpServletResponse doFilterInternal() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/reports");
+        request.addHeader(AppConstants.AUTHORIZATION_HEADER, authorizationHeader);
+        request.addHeader("Accept", "application/json");
+        request.addHeader("User-Agent", "jmh");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilterInternal(request, response, NO_OP_CHAIN);
+        SecurityContextHolder.clearContext();
+        return response;
+    }
+}
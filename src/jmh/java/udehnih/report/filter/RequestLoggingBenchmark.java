@@ -0,0 +1,103 @@
+package udehnih.report.filter;
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+import jakarta.servlet.FilterChain;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Cost the request summary line adds to a request, written synchronously
+ * the way the old console logging did, or through the bounded async
+ * appender from {@code logback-spring.xml}, at full and default sampling.
+ * Output goes to a temp file with immediate flush, like a console.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(4)
+public class RequestLoggingBenchmark {
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> { };
+    @Param({"sync", "async"})
+    public String appender;
+    @Param({"1", "0.1"})
+    public String sampleRate;
+    private RequestLoggingFilter filter;
+    private Logger logger;
+    private Appender<ILoggingEvent> attached;
+    private File output;
+    @Setup
+
+    public void setUp() throws Exception {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        output = Files.createTempFile("request-log", ".log").toFile();
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d %5p [%t] [%X{requestId:-}] %logger{36} - %msg%n");
+        encoder.start();
+        FileAppender<ILoggingEvent> file = new FileAppender<>();
+        file.setContext(context);
+        file.setFile(output.getAbsolutePath());
+        file.setEncoder(encoder);
+        file.setImmediateFlush(true);
+        file.start();
+        attached = file;
+        if ("async".equals(appender)) {
+            AsyncAppender async = new AsyncAppender();
+            async.setContext(context);
+            async.setQueueSize(8192);
+            async.setDiscardingThreshold(8192 / 5);
+            async.setNeverBlock(true);
+            async.addAppender(file);
+            async.start();
+            attached = async;
+        }
+        logger = context.getLogger(RequestLoggingFilter.class);
+        logger.setLevel(Level.INFO);
+        logger.setAdditive(false);
+        logger.addAppender(attached);
+
+        filter = new RequestLoggingFilter();
+        ReflectionTestUtils.setField(filter, "env", new MockEnvironment()
+            .withProperty("REQUEST_LOG_SAMPLE_RATE", sampleRate)
+            .withProperty("REQUEST_LOG_SAMPLE_RATES", ""));
+        filter.afterPropertiesSet();
+    }
+    @TearDown
+
+    public void tearDown() throws IOException {
+        logger.detachAppender(attached);
+        attached.stop();
+        Files.deleteIfExists(output.toPath());
+    }
+    @Benchmark
+
+    public MockHttpServletResponse request() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/reports");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, NO_OP_CHAIN);
+        return response;
+    }
+}
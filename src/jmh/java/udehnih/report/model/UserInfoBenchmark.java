@@ -0,0 +1,37 @@
+package udehnih.report.model;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UserInfoBenchmark {
+    private UserInfo userInfo;
+    @Setup
+
+    public void setUp() {
+        userInfo = UserInfo.builder()
+            .id(42L)
+            .email("staff@example.com")
+            .name("Staff")
+            .roles(List.of("STUDENT", "TUTOR", "ROLE_STAFF"))
+            .build();
+    }
+    @Benchmark
+
+    public boolean hasRoleMatch() {
+        return userInfo.hasRole("STAFF");
+    }
+    @Benchmark
+
+    public boolean hasRoleMiss() {
+        return userInfo.hasRole("ADMIN");
+    }
+}
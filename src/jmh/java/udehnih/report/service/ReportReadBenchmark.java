@@ -0,0 +1,99 @@
+package udehnih.report.service;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import udehnih.report.factory.ReportFactory;
+import udehnih.report.model.Report;
+import udehnih.report.repository.ReportRepository;
+
+/**
+ * The two report reads through ReportServiceImpl against an in-memory
+ * repository stub, so only the thread hops differ. {@code *SingleHop} is the
+ * current shape, one offload onto reportTaskExecutor. {@code *NestedHops}
+ * rebuilds the old one: the service task handed the lookup to an @Async
+ * repository method on the default executor ({@code getUserReports}) or to
+ * supplyAsync on the common pool ({@code getReportById}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReportReadBenchmark {
+    private static final String STUDENT_ID = "12345";
+    private static final Integer REPORT_ID = 1;
+    private ThreadPoolTaskExecutor reportTaskExecutor;
+    private ThreadPoolTaskExecutor defaultExecutor;
+    private ReportRepository repository;
+    private ReportServiceImpl service;
+    @Setup
+
+    public void setUp() {
+        reportTaskExecutor = executor("report-");
+        defaultExecutor = executor("task-");
+        Report report = ReportFactory.createOpenReport(STUDENT_ID, "Broken video", "Stops after two minutes.");
+        report.setReportId(REPORT_ID);
+        List<Report> reports = List.of(report);
+        repository = (ReportRepository) Proxy.newProxyInstance(ReportRepository.class.getClassLoader(),
+            new Class<?>[] {ReportRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                case "findByStudentId" -> reports;
+                case "findById" -> Optional.of(report);
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                case "toString" -> "ReportRepository stub";
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+        service = new ReportServiceImpl(repository, reportTaskExecutor);
+    }
+    @TearDown
+
+    public void tearDown() {
+        reportTaskExecutor.shutdown();
+        defaultExecutor.shutdown();
+    }
+    @Benchmark
+
+    public List<Report> getUserReportsSingleHop() {
+        return service.getUserReports(STUDENT_ID).join();
+    }
+    @Benchmark
+
+    public List<Report> getUserReportsNestedHops() {
+        return CompletableFuture.supplyAsync(() -> CompletableFuture.supplyAsync(
+                () -> repository.findByStudentId(STUDENT_ID), defaultExecutor).join(),
+            reportTaskExecutor).join();
+    }
+    @Benchmark
+
+    public Report getReportByIdSingleHop() {
+        // Stands in for the @Async("reportTaskExecutor") proxy Spring puts around the service method
+        return CompletableFuture.supplyAsync(() -> service.getReportById(REPORT_ID).join(), reportTaskExecutor)
+            .join();
+    }
+    @Benchmark
+
+    public Report getReportByIdNestedHops() {
+        return CompletableFuture.supplyAsync(() -> CompletableFuture.supplyAsync(
+                () -> repository.findById(REPORT_ID).orElseThrow(), ForkJoinPool.commonPool()).join(),
+            reportTaskExecutor).join();
+    }
+
+    private static ThreadPoolTaskExecutor executor(String prefix) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(4);
+        executor.setThreadNamePrefix(prefix);
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,62 @@
+package udehnih.report.util;
+import java.util.Map;
+import org.springframework.test.util.ReflectionTestUtils;
+import udehnih.report.config.JwtConfig;
+
+/**
+ * Builds the real JwtUtil without a Spring context, so benchmarks measure
+ * the token code and nothing else.
+ */
+public final class BenchmarkFixtures {
+    public static final String SECRET = "benchmarkSecretKeyWithAtLeast32Characters";
+    public static final String EMAIL = "student@example.com";
+
+    private BenchmarkFixtures() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    public
+
+    static JwtUtil jwtUtil(long verifiedTokenCacheSize) {
+        return jwtUtil(config(verifiedTokenCacheSize, false));
+    }
+
+    public
+
+    static JwtUtil jwtUtil(JwtConfig config) {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "jwtConfig", config);
+        return jwtUtil;
+    }
+
+    public
+
+    static JwtConfig config(long verifiedTokenCacheSize, boolean trustedClaims) {
+        return new JwtConfig() {
+            @Override
+            public String getSecretKey() {
+                return SECRET;
+            }
+
+            @Override
+            public Long getExpiration() {
+                return 3_600_000L;
+            }
+
+            @Override
+            public long getVerifiedTokenCacheSize() {
+                return verifiedTokenCacheSize;
+            }
+
+            @Override
+            public SigningKeys getSigningKeys() {
+                return new SigningKeys(Map.of(), null);
+            }
+
+            @Override
+            public boolean isTrustedClaimsEnabled() {
+                return trustedClaims;
+            }
+        };
+    }
+}
@@ -0,0 +1,54 @@
+package udehnih.report.util;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Payload decoding alone. Compare gc.alloc.rate.norm of {@code streaming}
+ * with {@code objectMapperPerCall}, which is how the unverified path used
+ * to decode (regex split, String copy, new ObjectMapper, HashMap).
+ * {@code externalToken} is that unverified path as it runs now, end to end
+ * through JwtUtil with a signature it cannot check.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JwtPayloadDecoderBenchmark {
+    private JwtUtil jwtUtil;
+    private String token;
+    private String externalToken;
+    @Setup
+
+    public void setUp() {
+        jwtUtil = BenchmarkFixtures.jwtUtil(0);
+        token = jwtUtil.generateToken(BenchmarkFixtures.EMAIL, "STUDENT,TUTOR", 42L, "Student", 0L);
+        externalToken = token.substring(0, token.lastIndexOf('.') + 1) + "c2lnbmF0dXJl";
+    }
+    @Benchmark
+
+    public JwtPayloadDecoder.Payload streaming() {
+        return JwtPayloadDecoder.decodePayload(token, JwtPayloadDecoder.segments(token));
+    }
+    @Benchmark
+
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> objectMapperPerCall() throws Exception {
+        String[] parts = token.split("\\.");
+        String json = new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8);
+        return new ObjectMapper().readValue(json, Map.class);
+    }
+    @Benchmark
+
+    public String externalToken() {
+        return jwtUtil.extractUsername(externalToken);
+    }
+}
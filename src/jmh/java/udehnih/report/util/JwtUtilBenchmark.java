@@ -0,0 +1,63 @@
+package udehnih.report.util;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+/**
+ * Token issuing and checking with the verified-token cache off.
+ * {@code legacyFilterPath} is what the filter used to do per request
+ * (extractUsername, extractRole, validateToken, five signature checks);
+ * {@code verify} is the single parse it does now.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtUtilBenchmark {
+    private JwtUtil uncached;
+    private String token;
+    private UserDetails userDetails;
+    @Setup
+
+    public void setUp() {
+        uncached = BenchmarkFixtures.jwtUtil(0);
+        token = uncached.generateToken(BenchmarkFixtures.EMAIL, "STUDENT,TUTOR", 42L, "Student", 0L);
+        userDetails = new User(BenchmarkFixtures.EMAIL, "", List.of(new SimpleGrantedAuthority("ROLE_STUDENT")));
+    }
+    @Benchmark
+
+    public String generateToken() {
+        return uncached.generateToken(BenchmarkFixtures.EMAIL, "STUDENT,TUTOR");
+    }
+    @Benchmark
+
+    public String extractRole() {
+        return uncached.extractRole(token);
+    }
+    @Benchmark
+
+    public Boolean validateToken() {
+        return uncached.validateToken(token, userDetails);
+    }
+    @Benchmark
+
+    public void legacyFilterPath(Blackhole blackhole) {
+        blackhole.consume(uncached.extractUsername(token));
+        blackhole.consume(uncached.extractRole(token));
+        blackhole.consume(uncached.validateToken(token, userDetails));
+    }
+    @Benchmark
+
+    public VerifiedToken verify() {
+        return uncached.verify(token);
+    }
+}
@@ -0,0 +1,40 @@
+package udehnih.report.util;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The same token verified with the cache off ({@code miss}: HMAC and JSON
+ * every time) and on after a warm-up call ({@code hit}: digest and lookup).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class VerifiedTokenCacheBenchmark {
+    private JwtUtil uncached;
+    private JwtUtil cached;
+    private String token;
+    @Setup
+
+    public void setUp() {
+        uncached = BenchmarkFixtures.jwtUtil(0);
+        cached = BenchmarkFixtures.jwtUtil(10_000);
+        token = uncached.generateToken(BenchmarkFixtures.EMAIL, "STUDENT,TUTOR", 42L, "Student", 0L);
+        cached.verify(token);
+    }
+    @Benchmark
+
+    public VerifiedToken miss() {
+        return uncached.verify(token);
+    }
+    @Benchmark
+
+    public VerifiedToken hit() {
+        return cached.verify(token);
+    }
+}
@@ -7,17 +7,42 @@ import udehnih.report.model.UserInfo;
 import udehnih.report.util.JwtUtil;
 import lombok.extern.slf4j.Slf4j;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 @Service
 
 @Slf4j
 public class AuthServiceClient {
+    /**
+     * Users joined with their roles, aggregated into one row per user so a
+     * lookup costs a single round trip. Works on both PostgreSQL and H2.
+     */
+    static final String USER_WITH_ROLES_SQL =
+        "SELECT u.id, u.email, u.name, " +
+        "ARRAY_AGG(r.name) FILTER (WHERE r.name IS NOT NULL) AS roles " +
+        "FROM users u " +
+        "LEFT JOIN user_roles ur ON ur.user_id = u.id " +
+        "LEFT JOIN roles r ON r.id = ur.role_id ";
+    static final String USER_BY_EMAIL_SQL = USER_WITH_ROLES_SQL +
+        "WHERE u.email = ? GROUP BY u.id, u.email, u.name";
+    static final String USER_BY_ID_SQL = USER_WITH_ROLES_SQL +
+        "WHERE u.id = ? GROUP BY u.id, u.email, u.name";
+    /** Keeps each IN list well below the bind-parameter limits of PostgreSQL and H2. */
+    static final int BATCH_CHUNK_SIZE = 500;
+    private static final UserInfoRowMapper USER_INFO_ROW_MAPPER = new UserInfoRowMapper();
     @Autowired
     private JwtUtil jwtUtil;
     @Autowired
 
     @Qualifier("authJdbcTemplate")
     private JdbcTemplate authJdbcTemplate;
+    @Autowired
+    private UserInfoCache userInfoCache;
 
     public UserInfo validateToken(String token) {
         try {
@@ -27,12 +52,6 @@ public class AuthServiceClient {
                 return null;
             }
             String role = jwtUtil.extractRole(token);
-            String sql = "SELECT COUNT(*) FROM users WHERE email = ?";
-            Integer count = authJdbcTemplate.queryForObject(sql, Integer.class, username);
-            if (count == null || count == 0) {
-                log.warn("User {} not found in auth database", username);
-                return null;
-            }
             try {
                 return fetchUserDetails(username, role);
             } catch (Exception e) {
@@ -45,18 +64,19 @@ public class AuthServiceClient {
         }
     }
     private UserInfo fetchUserDetails(String username, String role) {
-        String userIdSql = "SELECT id FROM users WHERE email = ?";
-        Long userId = authJdbcTemplate.queryForObject(userIdSql, Long.class, username);
-        String userNameSql = "SELECT name FROM users WHERE email = ?";
-        String name = authJdbcTemplate.queryForObject(userNameSql, String.class, username);
+        UserInfo stored = lookupByEmail(username);
+        if (stored == null) {
+            log.warn("User {} not found in auth database", username);
+            return null;
+        }
         List<String> roles = new ArrayList<>();
         for (String r : role.split(",")) {
             roles.add(r.trim());
         }
         return UserInfo.builder()
-            .id(userId)
-            .email(username)
-            .name(name)
+            .id(stored.getId())
+            .email(stored.getEmail())
+            .name(stored.getName())
             .roles(roles)
             .build();
     }
@@ -68,36 +88,7 @@ public class AuthServiceClient {
                 log.info("Email appears to be a numeric ID: {}, trying to look up by ID", email);
                 return getUserById(Long.parseLong(email));
             }
-            
-            String countSql = "SELECT COUNT(*) FROM users WHERE email = ?";
-            Integer count = authJdbcTemplate.queryForObject(countSql, Integer.class, email);
-            if (count == null || count == 0) {
-                return null;
-            }
-            String userIdSql = "SELECT id FROM users WHERE email = ?";
-            Long userId = authJdbcTemplate.queryForObject(userIdSql, Long.class, email);
-            String userNameSql = "SELECT name FROM users WHERE email = ?";
-            String name = authJdbcTemplate.queryForObject(userNameSql, String.class, email);
-            String rolesSql = "SELECT r.name FROM roles r " +
-                             "JOIN user_roles ur ON r.id = ur.role_id " +
-                             "JOIN users u ON u.id = ur.user_id " +
-                             "WHERE u.email = ?";
-            List<String> roles = new ArrayList<>();
-            try {
-                roles = authJdbcTemplate.queryForList(rolesSql, String.class, email);
-                if (roles.isEmpty()) {
-                    roles.add("STUDENT"); 
-                }
-            } catch (Exception e) {
-                log.warn("Error retrieving user roles: {}", e.getMessage());
-                roles.add("STUDENT"); 
-            }
-            return UserInfo.builder()
-                .id(userId)
-                .email(email)
-                .name(name)
-                .roles(roles)
-                .build();
+            return lookupByEmail(email);
         } catch (Exception e) {
             log.error("Error retrieving user information: {}", e.getMessage());
             return null;
@@ -106,44 +97,111 @@ public class AuthServiceClient {
     
     public UserInfo getUserById(Long userId) {
         try {
-            String countSql = "SELECT COUNT(*) FROM users WHERE id = ?";
-            Integer count = authJdbcTemplate.queryForObject(countSql, Integer.class, userId);
-            if (count == null || count == 0) {
+            UserInfo userInfo = userInfoCache.getById(userId);
+            if (userInfo != null) {
+                return userInfo;
+            }
+            userInfo = findUser(USER_BY_ID_SQL, userId);
+            if (userInfo == null) {
                 log.warn("User with ID {} not found", userId);
                 return null;
             }
-            
-            String userEmailSql = "SELECT email FROM users WHERE id = ?";
-            String email = authJdbcTemplate.queryForObject(userEmailSql, String.class, userId);
-            
-            String userNameSql = "SELECT name FROM users WHERE id = ?";
-            String name = authJdbcTemplate.queryForObject(userNameSql, String.class, userId);
-            
-            String rolesSql = "SELECT r.name FROM roles r " +
-                             "JOIN user_roles ur ON r.id = ur.role_id " +
-                             "JOIN users u ON u.id = ur.user_id " +
-                             "WHERE u.id = ?";
-            List<String> roles = new ArrayList<>();
+            log.info("Successfully retrieved user by ID {}: email={}, roles={}", userId, userInfo.getEmail(), userInfo.getRoles());
+            userInfoCache.put(userInfo);
+            return userInfo;
+        } catch (Exception e) {
+            log.error("Error retrieving user information for ID {}: {}", userId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Looks up many users by id using chunked IN queries, so the number of
+     * round trips grows with ids / {@value #BATCH_CHUNK_SIZE} rather than with
+     * the number of ids. Unknown ids are absent from the returned map.
+     */
+    public Map<Long, UserInfo> getUsersByIds(Collection<Long> userIds) {
+        Map<Long, UserInfo> users = new HashMap<>();
+        List<Long> misses = new ArrayList<>();
+        for (Long userId : distinct(userIds)) {
+            UserInfo cached = userInfoCache.getById(userId);
+            if (cached != null) {
+                users.put(userId, cached);
+            } else {
+                misses.add(userId);
+            }
+        }
+        fetchInChunks("u.id", misses, UserInfo::getId, users);
+        return users;
+    }
+
+    /**
+     * Looks up many users by email using chunked IN queries. Unknown emails
+     * are absent from the returned map.
+     */
+    public Map<String, UserInfo> getUsersByEmails(Collection<String> emails) {
+        Map<String, UserInfo> users = new HashMap<>();
+        List<String> misses = new ArrayList<>();
+        for (String email : distinct(emails)) {
+            UserInfo cached = userInfoCache.getByEmail(email);
+            if (cached != null) {
+                users.put(email, cached);
+            } else {
+                misses.add(email);
+            }
+        }
+        fetchInChunks("u.email", misses, UserInfo::getEmail, users);
+        return users;
+    }
+
+    /**
+     * Drops the cached entry for a user so the next lookup reads the auth
+     * database again. Call after registration or a change of roles.
+     */
+    public void invalidateUser(String email) {
+        userInfoCache.invalidate(email);
+    }
+
+    public void invalidateUser(Long userId) {
+        userInfoCache.invalidate(userId);
+    }
+    private UserInfo lookupByEmail(String email) {
+        UserInfo userInfo = userInfoCache.getByEmail(email);
+        if (userInfo == null) {
+            userInfo = findUser(USER_BY_EMAIL_SQL, email);
+            userInfoCache.put(userInfo);
+        }
+        return userInfo;
+    }
+    private <K> void fetchInChunks(String column, List<K> keys, Function<UserInfo, K> keyOf, Map<K, UserInfo> users) {
+        for (int from = 0; from < keys.size(); from += BATCH_CHUNK_SIZE) {
+            List<K> chunk = keys.subList(from, Math.min(from + BATCH_CHUNK_SIZE, keys.size()));
+            String sql = USER_WITH_ROLES_SQL +
+                "WHERE " + column + " IN (" + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ") " +
+                "GROUP BY u.id, u.email, u.name";
             try {
-                roles = authJdbcTemplate.queryForList(rolesSql, String.class, userId);
-                if (roles.isEmpty()) {
-                    roles.add("STUDENT"); 
+                for (UserInfo userInfo : authJdbcTemplate.query(sql, USER_INFO_ROW_MAPPER, chunk.toArray())) {
+                    userInfoCache.put(userInfo);
+                    users.put(keyOf.apply(userInfo), userInfo);
                 }
             } catch (Exception e) {
-                log.warn("Error retrieving user roles for ID {}: {}", userId, e.getMessage());
-                roles.add("STUDENT"); 
+                log.error("Error retrieving {} users by {}: {}", chunk.size(), column, e.getMessage());
             }
-            
-            log.info("Successfully retrieved user by ID {}: email={}, roles={}", userId, email, roles);
-            return UserInfo.builder()
-                .id(userId)
-                .email(email)
-                .name(name)
-                .roles(roles)
-                .build();
-        } catch (Exception e) {
-            log.error("Error retrieving user information for ID {}: {}", userId, e.getMessage());
-            return null;
         }
     }
+    private static <K> Collection<K> distinct(Collection<K> keys) {
+        Collection<K> result = new LinkedHashSet<>();
+        if (keys != null) {
+            for (K key : keys) {
+                if (key != null) {
+                    result.add(key);
+                }
+            }
+        }
+        return result;
+    }
+    private UserInfo findUser(String sql, Object key) {
+        List<UserInfo> users = authJdbcTemplate.query(sql, USER_INFO_ROW_MAPPER, key);
+        return users.isEmpty() ? null : users.get(0);
+    }
 }
@@ -0,0 +1,208 @@
+package udehnih.report.client;
+import java.time.Duration;
+import java.time.Instant;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Probes the external auth service in the background so routing decisions
+ * in {@code AuthProxyController} read a cached state instead of sending a
+ * probe ahead of every forwarded request.
+ * <p>
+ * A probe runs every {@code AUTH_HEALTH_CHECK_MS}. The state only drops to
+ * {@link State#DOWN} after {@code AUTH_HEALTH_FAILURE_THRESHOLD} consecutive
+ * failures and only returns to {@link State#UP} after
+ * {@code AUTH_HEALTH_SUCCESS_THRESHOLD} consecutive successes, so a single
+ * lost probe does not flip routing back and forth. A service that answers
+ * slower than {@code AUTH_HEALTH_SLOW_MS}, or has failed fewer times than the
+ * threshold, is {@link State#DEGRADED} and still used. Connection failures
+ * seen while forwarding count the same as failed probes.
+ * <p>
+ * {@link State#DOWN} is reported as {@link #LOCAL_FALLBACK_STATUS}. The
+ * default health status maps it to 200 and the {@code auth-service} health
+ * group maps it to 503.
+ */
+@Component
+
+@Slf4j
+public class AuthServiceHealthMonitor implements HealthIndicator {
+    public static final Status DEGRADED_STATUS = new Status("DEGRADED");
+    // Reported instead of DOWN: this instance keeps serving auth locally, so it must not fail health checks
+    public static final Status LOCAL_FALLBACK_STATUS = new Status("LOCAL_FALLBACK",
+        "External auth service is down, auth is handled locally");
+    private static final int DEFAULT_FAILURE_THRESHOLD = 3;
+    private static final int DEFAULT_SUCCESS_THRESHOLD = 2;
+    private static final long DEFAULT_SLOW_MS = 1000;
+    private static final long DEFAULT_CONNECT_TIMEOUT_MS = 1000;
+    private static final long DEFAULT_READ_TIMEOUT_MS = 2000;
+    private final String authServiceUrl;
+    private final RestTemplate probeTemplate;
+    private final int failureThreshold;
+    private final int successThreshold;
+    private final long slowNanos;
+    private volatile State state;
+    private volatile long lastLatencyMs = -1;
+    private volatile Instant lastCheck;
+    private volatile String lastError;
+    private int consecutiveFailures;
+    private int consecutiveSuccesses;
+
+    public enum State {
+        UP, DEGRADED, DOWN
+    }
+    @Autowired
+
+    public AuthServiceHealthMonitor(Environment env) {
+        this(resolveAuthServiceUrl(env),
+            probeTemplate(
+                env.getProperty("AUTH_HEALTH_CONNECT_TIMEOUT_MS", Long.class, DEFAULT_CONNECT_TIMEOUT_MS),
+                env.getProperty("AUTH_HEALTH_READ_TIMEOUT_MS", Long.class, DEFAULT_READ_TIMEOUT_MS)),
+            env.getProperty("AUTH_HEALTH_FAILURE_THRESHOLD", Integer.class, DEFAULT_FAILURE_THRESHOLD),
+            env.getProperty("AUTH_HEALTH_SUCCESS_THRESHOLD", Integer.class, DEFAULT_SUCCESS_THRESHOLD),
+            Duration.ofMillis(env.getProperty("AUTH_HEALTH_SLOW_MS", Long.class, DEFAULT_SLOW_MS)));
+    }
+
+    public AuthServiceHealthMonitor(String authServiceUrl, RestTemplate probeTemplate, int failureThreshold,
+                                    int successThreshold, Duration slowThreshold) {
+        this.authServiceUrl = authServiceUrl;
+        this.probeTemplate = probeTemplate;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.successThreshold = Math.max(1, successThreshold);
+        this.slowNanos = slowThreshold.toNanos();
+        if (isLocal()) {
+            log.info("Auth service URL points to this server, external auth health checks disabled");
+        } else {
+            log.info("Auth service health checks enabled for {}: failureThreshold={}, successThreshold={}",
+                authServiceUrl, this.failureThreshold, this.successThreshold);
+        }
+    }
+
+    /** O(1) read of the cached state; true unless the service is considered down. */
+    public boolean isAvailable() {
+        State current = state;
+        return current != null && current != State.DOWN;
+    }
+
+    /** External auth service base URL, or null when auth is handled locally. */
+    public String getAuthServiceUrl() {
+        return isLocal() ? null : authServiceUrl;
+    }
+
+    /** Cached state, or null before the first probe has completed. */
+    public State getState() {
+        return state;
+    }
+    @Scheduled(fixedDelayString = "${AUTH_HEALTH_CHECK_MS:5000}", initialDelay = 0)
+
+    public void probe() {
+        if (isLocal()) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            probeTemplate.headForHeaders(authServiceUrl);
+        } catch (HttpClientErrorException e) {
+            // A 4xx still proves the service is up and answering
+            log.trace("Auth service answered health probe with {}", e.getStatusCode());
+        } catch (Exception e) {
+            recordFailure(e);
+            return;
+        }
+        recordSuccess(System.nanoTime() - start);
+    }
+
+    synchronized void recordSuccess(long latencyNanos) {
+        lastCheck = Instant.now();
+        lastLatencyMs = latencyNanos / 1_000_000;
+        lastError = null;
+        consecutiveFailures = 0;
+        consecutiveSuccesses++;
+        boolean slow = latencyNanos >= slowNanos;
+        // The first observation is taken as is, so startup does not wait for the threshold
+        if (state == null || state != State.DOWN || consecutiveSuccesses >= successThreshold) {
+            transition(slow ? State.DEGRADED : State.UP);
+        }
+    }
+
+    /** Counts a failed probe or a connection failure seen while forwarding a request. */
+    public synchronized void recordFailure(Exception cause) {
+        lastCheck = Instant.now();
+        lastError = cause.getMessage();
+        consecutiveSuccesses = 0;
+        consecutiveFailures++;
+        if (state == null || consecutiveFailures >= failureThreshold) {
+            transition(State.DOWN);
+        } else if (state == State.UP) {
+            transition(State.DEGRADED);
+        }
+    }
+
+    private void transition(State next) {
+        State previous = state;
+        if (previous == next) {
+            return;
+        }
+        state = next;
+        if (next == State.DOWN) {
+            log.warn("External auth service at {} is DOWN after {} failures: {}", authServiceUrl,
+                consecutiveFailures, lastError);
+        } else {
+            log.info("External auth service at {} is {} (was {})", authServiceUrl, next, previous);
+        }
+    }
+    @Override
+
+    public Health health() {
+        if (isLocal()) {
+            return Health.up().withDetail("mode", "local").build();
+        }
+        State current = state;
+        Health.Builder builder = current == null ? Health.unknown()
+            : current == State.UP ? Health.up()
+            : current == State.DEGRADED ? Health.status(DEGRADED_STATUS)
+            : Health.status(LOCAL_FALLBACK_STATUS);
+        builder.withDetail("url", authServiceUrl);
+        builder.withDetail("lastLatencyMs", lastLatencyMs);
+        if (lastCheck != null) {
+            builder.withDetail("lastCheck", lastCheck.toString());
+        }
+        if (lastError != null) {
+            builder.withDetail("lastError", lastError);
+        }
+        return builder.build();
+    }
+
+    private boolean isLocal() {
+        return authServiceUrl == null || authServiceUrl.isEmpty()
+            || authServiceUrl.startsWith("http://localhost")
+            || authServiceUrl.startsWith("http://127.0.0.1");
+    }
+
+    // Same lookup order as AuthProxyController; null means auth is handled locally
+    private static String resolveAuthServiceUrl(Environment env) {
+        String url = env.getProperty("AUTH_SERVICE_URL");
+        if (url == null || url.isEmpty()) {
+            url = System.getProperty("AUTH_SERVICE_URL");
+        }
+        if (url == null || url.isEmpty()) {
+            url = System.getenv("AUTH_SERVICE_URL");
+        }
+        return url;
+    }
+
+    private static RestTemplate probeTemplate(long connectTimeoutMs, long readTimeoutMs) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(Duration.ofMillis(connectTimeoutMs));
+        requestFactory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+        return new RestTemplate(requestFactory);
+    }
+}
@@ -0,0 +1,104 @@
+package udehnih.report.client;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cached view of the {@code user_role_versions} table in the auth database.
+ * Whoever changes a user's roles increments that user's
+ * {@code role_version}; tokens carry the version they were issued with, so a
+ * token whose version is no longer current stops being trusted on its own.
+ * Users without a row are at version 0.
+ * <p>
+ * Entries are reloaded in the background every
+ * {@code ROLE_VERSION_REFRESH_SECONDS}, so a role change is picked up within
+ * that window without putting a query on the request path. An entry that
+ * could not be refreshed for five intervals is dropped rather than trusted.
+ */
+@Component
+@Slf4j
+public class RoleVersionRegistry {
+    static final String ROLE_VERSION_SQL = "SELECT role_version FROM user_role_versions WHERE user_id = ?";
+    private static final long DEFAULT_REFRESH_SECONDS = 30;
+    private static final long DEFAULT_MAX_SIZE = 10_000;
+    private final JdbcTemplate authJdbcTemplate;
+    private final LoadingCache<Long, Long> versions;
+    @Autowired
+
+    public RoleVersionRegistry(@Qualifier("authJdbcTemplate") JdbcTemplate authJdbcTemplate, Environment env,
+                               MeterRegistry meterRegistry) {
+        this(authJdbcTemplate,
+            env.getProperty("ROLE_VERSION_REFRESH_SECONDS", Long.class, DEFAULT_REFRESH_SECONDS),
+            env.getProperty("ROLE_VERSION_CACHE_MAX_SIZE", Long.class, DEFAULT_MAX_SIZE),
+            meterRegistry);
+    }
+
+    public RoleVersionRegistry(JdbcTemplate authJdbcTemplate, long refreshSeconds, long maxSize,
+                               MeterRegistry meterRegistry) {
+        this.authJdbcTemplate = authJdbcTemplate;
+        Duration refresh = Duration.ofSeconds(Math.max(1, refreshSeconds));
+        this.versions = Caffeine.newBuilder()
+            .refreshAfterWrite(refresh)
+            .expireAfterWrite(refresh.multipliedBy(5))
+            .maximumSize(Math.max(1, maxSize))
+            .recordStats()
+            .build(this::loadVersion);
+        if (meterRegistry != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, versions, "roleVersions");
+        }
+        log.info("Role version registry enabled: refresh={}s, maxSize={}", refresh.toSeconds(), maxSize);
+    }
+
+    /**
+     * Returns the current role version of {@code userId}, or null when it
+     * could not be read from the auth database.
+     */
+    public Long currentVersion(Long userId) {
+        if (userId == null) {
+            return null;
+        }
+        try {
+            return versions.get(userId);
+        } catch (RuntimeException e) {
+            log.warn("Could not read role version for user {}: {}", userId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * True only when the current version of {@code userId} is known and
+     * equals {@code tokenVersion}.
+     */
+    public boolean isCurrent(Long userId, Long tokenVersion) {
+        if (tokenVersion == null) {
+            return false;
+        }
+        return tokenVersion.equals(currentVersion(userId));
+    }
+
+    /**
+     * Drops the cached version of a user so the next check reads the auth
+     * database again. Call after changing that user's roles.
+     */
+    public void invalidate(Long userId) {
+        if (userId != null) {
+            versions.invalidate(userId);
+        }
+    }
+    private Long loadVersion(Long userId) {
+        List<Long> rows = authJdbcTemplate.queryForList(ROLE_VERSION_SQL, Long.class, userId);
+        if (rows.isEmpty() || rows.get(0) == null) {
+            return 0L;
+        }
+        return rows.get(0);
+    }
+}
@@ -0,0 +1,106 @@
+package udehnih.report.client;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import udehnih.report.model.UserInfo;
+
+/**
+ * In-process cache of {@link UserInfo} looked up from the auth database,
+ * addressable by email and by id. Entries expire after
+ * {@code USER_CACHE_TTL_SECONDS} and the cache holds at most
+ * {@code USER_CACHE_MAX_SIZE} users; a TTL or size of 0 disables caching.
+ * Cached instances are shared between requests and must not be modified.
+ */
+@Component
+@Slf4j
+public class UserInfoCache {
+    private static final long DEFAULT_TTL_SECONDS = 300;
+    private static final long DEFAULT_MAX_SIZE = 10_000;
+    private final Cache<String, UserInfo> byEmail;
+    private final Cache<Long, UserInfo> byId;
+    @Autowired
+
+    public UserInfoCache(Environment env, MeterRegistry meterRegistry) {
+        this(env.getProperty("USER_CACHE_TTL_SECONDS", Long.class, DEFAULT_TTL_SECONDS),
+            env.getProperty("USER_CACHE_MAX_SIZE", Long.class, DEFAULT_MAX_SIZE),
+            meterRegistry);
+    }
+
+    public UserInfoCache(long ttlSeconds, long maxSize, MeterRegistry meterRegistry) {
+        if (ttlSeconds <= 0 || maxSize <= 0) {
+            log.info("UserInfo cache disabled");
+            this.byEmail = null;
+            this.byId = null;
+            return;
+        }
+        this.byEmail = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+            .maximumSize(maxSize)
+            .recordStats()
+            .build();
+        this.byId = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+            .maximumSize(maxSize)
+            .recordStats()
+            .build();
+        if (meterRegistry != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, byEmail, "userInfoByEmail");
+            CaffeineCacheMetrics.monitor(meterRegistry, byId, "userInfoById");
+        }
+        log.info("UserInfo cache enabled: ttl={}s, maxSize={}", ttlSeconds, maxSize);
+    }
+
+    public UserInfo getByEmail(String email) {
+        return byEmail == null || email == null ? null : byEmail.getIfPresent(email);
+    }
+
+    public UserInfo getById(Long id) {
+        return byId == null || id == null ? null : byId.getIfPresent(id);
+    }
+
+    public void put(UserInfo userInfo) {
+        if (byEmail == null || userInfo == null) {
+            return;
+        }
+        if (userInfo.getEmail() != null) {
+            byEmail.put(userInfo.getEmail(), userInfo);
+        }
+        if (userInfo.getId() != null) {
+            byId.put(userInfo.getId(), userInfo);
+        }
+    }
+
+    public void invalidate(String email) {
+        if (byEmail == null || email == null) {
+            return;
+        }
+        UserInfo cached = byEmail.asMap().remove(email);
+        if (cached != null && cached.getId() != null) {
+            byId.invalidate(cached.getId());
+        }
+    }
+
+    public void invalidate(Long id) {
+        if (byId == null || id == null) {
+            return;
+        }
+        UserInfo cached = byId.asMap().remove(id);
+        if (cached != null && cached.getEmail() != null) {
+            byEmail.invalidate(cached.getEmail());
+        }
+    }
+
+    public void invalidateAll() {
+        if (byEmail == null) {
+            return;
+        }
+        byEmail.invalidateAll();
+        byId.invalidateAll();
+    }
+}
@@ -0,0 +1,48 @@
+package udehnih.report.client;
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.jdbc.core.RowMapper;
+import udehnih.report.model.UserInfo;
+
+/**
+ * Maps one row of the aggregated user lookup (user columns plus an
+ * {@code ARRAY_AGG} of role names) straight into a {@link UserInfo}.
+ * Users without any role get the default STUDENT role.
+ */
+public class UserInfoRowMapper implements RowMapper<UserInfo> {
+    static final String DEFAULT_ROLE = "STUDENT";
+    @Override
+
+    public UserInfo mapRow(ResultSet rs, int rowNum) throws SQLException {
+        long id = rs.getLong("id");
+        return UserInfo.builder()
+            .id(rs.wasNull() ? null : id)
+            .email(rs.getString("email"))
+            .name(rs.getString("name"))
+            .roles(readRoles(rs.getArray("roles")))
+            .build();
+    }
+    private
+
+    static List<String> readRoles(Array array) throws SQLException {
+        List<String> roles = new ArrayList<>();
+        if (array != null) {
+            try {
+                for (Object role : (Object[]) array.getArray()) {
+                    if (role != null) {
+                        roles.add(role.toString());
+                    }
+                }
+            } finally {
+                array.free();
+            }
+        }
+        if (roles.isEmpty()) {
+            roles.add(DEFAULT_ROLE);
+        }
+        return roles;
+    }
+}
@@ -1,23 +1,95 @@
 package udehnih.report.config;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.security.task.DelegatingSecurityContextAsyncTaskExecutor;
+import javax.sql.DataSource;
 import java.util.concurrent.Executor;
 @Configuration
 
 @EnableAsync
+@Slf4j
 public class AsyncConfig {
+    static final String MODE_PROPERTY = "REPORT_EXECUTOR_MODE";
+    static final String MAX_CONCURRENCY_PROPERTY = "REPORT_EXECUTOR_MAX_CONCURRENCY";
+    static final String VIRTUAL_MODE = "virtual";
+    static final String PLATFORM_MODE = "platform";
+    static final String QUEUE_DEPTH_METRIC = "report.executor.queue.depth";
+    static final String ACTIVE_TASKS_METRIC = "report.executor.active";
+    private static final String THREAD_NAME_PREFIX = "ReportThread-";
+    private static final int DEFAULT_MAX_CONCURRENCY = 10;
+    @Autowired
+    private Environment env;
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+    @Autowired
+    private ObjectProvider<DataSource> dataSource;
     @Bean(name = "reportTaskExecutor")
 
     public Executor taskExecutor() {
+        String mode = env.getProperty(MODE_PROPERTY, PLATFORM_MODE).trim();
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (VIRTUAL_MODE.equalsIgnoreCase(mode)) {
+            int maxConcurrency = env.getProperty(MAX_CONCURRENCY_PROPERTY, Integer.class, connectionPoolSize());
+            log.info("Report tasks run on virtual threads, at most {} at a time", maxConcurrency);
+            return new DelegatingSecurityContextAsyncTaskExecutor(virtualThreadExecutor(maxConcurrency, registry));
+        }
+        if (!PLATFORM_MODE.equalsIgnoreCase(mode)) {
+            log.warn("Unknown {} '{}', falling back to platform threads", MODE_PROPERTY, mode);
+        }
+        return new DelegatingSecurityContextAsyncTaskExecutor(platformThreadExecutor(registry));
+    }
+
+    static PermitLimitedTaskExecutor virtualThreadExecutor(final int maxConcurrency, final MeterRegistry registry) {
+        PermitLimitedTaskExecutor executor = new PermitLimitedTaskExecutor(
+            Thread.ofVirtual().name(THREAD_NAME_PREFIX, 1).factory(), maxConcurrency, new MdcTaskDecorator());
+        if (registry != null) {
+            Gauge.builder(QUEUE_DEPTH_METRIC, executor, PermitLimitedTaskExecutor::getQueueDepth)
+                .description("Report tasks waiting for a concurrency permit")
+                .tag("mode", VIRTUAL_MODE)
+                .register(registry);
+            Gauge.builder(ACTIVE_TASKS_METRIC, executor, PermitLimitedTaskExecutor::getActiveCount)
+                .description("Report tasks currently running")
+                .tag("mode", VIRTUAL_MODE)
+                .register(registry);
+        }
+        return executor;
+    }
+
+    static ThreadPoolTaskExecutor platformThreadExecutor(final MeterRegistry registry) {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(2);
         executor.setMaxPoolSize(4);
         executor.setQueueCapacity(100);
-        executor.setThreadNamePrefix("ReportThread-");
+        executor.setThreadNamePrefix(THREAD_NAME_PREFIX);
+        executor.setTaskDecorator(new MdcTaskDecorator());
         executor.initialize();
-        return new DelegatingSecurityContextAsyncTaskExecutor(executor);
+        if (registry != null) {
+            Gauge.builder(QUEUE_DEPTH_METRIC, executor, ThreadPoolTaskExecutor::getQueueSize)
+                .description("Report tasks waiting for a pool thread")
+                .tag("mode", PLATFORM_MODE)
+                .register(registry);
+            Gauge.builder(ACTIVE_TASKS_METRIC, executor, ThreadPoolTaskExecutor::getActiveCount)
+                .description("Report tasks currently running")
+                .tag("mode", PLATFORM_MODE)
+                .register(registry);
+        }
+        return executor;
+    }
+
+    private int connectionPoolSize() {
+        DataSource main = dataSource.getIfUnique();
+        if (main instanceof HikariDataSource hikari && hikari.getMaximumPoolSize() > 0) {
+            return hikari.getMaximumPoolSize();
+        }
+        return DEFAULT_MAX_CONCURRENCY;
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,112 @@
+package udehnih.report.config;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * HTTP client used to forward login, register and refresh calls to the
+ * external auth service. Connections are pooled and kept alive, so a burst of
+ * logins reuses a handful of TCP and TLS sessions instead of handshaking for
+ * every request. Every wait is bounded: leasing a pooled connection, connecting
+ * and reading the response.
+ * <p>
+ * Requests are recorded as {@code http.client.requests} through the
+ * auto-configured {@link RestTemplateBuilder}, and the pool is exported as
+ * {@code httpcomponents.httpclient.pool.*} tagged
+ * {@code httpclient=authService}.
+ */
+@Configuration
+
+@Slf4j
+public class AuthHttpClientConfig {
+    static final String POOL_NAME = "authService";
+    private static final int DEFAULT_MAX_TOTAL = 100;
+    private static final int DEFAULT_MAX_PER_ROUTE = 50;
+    private static final long DEFAULT_CONNECT_TIMEOUT_MS = 2000;
+    private static final long DEFAULT_READ_TIMEOUT_MS = 5000;
+    private static final long DEFAULT_ACQUIRE_TIMEOUT_MS = 1000;
+    private static final long DEFAULT_KEEP_ALIVE_SECONDS = 30;
+    private static final long DEFAULT_TIME_TO_LIVE_SECONDS = 300;
+    @Autowired
+    private Environment env;
+    @Bean(name = "authHttpConnectionManager", destroyMethod = "close")
+
+    public PoolingHttpClientConnectionManager authHttpConnectionManager(ObjectProvider<MeterRegistry> meterRegistry) {
+        int maxTotal = env.getProperty("AUTH_HTTP_MAX_CONNECTIONS", Integer.class, DEFAULT_MAX_TOTAL);
+        int maxPerRoute = env.getProperty("AUTH_HTTP_MAX_CONNECTIONS_PER_ROUTE", Integer.class, DEFAULT_MAX_PER_ROUTE);
+        PoolingHttpClientConnectionManager manager = connectionManager(maxTotal, maxPerRoute,
+            env.getProperty("AUTH_HTTP_CONNECT_TIMEOUT_MS", Long.class, DEFAULT_CONNECT_TIMEOUT_MS),
+            env.getProperty("AUTH_HTTP_READ_TIMEOUT_MS", Long.class, DEFAULT_READ_TIMEOUT_MS),
+            env.getProperty("AUTH_HTTP_TIME_TO_LIVE_SECONDS", Long.class, DEFAULT_TIME_TO_LIVE_SECONDS));
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            new PoolingHttpClientConnectionManagerMetricsBinder(manager, POOL_NAME).bindTo(registry);
+        }
+        log.info("Auth service HTTP pool: maxTotal={}, maxPerRoute={}", maxTotal, maxPerRoute);
+        return manager;
+    }
+    @Bean(name = "authHttpClient", destroyMethod = "close")
+
+    public CloseableHttpClient authHttpClient(
+            @Qualifier("authHttpConnectionManager") PoolingHttpClientConnectionManager connectionManager) {
+        return httpClient(connectionManager,
+            env.getProperty("AUTH_HTTP_ACQUIRE_TIMEOUT_MS", Long.class, DEFAULT_ACQUIRE_TIMEOUT_MS),
+            env.getProperty("AUTH_HTTP_READ_TIMEOUT_MS", Long.class, DEFAULT_READ_TIMEOUT_MS),
+            env.getProperty("AUTH_HTTP_KEEP_ALIVE_SECONDS", Long.class, DEFAULT_KEEP_ALIVE_SECONDS));
+    }
+    @Bean(name = "authRestTemplate")
+
+    public RestTemplate authRestTemplate(RestTemplateBuilder builder,
+                                         @Qualifier("authHttpClient") CloseableHttpClient httpClient) {
+        return builder
+            .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(httpClient))
+            .build();
+    }
+
+    static PoolingHttpClientConnectionManager connectionManager(int maxTotal, int maxPerRoute, long connectTimeoutMs,
+                                                                long readTimeoutMs, long timeToLiveSeconds) {
+        return PoolingHttpClientConnectionManagerBuilder.create()
+            .setMaxConnTotal(Math.max(1, maxTotal))
+            .setMaxConnPerRoute(Math.max(1, maxPerRoute))
+            .setDefaultConnectionConfig(ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                .setTimeToLive(TimeValue.ofSeconds(timeToLiveSeconds))
+                // A connection idle this long is checked before reuse, so a stale one is not handed out
+                .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                .build())
+            .build();
+    }
+
+    static CloseableHttpClient httpClient(PoolingHttpClientConnectionManager connectionManager, long acquireTimeoutMs,
+                                          long readTimeoutMs, long keepAliveSeconds) {
+        return HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(acquireTimeoutMs))
+                .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                // Used when the auth service does not send its own Keep-Alive timeout
+                .setConnectionKeepAlive(TimeValue.ofSeconds(keepAliveSeconds))
+                .build())
+            .evictExpiredConnections()
+            .evictIdleConnections(TimeValue.ofSeconds(keepAliveSeconds))
+            .build();
+    }
+}
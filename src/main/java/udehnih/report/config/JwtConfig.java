@@ -1,10 +1,25 @@
 package udehnih.report.config;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.env.Environment;
 import org.springframework.context.annotation.Configuration;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
 
+@Slf4j
 @Configuration
 public class JwtConfig {
+    static final String ACTIVE_KEY_ID_ENTRY = "active";
+    private static final long DEFAULT_VERIFIED_TOKEN_CACHE_SIZE = 10_000;
+    private static final long DEFAULT_REFRESH_GRACE_MS = 86_400_000;
     
     @Autowired
     private Environment env;
@@ -17,4 +32,92 @@ public class JwtConfig {
         String expirationStr = env.getProperty("JWT_EXPIRATION");
         return Long.parseLong(expirationStr);
     }
-} 
\ No newline at end of file
+
+    /**
+     * Maximum number of verified tokens JwtUtil keeps in memory; 0 disables the cache.
+     */
+    public long getVerifiedTokenCacheSize() {
+        return env.getProperty("JWT_VERIFIED_CACHE_MAX_SIZE", Long.class, DEFAULT_VERIFIED_TOKEN_CACHE_SIZE);
+    }
+
+    /**
+     * How long after its expiry a token can still be exchanged for a new one
+     * through the local refresh endpoint.
+     */
+    public Duration getRefreshGrace() {
+        return Duration.ofMillis(env.getProperty("JWT_REFRESH_GRACE_MS", Long.class, DEFAULT_REFRESH_GRACE_MS));
+    }
+
+    /**
+     * When true, JwtAuthenticationFilter authenticates requests from the claims
+     * of a verified token whose role version is current, without reading the
+     * user from the auth database.
+     */
+    public boolean isTrustedClaimsEnabled() {
+        return env.getProperty("JWT_TRUSTED_CLAIMS", Boolean.class, false);
+    }
+
+    /**
+     * When true, JwtAuthenticationFilter writes the authentication headers,
+     * cookies and cache headers on every authenticated response. Otherwise
+     * they are only written on {@code /auth/*} responses and for requests
+     * that send {@code X-Auth-Echo: true}.
+     */
+    public boolean isAuthEchoAlways() {
+        return env.getProperty("JWT_AUTH_ECHO_ALWAYS", Boolean.class, false);
+    }
+
+    /**
+     * Signing secrets by key id and the key id new tokens are signed with,
+     * taken from one read of the keys file.
+     */
+    public record SigningKeys(Map<String, String> keys, String activeKeyId) {
+    }
+
+    /**
+     * Signing secrets by key id, from {@code JWT_SIGNING_KEYS}
+     * ({@code kid:secret,kid:secret}) followed by the entries of the
+     * properties file named by {@code JWT_KEYS_FILE} ({@code kid=secret}).
+     * The active key id is {@code JWT_ACTIVE_KID}, else the {@code active}
+     * entry of the keys file, else null. The file is read once per call so
+     * keys can be rotated without a restart; when it cannot be read the call
+     * fails instead of returning a ring without its keys.
+     */
+    public SigningKeys getSigningKeys() {
+        Map<String, String> keys = new LinkedHashMap<>();
+        String inline = env.getProperty("JWT_SIGNING_KEYS");
+        if (inline != null) {
+            for (String pair : inline.split(",")) {
+                int separator = pair.indexOf(':');
+                if (separator > 0) {
+                    keys.put(pair.substring(0, separator).trim(), pair.substring(separator + 1).trim());
+                }
+            }
+        }
+        Properties file = readKeysFile();
+        for (String keyId : file.stringPropertyNames()) {
+            if (!ACTIVE_KEY_ID_ENTRY.equals(keyId)) {
+                keys.put(keyId, file.getProperty(keyId));
+            }
+        }
+        String activeKeyId = env.getProperty("JWT_ACTIVE_KID");
+        if (activeKeyId == null || activeKeyId.isBlank()) {
+            activeKeyId = file.getProperty(ACTIVE_KEY_ID_ENTRY);
+        }
+        return new SigningKeys(keys, activeKeyId);
+    }
+
+    private Properties readKeysFile() {
+        Properties properties = new Properties();
+        String location = env.getProperty("JWT_KEYS_FILE");
+        if (location == null || location.isBlank()) {
+            return properties;
+        }
+        try (Reader reader = Files.newBufferedReader(Path.of(location), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read JWT keys file " + location, e);
+        }
+        return properties;
+    }
+}
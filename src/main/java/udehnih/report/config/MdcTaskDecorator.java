@@ -0,0 +1,33 @@
+package udehnih.report.config;
+import java.util.Map;
+import org.slf4j.MDC;
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * Carries the submitting thread's MDC, and with it the request id, over to
+ * the thread that runs the task, and restores that thread's own MDC after.
+ */
+final class MdcTaskDecorator implements TaskDecorator {
+    @Override
+
+    public Runnable decorate(final Runnable task) {
+        final Map<String, String> context = MDC.getCopyOfContextMap();
+        return () -> {
+            Map<String, String> previous = MDC.getCopyOfContextMap();
+            if (context != null) {
+                MDC.setContextMap(context);
+            } else {
+                MDC.clear();
+            }
+            try {
+                task.run();
+            } finally {
+                if (previous != null) {
+                    MDC.setContextMap(previous);
+                } else {
+                    MDC.clear();
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,61 @@
+package udehnih.report.config;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Pool that runs every BCrypt hash and check, so a burst of logins takes at
+ * most {@code PASSWORD_HASH_THREADS} cores (default: all of them) instead of
+ * one per request thread. At most {@code PASSWORD_HASH_QUEUE_CAPACITY} hashes
+ * wait; past that, submissions are rejected straight away.
+ */
+@Configuration
+
+@Slf4j
+public class PasswordHashingConfig {
+    static final String QUEUE_DEPTH_METRIC = "auth.password.hash.queue.depth";
+    static final String ACTIVE_METRIC = "auth.password.hash.active";
+    private static final String THREAD_NAME_PREFIX = "PasswordHash-";
+    private static final int QUEUED_PER_THREAD = 8;
+    @Autowired
+    private Environment env;
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+    @Bean(name = "passwordHashExecutor")
+
+    public ThreadPoolTaskExecutor passwordHashExecutor() {
+        int threads = Math.max(1, env.getProperty("PASSWORD_HASH_THREADS", Integer.class,
+            Runtime.getRuntime().availableProcessors()));
+        int queueCapacity = Math.max(0, env.getProperty("PASSWORD_HASH_QUEUE_CAPACITY", Integer.class,
+            threads * QUEUED_PER_THREAD));
+        log.info("Password hashing pool: {} threads, {} queued", threads, queueCapacity);
+        return passwordHashExecutor(threads, queueCapacity, meterRegistry.getIfAvailable());
+    }
+
+    static ThreadPoolTaskExecutor passwordHashExecutor(final int threads, final int queueCapacity,
+                                                       final MeterRegistry registry) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix(THREAD_NAME_PREFIX);
+        executor.setTaskDecorator(new MdcTaskDecorator());
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        if (registry != null) {
+            Gauge.builder(QUEUE_DEPTH_METRIC, executor, ThreadPoolTaskExecutor::getQueueSize)
+                .description("Password hashes waiting for a pool thread")
+                .register(registry);
+            Gauge.builder(ACTIVE_METRIC, executor, ThreadPoolTaskExecutor::getActiveCount)
+                .description("Password hashes currently running")
+                .register(registry);
+        }
+        return executor;
+    }
+}
@@ -0,0 +1,91 @@
+package udehnih.report.config;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.core.task.TaskRejectedException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Starts every task on a fresh thread from {@code threadFactory} (virtual
+ * threads in practice) and lets at most {@code maxConcurrency} of them run
+ * at once. Tasks over the limit park on a semaphore instead of being
+ * rejected, so concurrency follows the connection pool rather than a
+ * thread count.
+ */
+final class PermitLimitedTaskExecutor implements AsyncTaskExecutor {
+    private final ThreadFactory threadFactory;
+    private final Semaphore permits;
+    private final int maxConcurrency;
+    private final TaskDecorator taskDecorator;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+
+    PermitLimitedTaskExecutor(final ThreadFactory threadFactory, final int maxConcurrency) {
+        this(threadFactory, maxConcurrency, null);
+    }
+
+    PermitLimitedTaskExecutor(final ThreadFactory threadFactory, final int maxConcurrency,
+                              final TaskDecorator taskDecorator) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be positive but was " + maxConcurrency);
+        }
+        this.threadFactory = threadFactory;
+        this.maxConcurrency = maxConcurrency;
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.taskDecorator = taskDecorator;
+    }
+    @Override
+
+    public void execute(final Runnable task) {
+        final Runnable decorated = taskDecorator != null ? taskDecorator.decorate(task) : task;
+        waiting.incrementAndGet();
+        try {
+            threadFactory.newThread(() -> runWithPermit(decorated)).start();
+        } catch (RuntimeException | OutOfMemoryError e) {
+            waiting.decrementAndGet();
+            throw new TaskRejectedException("Could not start report task thread", e);
+        }
+    }
+    @Override
+
+    public Future<?> submit(final Runnable task) {
+        FutureTask<Object> future = new FutureTask<>(task, null);
+        execute(future);
+        return future;
+    }
+    @Override
+
+    public <T> Future<T> submit(final Callable<T> task) {
+        FutureTask<T> future = new FutureTask<>(task);
+        execute(future);
+        return future;
+    }
+
+    private void runWithPermit(final Runnable task) {
+        permits.acquireUninterruptibly();
+        waiting.decrementAndGet();
+        active.incrementAndGet();
+        try {
+            task.run();
+        } finally {
+            active.decrementAndGet();
+            permits.release();
+        }
+    }
+
+    int getQueueDepth() {
+        return waiting.get();
+    }
+
+    int getActiveCount() {
+        return active.get();
+    }
+
+    int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+}
@@ -9,23 +9,35 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.core.env.Environment;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 import udehnih.report.filter.JwtAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import udehnih.report.filter.CorsFilter;
+import udehnih.report.util.AppConstants;
+import udehnih.report.util.CalibratedBCryptPasswordEncoder;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.annotation.PostConstruct;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Map;
 @Configuration
 
 @EnableWebSecurity
 @EnableMethodSecurity
 public class SecurityConfig {
+    private static final String BCRYPT_ID = "bcrypt";
+    private static final long DEFAULT_BCRYPT_TARGET_MS = 100;
+    private static final long DEFAULT_BCRYPT_MIN_COST = 10;
+    private static final long DEFAULT_BCRYPT_MAX_COST = 14;
+    private static final long DEFAULT_SERVER_PORT = 8080;
     @PostConstruct
 
     public void enableAuthenticationContextOnSpawnedThreads() {
@@ -35,10 +47,45 @@ public class SecurityConfig {
     private JwtAuthenticationFilter jwtAuthenticationFilter;
     @Autowired
     private CorsFilter corsFilter;
+    @Autowired
+    private Environment env;
+
+    /**
+     * Stores hashes as {@code {bcrypt}...} at a cost calibrated to
+     * {@code BCRYPT_TARGET_MS} on this machine, or pinned with
+     * {@code BCRYPT_COST} so differently sized instances agree. Hashes without
+     * a prefix, as written before, still match and are flagged for upgrade, as
+     * are hashes below the current cost or outside the cost bounds.
+     */
     @Bean
 
-    public BCryptPasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder() {
+        Integer pinned = env != null ? env.getProperty("BCRYPT_COST", Integer.class) : null;
+        int minCost = (int) property("BCRYPT_MIN_COST", DEFAULT_BCRYPT_MIN_COST);
+        int maxCost = (int) property("BCRYPT_MAX_COST", DEFAULT_BCRYPT_MAX_COST);
+        int cost = pinned != null ? pinned : CalibratedBCryptPasswordEncoder.calibrate(
+            Duration.ofMillis(property("BCRYPT_TARGET_MS", DEFAULT_BCRYPT_TARGET_MS)), minCost, maxCost);
+        CalibratedBCryptPasswordEncoder bcrypt = new CalibratedBCryptPasswordEncoder(cost, minCost, maxCost);
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(BCRYPT_ID, Map.of(BCRYPT_ID, bcrypt));
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return encoder;
+    }
+
+    private long property(String name, long defaultValue) {
+        Long value = env != null ? env.getProperty(name, Long.class) : null;
+        return value != null ? value : defaultValue;
+    }
+    /**
+     * Matches requests that arrived on the separate management port. That
+     * port binds to loopback and nginx only forwards health checks to it, so
+     * the Prometheus scrape there needs no token. Matches nothing when the
+     * actuator shares the main port, where the metrics then require a login.
+     */
+    static RequestMatcher managementPortRequests(Integer managementPort, int serverPort) {
+        if (managementPort == null || managementPort <= 0 || managementPort == serverPort) {
+            return request -> false;
+        }
+        return request -> request.getLocalPort() == managementPort;
     }
     @Bean
 
@@ -56,6 +103,10 @@ public class SecurityConfig {
             )
             .authorizeHttpRequests(auth -> auth
                 .requestMatchers("/error").permitAll()
+                .requestMatchers("/actuator/health", "/actuator/health/**").permitAll()
+                .requestMatchers(managementPortRequests(
+                    env != null ? env.getProperty("management.server.port", Integer.class) : null,
+                    (int) property("server.port", DEFAULT_SERVER_PORT))).permitAll()
                 .requestMatchers("/auth/**").permitAll()
                 .requestMatchers("/api/test/public").permitAll()
                 .requestMatchers("/api/test/authenticated").authenticated()
@@ -98,7 +149,8 @@ public class SecurityConfig {
             "X-Requested-With", 
             "Cache-Control", 
             "Access-Control-Allow-Origin",
-            "Access-Control-Allow-Headers"
+            "Access-Control-Allow-Headers",
+            AppConstants.AUTH_ECHO_HEADER
         ));
         configuration.setExposedHeaders(Arrays.asList(
             "Authorization", 
@@ -110,6 +162,7 @@ public class SecurityConfig {
             "X-Auth-Name",
             "X-User-Email",
             "X-User-Role",
+            "X-Next-Cursor",
             "Access-Control-Allow-Origin",
             "Access-Control-Allow-Credentials"
         ));
@@ -10,13 +10,25 @@ import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
+import udehnih.report.client.AuthServiceHealthMonitor;
+import udehnih.report.client.RoleVersionRegistry;
+import udehnih.report.client.UserInfoCache;
+import udehnih.report.exception.PasswordHashingRejectedException;
+import udehnih.report.service.PasswordHashingService;
+import udehnih.report.service.TokenRevocationService;
+import udehnih.report.util.AppConstants;
 import udehnih.report.util.JwtUtil;
+import udehnih.report.util.LogSanitizer;
+import udehnih.report.util.VerifiedToken;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -32,16 +44,29 @@ public class AuthProxyController {
     private final Environment env;
     private final JwtUtil jwtUtil;
     private final JdbcTemplate authJdbcTemplate;
-    private final BCryptPasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
+    private final UserInfoCache userInfoCache;
+    private final RoleVersionRegistry roleVersionRegistry;
+    private final TokenRevocationService tokenRevocationService;
+    private final AuthServiceHealthMonitor authServiceHealthMonitor;
 
     @Autowired
     public AuthProxyController(Environment env, JwtUtil jwtUtil, 
-                              @Qualifier("authJdbcTemplate") JdbcTemplate authJdbcTemplate) {
-        this.restTemplate = new RestTemplate();
+                              @Qualifier("authJdbcTemplate") JdbcTemplate authJdbcTemplate,
+                              @Qualifier("authRestTemplate") RestTemplate restTemplate,
+                              UserInfoCache userInfoCache, RoleVersionRegistry roleVersionRegistry,
+                              TokenRevocationService tokenRevocationService,
+                              AuthServiceHealthMonitor authServiceHealthMonitor,
+                              PasswordHashingService passwordHashingService) {
+        this.restTemplate = restTemplate;
         this.env = env;
         this.jwtUtil = jwtUtil;
         this.authJdbcTemplate = authJdbcTemplate;
-        this.passwordEncoder = new BCryptPasswordEncoder();
+        this.userInfoCache = userInfoCache;
+        this.roleVersionRegistry = roleVersionRegistry;
+        this.tokenRevocationService = tokenRevocationService;
+        this.authServiceHealthMonitor = authServiceHealthMonitor;
+        this.passwordHashingService = passwordHashingService;
     }
     
     private String getAuthServiceUrl() {
@@ -64,8 +89,10 @@ public class AuthProxyController {
     @PostMapping("/login")
     public ResponseEntity<Object> login(@RequestBody Map<String, Object> loginRequest, @RequestHeader HttpHeaders headers) {
         log.info("=== LOGIN REQUEST RECEIVED ====");
-        log.debug("Request body: {}", loginRequest);
-        log.debug("Request headers: {}", headers);
+        if (log.isDebugEnabled()) {
+            log.debug("Request body: {}", LogSanitizer.body(loginRequest));
+            log.debug("Request headers: {}", LogSanitizer.headers(headers.toSingleValueMap()));
+        }
         
         String authServiceUrl = getAuthServiceUrl();
         boolean useExternalAuth = shouldUseExternalAuth(authServiceUrl);
@@ -143,6 +170,46 @@ public class AuthProxyController {
         return response;
     }
 
+    /**
+     * Revokes the presented token, or with {@code "allSessions": true} every
+     * token issued to its subject so far. Revocation is local to this
+     * service's deny list, so it is never forwarded to the external auth
+     * service.
+     */
+    @PostMapping("/revoke")
+    public ResponseEntity<Object> revoke(@RequestBody(required = false) Map<String, Object> revokeRequest,
+                                         @RequestHeader HttpHeaders headers) {
+        log.info("=== TOKEN REVOCATION REQUEST RECEIVED ====");
+        String authHeader = headers.getFirst("Authorization");
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            log.warn("Token revocation attempt with no Authorization header");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", "No authentication token provided"));
+        }
+        VerifiedToken verified = jwtUtil.verify(authHeader.substring(7));
+        if (verified == null) {
+            log.warn("Token revocation attempt with invalid token");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", "Invalid token"));
+        }
+        boolean allSessions = revokeRequest != null && Boolean.TRUE.equals(revokeRequest.get("allSessions"));
+        try {
+            if (allSessions) {
+                tokenRevocationService.revokeAllIssuedBefore(verified.subject(), Instant.now());
+            } else {
+                tokenRevocationService.revoke(verified);
+            }
+        } catch (Exception e) {
+            log.error("Error revoking token: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Revocation failed: " + e.getMessage()));
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("revoked", true);
+        response.put("email", verified.subject());
+        response.put("allSessions", allSessions);
+        return ResponseEntity.ok(response);
+    }
 
     private boolean shouldUseExternalAuth(String authServiceUrl) {
         if (authServiceUrl == null || authServiceUrl.isEmpty()) {
@@ -161,14 +228,20 @@ public class AuthProxyController {
             return false;
         }
 
-        try {
-            restTemplate.headForHeaders(authServiceUrl);
-            log.info("External auth service at {} is available", authServiceUrl);
-            return true;
-        } catch (Exception e) {
-            log.warn("External auth service at {} is not available: {}", authServiceUrl, e.getMessage());
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null && attributes.getAttribute(AppConstants.AUTH_LOCAL_ONLY_ATTRIBUTE,
+                RequestAttributes.SCOPE_REQUEST) != null) {
+            log.debug("Auth passthrough already tried {}, using local auth", authServiceUrl);
             return false;
         }
+
+        // Cached by the background monitor, so routing adds no round trip
+        boolean available = authServiceHealthMonitor.isAvailable();
+        if (!available) {
+            log.debug("External auth service at {} is marked {}, using local auth", authServiceUrl,
+                authServiceHealthMonitor.getState());
+        }
+        return available;
     }
     
     // Made protected for testing purposes
@@ -180,16 +253,14 @@ public class AuthProxyController {
             
             log.info("Forwarding request to external auth service: {}", fullUrl);
             log.debug("Request method: {}", method);
-            log.debug("Request body: {}", body);
+            log.debug("Request body keys: {}", body instanceof Map<?, ?> map ? map.keySet() : null);
             
-            // Use the injected RestTemplate instead of creating a new one
-            // This makes the method more testable
+            // Pooled client from AuthHttpClientConfig, so repeated forwards reuse kept-alive connections
             HttpEntity<Object> requestEntity = new HttpEntity<>(body, headers);
             
             ResponseEntity<Object> response = restTemplate.exchange(fullUrl, method, requestEntity, Object.class);
             
             log.info("Response status: {}", response.getStatusCode());
-            log.debug("Response body: {}", response.getBody());
             
             HttpHeaders responseHeaders = new HttpHeaders();
             response.getHeaders().forEach((key, value) -> responseHeaders.put(key, value));
@@ -204,6 +275,9 @@ public class AuthProxyController {
                     .body(response.getBody());
         } catch (Exception e) {
             log.error("Error forwarding request to auth service: {}", e.getMessage(), e);
+            if (e instanceof ResourceAccessException) {
+                authServiceHealthMonitor.recordFailure(e);
+            }
             throw new RestClientException("Error connecting to authentication service: " + e.getMessage());
         }
     }
@@ -234,10 +308,11 @@ public class AuthProxyController {
             Long userId = ((Number) user.get("id")).longValue();
             String name = (String) user.get("name");
             
-            if (!passwordEncoder.matches(password, storedPassword)) {
+            if (!passwordHashingService.matches(password, storedPassword)) {
                 log.warn("Invalid password for user: {}", email);
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Invalid email or password"));
             }
+            rehashIfNeeded(userId, password, storedPassword);
             
             List<String> roles = getUserRoles(email);
             if (roles.isEmpty()) {
@@ -245,7 +320,8 @@ public class AuthProxyController {
                 roles.add("STUDENT");
             }
             
-            String token = jwtUtil.generateToken(email, String.join(",", roles));
+            String token = jwtUtil.generateToken(email, String.join(",", roles), userId, name,
+                    roleVersionRegistry.currentVersion(userId));
             log.info("Generated JWT token for user: {} with ID: {}", email, userId);
             
             Map<String, Object> response = new HashMap<>();
@@ -269,6 +345,8 @@ public class AuthProxyController {
             
             log.info("Local login successful for user: {} with ID: {}", email, userId);
             return ResponseEntity.ok().headers(headers).body(response);
+        } catch (PasswordHashingRejectedException e) {
+            return tooBusy(e);
         } catch (Exception e) {
             log.error("Error in local login: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -285,18 +363,25 @@ public class AuthProxyController {
         }
         
         String token = authHeader.substring(7);
-        String username = jwtUtil.extractUsername(token);
-        String role = jwtUtil.extractRole(token);
-        
-        if (username == null) {
+        // A signed token that expired within the grace window can be exchanged; its deny-list
+        // entry is kept for that window too, so revocation is not outlived by expiry
+        VerifiedToken verified = jwtUtil.verifyForRefresh(token);
+        if (verified == null) {
             log.warn("Token refresh attempt with invalid token");
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(Map.of("error", "Invalid token"));
         }
+        if (tokenRevocationService.isRevoked(verified)) {
+            log.warn("Token refresh attempt with revoked token of {}", verified.subject());
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", "Token has been revoked"));
+        }
+        String username = verified.subject();
         
         log.info("Refreshing token for user: {}", username);
         
-        String newToken = jwtUtil.generateToken(username, role);
+        String newToken = jwtUtil.generateToken(username, verified.roleString(), verified.userId(),
+                verified.name(), verified.roleVersion());
         
         Map<String, Object> response = new HashMap<>();
         response.put("token", newToken);
@@ -335,9 +420,12 @@ public class AuthProxyController {
                         .body(Map.of("error", "User already exists"));
             }
             
-            createUserInH2(email, password, name);
+            Long userId = createUserInH2(email, password, name);
+            userInfoCache.invalidate(email);
+            roleVersionRegistry.invalidate(userId);
             
-            String token = jwtUtil.generateToken(email, "STUDENT");
+            String token = jwtUtil.generateToken(email, "STUDENT", userId, name,
+                    roleVersionRegistry.currentVersion(userId));
             log.info("Generated JWT token for new user: {}", email);
             
             Map<String, Object> response = new HashMap<>();
@@ -351,6 +439,8 @@ public class AuthProxyController {
             
             log.info("Local registration successful for user: {}", email);
             return ResponseEntity.status(HttpStatus.CREATED).headers(headers).body(response);
+        } catch (PasswordHashingRejectedException e) {
+            return tooBusy(e);
         } catch (Exception e) {
             log.error("Error in local registration: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -358,9 +448,40 @@ public class AuthProxyController {
         }
     }
 
-    private void createUserInH2(String email, String password, String name) {
+    /**
+     * Re-encodes a stored hash that is unprefixed or too weak while the raw
+     * password is at hand. Best effort: the login succeeds either way, and the
+     * update only applies if the hash has not changed in the meantime. This
+     * writes {@code {bcrypt}} prefixes into the shared users table, so it only
+     * runs with {@code PASSWORD_REHASH_ON_LOGIN=true}.
+     */
+    private void rehashIfNeeded(Long userId, String password, String storedPassword) {
+        if (!Boolean.TRUE.equals(env.getProperty("PASSWORD_REHASH_ON_LOGIN", Boolean.class))
+                || !passwordHashingService.needsRehash(storedPassword)) {
+            return;
+        }
+        try {
+            String rehashed = passwordHashingService.encode(password);
+            int updated = authJdbcTemplate.update("UPDATE users SET password = ? WHERE id = ? AND password = ?",
+                    rehashed, userId, storedPassword);
+            log.info("Rehashed password of user {} to the current format and cost: {}", userId, updated == 1);
+        } catch (PasswordHashingRejectedException e) {
+            log.debug("Password hashing busy, rehash of user {} left for a later login", userId);
+        } catch (Exception e) {
+            log.warn("Could not rehash password of user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    // Password hashing is saturated; shed the request quickly rather than queue it behind the backlog
+    private ResponseEntity<Object> tooBusy(PasswordHashingRejectedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(Map.of("error", "Too many sign-ins in progress, please retry shortly"));
+    }
+
+    private Long createUserInH2(String email, String password, String name) {
         try {
-            String encodedPassword = passwordEncoder.encode(password);
+            String encodedPassword = passwordHashingService.encode(password);
             authJdbcTemplate.update("INSERT INTO users (email, password, name) VALUES (?, ?, ?)",
                     email, encodedPassword, name);
             
@@ -382,6 +503,7 @@ public class AuthProxyController {
                     userId, roleId);
             
             log.info("Created user {} with role STUDENT in H2 database", email);
+            return userId;
         } catch (Exception e) {
             log.error("Error creating user in H2: {}", e.getMessage(), e);
             throw e;
@@ -6,6 +6,7 @@ import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -22,9 +23,11 @@ import udehnih.report.client.AuthServiceClient;
 import udehnih.report.dto.ReportMapper;
 import udehnih.report.dto.ReportRequestDto;
 import udehnih.report.dto.ReportResponseDto;
+import udehnih.report.enums.ReportView;
 import udehnih.report.model.Report;
 import udehnih.report.model.UserInfo;
 import udehnih.report.service.ReportService;
+import udehnih.report.util.ResolvedPrincipal;
 @Slf4j
 
 @RestController
@@ -55,7 +58,7 @@ public class ReportController {
             username = authentication.getName();
         }
         log.info("Creating report for user: {}", username);
-        UserInfo userInfo = authServiceClient.getUserByEmail(username);
+        UserInfo userInfo = resolveUserInfo(username, httpRequest);
         if (userInfo == null || userInfo.getId() == null) {
             log.warn(USER_INFO_NOT_FOUND_LOG, username);
             return ResponseEntity.status(404).build();
@@ -77,6 +80,7 @@ public class ReportController {
     public CompletableFuture<ResponseEntity<List<ReportResponseDto>>> getUserReports(
         @RequestParam(required = false) final String studentId,
         @RequestParam(required = false) final String StudentId,
+        @RequestParam(required = false) final String view,
         final HttpServletRequest request
     ) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -89,8 +93,13 @@ public class ReportController {
         } else {
             username = authentication.getName();
         }
+        final ReportView reportView = ReportView.fromParam(view);
+        if (reportView == null) {
+            log.warn("Unsupported report view requested: {}", view);
+            return CompletableFuture.completedFuture(ResponseEntity.status(400).body(List.of()));
+        }
         log.info("Getting reports for authenticated user: {}", username);
-        UserInfo userInfo = authServiceClient.getUserByEmail(username);
+        UserInfo userInfo = resolveUserInfo(username, request);
         if (userInfo == null) {
             log.warn(USER_INFO_NOT_FOUND_LOG, username);
             return CompletableFuture.completedFuture(ResponseEntity.status(404).body(List.of()));
@@ -120,20 +129,32 @@ public class ReportController {
         }
         log.info("Using studentId: {}", effectiveStudentId);
         final String finalStudentId = effectiveStudentId;
-        try {
-            final List<Report> testReports = reportService.getUserReports(finalStudentId).join();
-            log.info("Successfully retrieved {} reports for studentId: {}", testReports.size(), finalStudentId);
-            return reportService.getUserReports(finalStudentId)
-                .thenApply(reports -> reports.stream()
+        if (reportView == ReportView.SUMMARY) {
+            return reportService.getUserReportSummaries(finalStudentId)
+                .thenApply(summaries -> summaries.stream()
                     .map(ReportMapper::toDto)
                     .collect(Collectors.toList()))
                 .thenApply(ResponseEntity::ok)
+                .exceptionally(ex -> {
+                    log.error("Error retrieving report summaries: {}", ex.getMessage());
+                    return ResponseEntity.status(500).body(List.of());
+                });
+        }
+        try {
+            return reportService.getUserReports(finalStudentId)
+                .thenApply(reports -> {
+                    log.info("Successfully retrieved {} reports for studentId: {}", reports.size(), finalStudentId);
+                    return reports.stream()
+                        .map(ReportMapper::toDto)
+                        .collect(Collectors.toList());
+                })
+                .thenApply(ResponseEntity::ok)
                 .exceptionally(ex -> {
                     log.error("Error retrieving reports: {}", ex.getMessage());
                     return ResponseEntity.status(500).body(List.of());
                 });
         } catch (Exception e) {
-            log.error("Error testing report access: {}", e.getMessage());
+            log.error("Error retrieving reports: {}", e.getMessage());
             return CompletableFuture.completedFuture(ResponseEntity.status(500).body(List.of()));
         }
     }
@@ -150,6 +171,9 @@ public class ReportController {
                 ReportMapper.toEntity(request)
             );
             response = ResponseEntity.ok(ReportMapper.toDto(updated));
+        } catch (ObjectOptimisticLockingFailureException e) {
+            log.warn("Report {} was modified concurrently: {}", reportId, e.getMessage());
+            response = ResponseEntity.status(409).build();
         } catch (RuntimeException e) {
             log.warn("Report not found or invalid data: {}", e.getMessage());
             response = ResponseEntity.notFound().build();
@@ -188,7 +212,7 @@ public class ReportController {
             username = authentication.getName();
         }
         log.info("Retrieving report with ID: {} for user: {}", reportId, username);
-        UserInfo userInfo = authServiceClient.getUserByEmail(username);
+        UserInfo userInfo = resolveUserInfo(username, request);
         if (userInfo == null) {
             log.warn(USER_INFO_NOT_FOUND_LOG, username);
             return CompletableFuture.completedFuture(ResponseEntity.status(404).build());
@@ -218,6 +242,10 @@ public class ReportController {
                 return ResponseEntity.status(404).build();
             });
     }
+    private UserInfo resolveUserInfo(final String username, final HttpServletRequest request) {
+        UserInfo resolved = ResolvedPrincipal.get(request, username);
+        return resolved != null ? resolved : authServiceClient.getUserByEmail(username);
+    }
     private
 
     static boolean isBlank(final String str) {
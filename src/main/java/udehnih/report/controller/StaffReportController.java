@@ -4,10 +4,17 @@ import udehnih.report.service.ReportService;
 import udehnih.report.dto.RejectionRequestDto;
 import udehnih.report.dto.ReportResponseDto;
 import udehnih.report.dto.ReportMapper;
+import udehnih.report.dto.ReportCursor;
+import udehnih.report.dto.ReportPage;
+import udehnih.report.dto.ReportSummary;
+import udehnih.report.enums.ReportStatus;
+import udehnih.report.enums.ReportView;
+import udehnih.report.util.AppConstants;
 import udehnih.report.client.AuthServiceClient;
 import udehnih.report.model.UserInfo;
 import org.springframework.beans.factory.annotation.Autowired;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
@@ -17,11 +24,16 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 @RestController
 @RequestMapping("/api/staff/reports")
@@ -29,6 +41,8 @@ import java.util.stream.Collectors;
 @Slf4j
 public class StaffReportController {
     private static final String UNKNOWN_USER = "Unknown";
+    static final int DEFAULT_PAGE_SIZE = 50;
+    static final int MAX_PAGE_SIZE = 200;
     private final ReportService reportService;
     @Autowired
     private AuthServiceClient authServiceClient;
@@ -37,74 +51,108 @@ public class StaffReportController {
         this.reportService = reportService;
     }
     @GetMapping
-    public CompletableFuture<ResponseEntity<?>> getAllReports() {
+    public CompletableFuture<ResponseEntity<?>> getAllReports(
+            @RequestParam(required = false) final String cursor,
+            @RequestParam(required = false) final Integer size,
+            @RequestParam(required = false) final ReportStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) final LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) final LocalDateTime to,
+            @RequestParam(required = false) final String view) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null) {
             return CompletableFuture.completedFuture(
                 ResponseEntity.status(401).body("Authentication required"));
         }
-        return reportService.getAllReports()
-            .thenApply(this::mapReportsToResponseDtos)
-            .thenApply(ResponseEntity::ok);
+        ReportView reportView = ReportView.fromParam(view);
+        if (reportView == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body("Invalid view"));
+        }
+        ReportCursor after = null;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                after = ReportCursor.decode(cursor);
+            } catch (IllegalArgumentException e) {
+                log.warn("Rejected staff report listing with invalid cursor: {}", e.getMessage());
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest().body("Invalid cursor"));
+            }
+        }
+        int limit = effectivePageSize(size);
+        if (reportView == ReportView.SUMMARY) {
+            return reportService.getReportSummariesPage(status, from, to, after, limit)
+                .thenApply(page -> toResponse(page, ReportMapper::toDto));
+        }
+        return reportService.getReportsPage(status, from, to, after, limit)
+            .thenApply(page -> toResponse(page, ReportMapper::toDto));
+    }
+
+    private <T> ResponseEntity<?> toResponse(final ReportPage<T> page, final Function<T, ReportResponseDto> toDto) {
+        List<ReportResponseDto> body = withStudentNames(page.map(toDto).getItems());
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(AppConstants.NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(body);
+    }
+
+    private static int effectivePageSize(final Integer size) {
+        if (size == null || size <= 0) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(size, MAX_PAGE_SIZE);
     }
     
-    private List<ReportResponseDto> mapReportsToResponseDtos(List<Report> reports) {
-        Map<String, String> studentNames = fetchStudentNames(reports);
-        return reports.stream()
-            .map(report -> {
-                ReportResponseDto dto = ReportMapper.toDto(report);
-                dto.setStudentName(studentNames.getOrDefault(report.getStudentId(), UNKNOWN_USER));
-                return dto;
-            })
-            .collect(Collectors.toList());
+    private List<ReportResponseDto> withStudentNames(List<ReportResponseDto> dtos) {
+        Map<String, String> studentNames = fetchStudentNames(dtos);
+        for (ReportResponseDto dto : dtos) {
+            dto.setStudentName(studentNames.getOrDefault(dto.getStudentId(), UNKNOWN_USER));
+        }
+        return dtos;
     }
     
-    private Map<String, String> fetchStudentNames(List<Report> reports) {
-        List<String> studentIds = reports.stream()
-            .map(Report::getStudentId)
-            .distinct()
-            .collect(Collectors.toList());
-        
+    private Map<String, String> fetchStudentNames(List<ReportResponseDto> reports) {
+        Map<String, Long> numericIds = new HashMap<>();
+        List<String> emails = new ArrayList<>();
         Map<String, String> studentNames = new HashMap<>();
-        if (!studentIds.isEmpty()) {
-            for (String studentId : studentIds) {
-                try {
-                    fetchAndStoreStudentName(studentId, studentNames);
-                } catch (Exception e) {
-                    log.error("Error fetching student name for ID {}: {}", studentId, e.getMessage());
-                    studentNames.put(studentId, UNKNOWN_USER);
-                }
+        for (String studentId : reports.stream().map(ReportResponseDto::getStudentId).distinct().collect(Collectors.toList())) {
+            if (studentId == null) {
+                continue;
+            }
+            Long id = parseStudentId(studentId);
+            if (id != null) {
+                numericIds.put(studentId, id);
+            } else if (studentId.contains("@")) {
+                emails.add(studentId);
+            } else {
+                studentNames.put(studentId, UNKNOWN_USER);
             }
         }
-        return studentNames;
-    }
-
-    private void fetchAndStoreStudentName(String studentId, Map<String, String> studentNames) {
-        Long id = parseStudentId(studentId);
-        UserInfo userInfo = null;
-        
-        if (id != null) {
+        if (!numericIds.isEmpty()) {
+            Map<Long, UserInfo> usersById = Collections.emptyMap();
             try {
-                userInfo = authServiceClient.getUserById(id);
-                if (userInfo != null && userInfo.getName() != null) {
-                    studentNames.put(studentId, userInfo.getName());
-                    return;
-                }
+                usersById = authServiceClient.getUsersByIds(numericIds.values());
             } catch (Exception e) {
-                log.error("Error fetching user by ID {}: {}", id, e.getMessage());
-                // Fall through to default handling
+                log.error("Error fetching {} users by ID: {}", numericIds.size(), e.getMessage());
             }
-            studentNames.put(studentId, "User " + id);
-        } else if (studentId.contains("@")) {
-            userInfo = authServiceClient.getUserByEmail(studentId);
-            if (userInfo != null) {
-                studentNames.put(studentId, userInfo.getName());
-            } else {
-                studentNames.put(studentId, UNKNOWN_USER);
+            for (Map.Entry<String, Long> entry : numericIds.entrySet()) {
+                UserInfo userInfo = usersById.get(entry.getValue());
+                studentNames.put(entry.getKey(), userInfo != null && userInfo.getName() != null
+                    ? userInfo.getName() : "User " + entry.getValue());
             }
-        } else {
-            studentNames.put(studentId, UNKNOWN_USER);
         }
+        if (!emails.isEmpty()) {
+            Map<String, UserInfo> usersByEmail = Collections.emptyMap();
+            try {
+                usersByEmail = authServiceClient.getUsersByEmails(emails);
+            } catch (Exception e) {
+                log.error("Error fetching {} users by email: {}", emails.size(), e.getMessage());
+            }
+            for (String email : emails) {
+                UserInfo userInfo = usersByEmail.get(email);
+                studentNames.put(email, userInfo != null && userInfo.getName() != null
+                    ? userInfo.getName() : UNKNOWN_USER);
+            }
+        }
+        return studentNames;
     }
 
     private Long parseStudentId(String studentId) {
@@ -0,0 +1,39 @@
+package udehnih.report.dto;
+import lombok.Value;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in the report listing, ordered by {@code createdAt} then
+ * {@code reportId}, both descending. Clients receive it as an opaque
+ * URL-safe token and send it back to fetch the next page.
+ */
+@Value
+public class ReportCursor {
+    private static final char SEPARATOR = '|';
+    LocalDateTime createdAt;
+    Integer reportId;
+
+    public String encode() {
+        String raw = createdAt.toString() + SEPARATOR + reportId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    public
+
+ static ReportCursor decode(final String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Malformed cursor: " + token);
+            }
+            return new ReportCursor(
+                LocalDateTime.parse(raw.substring(0, separator)),
+                Integer.valueOf(raw.substring(separator + 1)));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed cursor: " + token, e);
+        }
+    }
+}
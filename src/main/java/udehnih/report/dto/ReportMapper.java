@@ -15,6 +15,7 @@ public final class ReportMapper {
                 .studentId(dto.getStudentId())
                 .title(dto.getTitle())
                 .detail(dto.getDetail())
+                .version(dto.getVersion())
                 .build();
         return result;
     }
@@ -37,6 +38,28 @@ public final class ReportMapper {
         }
         dto.setCreatedAt(report.getCreatedAt());
         dto.setUpdatedAt(report.getUpdatedAt());
+        dto.setVersion(report.getVersion());
+        result = dto;
+        return result;
+    }
+    public
+
+ static ReportResponseDto toDto(final ReportSummary summary) {
+        ReportResponseDto result = null;
+        if (summary == null) {
+            return result;
+        }
+        final ReportResponseDto dto = new ReportSummaryDto();
+        dto.setReportId(summary.getReportId());
+        dto.setStudentId(summary.getStudentId());
+        dto.setTitle(summary.getTitle());
+        dto.setStatus(summary.getStatus());
+        dto.setRejectionMessage(summary.getRejectionMessage());
+        if (summary.getRejectionMessage() != null) {
+            dto.setRejectionMessageText(summary.getRejectionMessage().getMessage());
+        }
+        dto.setCreatedAt(summary.getCreatedAt());
+        dto.setUpdatedAt(summary.getUpdatedAt());
         result = dto;
         return result;
     }
@@ -0,0 +1,37 @@
+package udehnih.report.dto;
+import lombok.Value;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset-paginated listing. {@code nextCursor} is null on the
+ * last page.
+ */
+@Value
+public class ReportPage<T> {
+    List<T> items;
+    String nextCursor;
+
+    /**
+     * Builds a page from a query that fetched up to {@code limit + 1} rows; the
+     * extra row only signals that another page exists.
+     */
+    public
+
+ static <T> ReportPage<T> of(final List<T> rows, final int limit, final Function<T, ReportCursor> cursorOf) {
+        if (rows.size() <= limit) {
+            return new ReportPage<>(rows, null);
+        }
+        List<T> items = new ArrayList<>(rows.subList(0, limit));
+        return new ReportPage<>(items, cursorOf.apply(items.get(limit - 1)).encode());
+    }
+
+    public <R> ReportPage<R> map(final Function<T, R> mapper) {
+        List<R> mapped = new ArrayList<>(items.size());
+        for (T item : items) {
+            mapped.add(mapper.apply(item));
+        }
+        return new ReportPage<>(mapped, nextCursor);
+    }
+}
@@ -5,4 +5,5 @@ public class ReportRequestDto {
     private String studentId;
     private String title;
     private String detail;
+    private Long version;
 } 
\ No newline at end of file
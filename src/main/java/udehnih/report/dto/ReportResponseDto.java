@@ -15,4 +15,5 @@ public class ReportResponseDto {
     private String rejectionMessageText;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private Long version;
 } 
\ No newline at end of file
@@ -0,0 +1,26 @@
+package udehnih.report.dto;
+import udehnih.report.enums.ReportStatus;
+import udehnih.report.enums.RejectionMessage;
+import java.time.LocalDateTime;
+
+/**
+ * Read-only projection of a report for list views. It leaves out the TEXT
+ * {@code detail} column and is not a managed entity, so Hibernate keeps no
+ * dirty-check snapshot for it.
+ */
+public interface ReportSummary {
+
+    Integer getReportId();
+
+    String getStudentId();
+
+    String getTitle();
+
+    ReportStatus getStatus();
+
+    RejectionMessage getRejectionMessage();
+
+    LocalDateTime getCreatedAt();
+
+    LocalDateTime getUpdatedAt();
+}
@@ -0,0 +1,11 @@
+package udehnih.report.dto;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * Response body of a report in the {@code view=summary} list. Same fields as
+ * {@link ReportResponseDto} except {@code detail}, which the summary
+ * projection never reads and which is therefore left out of the JSON.
+ */
+@JsonIgnoreProperties("detail")
+public class ReportSummaryDto extends ReportResponseDto {
+}
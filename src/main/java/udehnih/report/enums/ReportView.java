@@ -0,0 +1,17 @@
+package udehnih.report.enums;
+public enum ReportView {
+    SUMMARY,
+    FULL;
+
+    public static ReportView fromParam(final String value) {
+        if (value == null || value.isBlank()) {
+            return FULL;
+        }
+        for (ReportView view : values()) {
+            if (view.name().equalsIgnoreCase(value.trim())) {
+                return view;
+            }
+        }
+        return null;
+    }
+}
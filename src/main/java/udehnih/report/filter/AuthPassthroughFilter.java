@@ -0,0 +1,252 @@
+package udehnih.report.filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.apache.hc.core5.http.io.support.ClassicRequestBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import udehnih.report.client.AuthServiceHealthMonitor;
+import udehnih.report.util.AppConstants;
+
+/**
+ * Relays login, register and refresh calls to the external auth service as
+ * raw bytes. Nothing is parsed with Jackson, and only allowlisted headers
+ * cross in either direction. The request body is buffered up to
+ * {@code AUTH_PASSTHROUGH_MAX_BODY_BYTES} so it can be replayed. The response
+ * body is streamed through a fixed-size buffer.
+ * <p>
+ * Enabled with {@code AUTH_PASSTHROUGH_ENABLED}. When the auth service is not
+ * available, or cannot be reached, or answers with a 5xx before anything has
+ * been written, the request continues to {@code AuthProxyController} and is
+ * handled locally. Unlike the controller, a 4xx from the auth service is
+ * relayed as is.
+ */
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER + 1)
+
+@Slf4j
+public class AuthPassthroughFilter extends OncePerRequestFilter {
+    static final Set<String> PASSTHROUGH_PATHS = Set.of("/auth/login", "/auth/register", "/auth/refresh-token");
+    static final Set<String> REQUEST_HEADERS = Set.of(
+        "content-type", "accept", "accept-language", "authorization", "user-agent",
+        RequestLoggingFilter.REQUEST_ID_HEADER.toLowerCase(Locale.ROOT));
+    static final Set<String> RESPONSE_HEADERS = Set.of(
+        "authorization", "x-auth-token", "set-cookie", "cache-control", "www-authenticate", "retry-after");
+    static final int DEFAULT_MAX_BODY_BYTES = 16 * 1024;
+    @Autowired(required = false)
+    private Environment env;
+    @Autowired(required = false)
+
+    @Qualifier("authHttpClient")
+    private CloseableHttpClient authHttpClient;
+    @Autowired(required = false)
+    private AuthServiceHealthMonitor authServiceHealthMonitor;
+    private boolean enabled;
+    private int maxBodyBytes = DEFAULT_MAX_BODY_BYTES;
+
+    @Override
+    protected void initFilterBean() {
+        if (env == null) {
+            return;
+        }
+        enabled = env.getProperty("AUTH_PASSTHROUGH_ENABLED", Boolean.class, false);
+        maxBodyBytes = env.getProperty("AUTH_PASSTHROUGH_MAX_BODY_BYTES", Integer.class, DEFAULT_MAX_BODY_BYTES);
+        if (enabled) {
+            log.info("Auth passthrough enabled for {}, request bodies up to {} bytes", PASSTHROUGH_PATHS,
+                maxBodyBytes);
+        }
+    }
+    @Override
+
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || authHttpClient == null || authServiceHealthMonitor == null
+            || !"POST".equals(request.getMethod()) || !PASSTHROUGH_PATHS.contains(path(request));
+    }
+    @Override
+
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String baseUrl = authServiceHealthMonitor.getAuthServiceUrl();
+        if (baseUrl == null || !authServiceHealthMonitor.isAvailable()) {
+            chain.doFilter(request, response);
+            return;
+        }
+        byte[] body = request.getInputStream().readNBytes(maxBodyBytes + 1);
+        if (body.length > maxBodyBytes) {
+            response.setStatus(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+            response.setContentType("application/json");
+            response.getWriter().write("{\"error\": \"Request body too large\"}");
+            return;
+        }
+        if (relay(upstreamRequest(baseUrl, request, body), response)) {
+            return;
+        }
+        request.setAttribute(AppConstants.AUTH_LOCAL_ONLY_ATTRIBUTE, Boolean.TRUE);
+        chain.doFilter(new BufferedBodyRequest(request, body), response);
+    }
+
+    /**
+     * Sends {@code upstream} and streams the answer into {@code response}.
+     * Returns false, with nothing written, when the caller should fall back to
+     * local handling.
+     */
+    boolean relay(ClassicHttpRequest upstream, HttpServletResponse response) throws IOException {
+        AtomicBoolean started = new AtomicBoolean();
+        try {
+            return authHttpClient.execute(upstream, upstreamResponse -> {
+                int status = upstreamResponse.getCode();
+                if (status >= 500) {
+                    log.warn("Auth service answered {} with {}, falling back to local handling",
+                        upstream.getPath(), status);
+                    return false;
+                }
+                started.set(true);
+                response.setStatus(status);
+                for (Header header : upstreamResponse.getHeaders()) {
+                    if (RESPONSE_HEADERS.contains(header.getName().toLowerCase(Locale.ROOT))) {
+                        response.addHeader(header.getName(), header.getValue());
+                    }
+                }
+                HttpEntity entity = upstreamResponse.getEntity();
+                if (entity != null) {
+                    if (entity.getContentType() != null) {
+                        response.setContentType(entity.getContentType());
+                    }
+                    if (entity.getContentLength() >= 0) {
+                        response.setContentLengthLong(entity.getContentLength());
+                    }
+                    try (InputStream in = entity.getContent()) {
+                        OutputStream out = response.getOutputStream();
+                        in.transferTo(out);
+                    }
+                }
+                log.debug("Relayed {} from auth service with {}", upstream.getPath(), status);
+                return true;
+            });
+        } catch (IOException e) {
+            if (started.get()) {
+                throw e;
+            }
+            log.warn("Auth service unreachable for {}: {}, falling back to local handling",
+                upstream.getPath(), e.getMessage());
+            authServiceHealthMonitor.recordFailure(e);
+            return false;
+        }
+    }
+
+    static ClassicHttpRequest upstreamRequest(String baseUrl, HttpServletRequest request, byte[] body) {
+        String base = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        ClassicRequestBuilder builder = ClassicRequestBuilder.post(base + path(request));
+        Enumeration<String> names = request.getHeaderNames();
+        while (names != null && names.hasMoreElements()) {
+            String name = names.nextElement();
+            if (!REQUEST_HEADERS.contains(name.toLowerCase(Locale.ROOT)) || "content-type".equalsIgnoreCase(name)) {
+                continue;
+            }
+            Enumeration<String> values = request.getHeaders(name);
+            while (values.hasMoreElements()) {
+                builder.addHeader(name, values.nextElement());
+            }
+        }
+        String contentType = request.getContentType();
+        builder.setEntity(new ByteArrayEntity(body,
+            contentType == null ? ContentType.APPLICATION_JSON : ContentType.parseLenient(contentType)));
+        return builder.build();
+    }
+
+    private static String path(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        String contextPath = request.getContextPath();
+        if (path != null && contextPath != null && !contextPath.isEmpty() && path.startsWith(contextPath)) {
+            return path.substring(contextPath.length());
+        }
+        return path;
+    }
+
+    /** Replays the body that was read for the relay attempt to the controller. */
+    static final class BufferedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        BufferedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+        @Override
+
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+
+                public int read() {
+                    return in.read();
+                }
+                @Override
+
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+                @Override
+
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+                @Override
+
+                public boolean isReady() {
+                    return true;
+                }
+                @Override
+
+                public void setReadListener(ReadListener listener) {
+                    throw new UnsupportedOperationException("Buffered body is read synchronously");
+                }
+            };
+        }
+        @Override
+
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding);
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+        @Override
+
+        public int getContentLength() {
+            return body.length;
+        }
+        @Override
+
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+}
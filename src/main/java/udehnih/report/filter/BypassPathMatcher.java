@@ -0,0 +1,79 @@
+package udehnih.report.filter;
+import jakarta.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Paths that never carry a user's credentials, such as health checks, and
+ * therefore skip the authentication filters. Patterns
+ * are either exact paths or a prefix ending in {@code /**}; they are split
+ * into a hash set and a prefix list once, so matching a request allocates
+ * nothing.
+ */
+final class BypassPathMatcher {
+    static final String BYPASS_PATHS_PROPERTY = "FILTER_BYPASS_PATHS";
+    static final List<String> DEFAULT_PATTERNS = List.of(
+        "/actuator/health/**",
+        "/error",
+        "/favicon.ico");
+    private final Set<String> exactPaths;
+    private final String[] prefixes;
+
+    private BypassPathMatcher(Set<String> exactPaths, List<String> prefixes) {
+        this.exactPaths = exactPaths;
+        this.prefixes = prefixes.toArray(new String[0]);
+    }
+
+    /**
+     * Builds a matcher from the defaults plus the comma-separated
+     * {@code extraPatterns}, which may be null.
+     */
+    static BypassPathMatcher of(String extraPatterns) {
+        List<String> patterns = new ArrayList<>(DEFAULT_PATTERNS);
+        if (extraPatterns != null) {
+            for (String pattern : extraPatterns.split(",")) {
+                if (!pattern.isBlank()) {
+                    patterns.add(pattern.trim());
+                }
+            }
+        }
+        Set<String> exactPaths = new HashSet<>();
+        List<String> prefixes = new ArrayList<>();
+        for (String pattern : patterns) {
+            if (pattern.endsWith("/**")) {
+                String base = pattern.substring(0, pattern.length() - 3);
+                exactPaths.add(base);
+                prefixes.add(base + "/");
+            } else {
+                exactPaths.add(pattern);
+            }
+        }
+        return new BypassPathMatcher(exactPaths, prefixes);
+    }
+
+    boolean matches(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        if (path == null) {
+            return false;
+        }
+        String contextPath = request.getContextPath();
+        if (contextPath != null && !contextPath.isEmpty() && path.startsWith(contextPath)) {
+            path = path.substring(contextPath.length());
+        }
+        return matches(path);
+    }
+
+    boolean matches(String path) {
+        if (exactPaths.contains(path)) {
+            return true;
+        }
+        for (String prefix : prefixes) {
+            if (path.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
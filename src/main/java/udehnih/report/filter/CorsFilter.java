@@ -17,11 +17,37 @@ public class CorsFilter extends OncePerRequestFilter {
     
     @Autowired
     private Environment env;
+    // Read from the environment once; the values do not change while running
+    private String allowedHeaders;
+    private String exposedHeaders;
+    private String allowedMethods;
+    private String allowCredentials;
+    private String allowedOrigins;
+    private BypassPathMatcher bypassPaths;
+
+    @Override
+    protected void initFilterBean() {
+        allowedHeaders = getAllowedHeaders();
+        exposedHeaders = getExposedHeaders();
+        allowedMethods = getAllowedMethods();
+        allowCredentials = getAllowCredentials();
+        allowedOrigins = getAllowedOrigins();
+        bypassPaths = BypassPathMatcher.of(env.getProperty(BypassPathMatcher.BYPASS_PATHS_PROPERTY));
+    }
+
+    /**
+     * Health checks and scrapes are not browser requests, so they get no CORS
+     * headers. Preflights are always answered.
+     */
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return bypassPaths != null && !"OPTIONS".equals(request.getMethod()) && bypassPaths.matches(request);
+    }
     
     private String getAllowedHeaders() {
         String headers = env.getProperty("ALLOWED_HEADERS");
         if (headers == null || headers.isEmpty()) {
-            return "Authorization, Content-Type, Accept, X-Requested-With, Cache-Control, Access-Control-Allow-Origin, Access-Control-Allow-Headers, X-Auth-Token";
+            return "Authorization, Content-Type, Accept, X-Requested-With, Cache-Control, Access-Control-Allow-Origin, Access-Control-Allow-Headers, X-Auth-Token, X-Auth-Echo";
         }
         return headers;
     }
@@ -29,7 +55,7 @@ public class CorsFilter extends OncePerRequestFilter {
     private String getExposedHeaders() {
         String headers = env.getProperty("EXPOSED_HEADERS");
         if (headers == null || headers.isEmpty()) {
-            return "Authorization, X-Auth-Status, X-Auth-Username, X-Auth-Role, X-Auth-Name, X-User-Email, X-User-Role, X-Auth-Token, X-User-Id, Access-Control-Allow-Origin, Access-Control-Allow-Credentials";
+            return "Authorization, X-Auth-Status, X-Auth-Username, X-Auth-Role, X-Auth-Name, X-User-Email, X-User-Role, X-Auth-Token, X-User-Id, X-Next-Cursor, Access-Control-Allow-Origin, Access-Control-Allow-Credentials";
         }
         return headers;
     }
@@ -65,14 +91,14 @@ public class CorsFilter extends OncePerRequestFilter {
         
         if (origin != null) {
             response.setHeader("Access-Control-Allow-Origin", origin);
-            response.setHeader("Access-Control-Allow-Credentials", getAllowCredentials());
+            response.setHeader("Access-Control-Allow-Credentials", allowCredentials);
         } else {
-            response.setHeader("Access-Control-Allow-Origin", getAllowedOrigins());
+            response.setHeader("Access-Control-Allow-Origin", allowedOrigins);
         }
         
-        response.setHeader("Access-Control-Allow-Methods", getAllowedMethods());
-        response.setHeader("Access-Control-Allow-Headers", getAllowedHeaders());
-        response.setHeader("Access-Control-Expose-Headers", getExposedHeaders());
+        response.setHeader("Access-Control-Allow-Methods", allowedMethods);
+        response.setHeader("Access-Control-Allow-Headers", allowedHeaders);
+        response.setHeader("Access-Control-Expose-Headers", exposedHeaders);
         response.setHeader("Access-Control-Max-Age", "3600");
         response.setHeader("Vary", "Origin");
         
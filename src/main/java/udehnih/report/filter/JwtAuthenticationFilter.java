@@ -4,6 +4,7 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -14,20 +15,57 @@ import org.springframework.security.web.authentication.WebAuthenticationDetailsS
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 import udehnih.report.client.AuthServiceClient;
+import udehnih.report.client.RoleVersionRegistry;
+import udehnih.report.config.JwtConfig;
 import udehnih.report.util.AppConstants;
 import udehnih.report.util.JwtUtil;
+import udehnih.report.util.LogSanitizer;
+import udehnih.report.util.ResolvedPrincipal;
+import udehnih.report.util.VerifiedToken;
 import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
 import java.io.IOException;
 import java.util.Enumeration;
 import udehnih.report.model.UserInfo;
+import udehnih.report.service.TokenRevocationService;
 @Slf4j
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
+    // Longest Authorization header worth parsing; real tokens are well under 2KB
+    static final int MAX_AUTHORIZATION_HEADER_LENGTH = 8192;
     @Autowired
     private JwtUtil jwtUtil;
     @Autowired
     private AuthServiceClient authServiceClient;
+    @Autowired
+    private JwtConfig jwtConfig;
+    @Autowired
+    private RoleVersionRegistry roleVersionRegistry;
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+    @Autowired(required = false)
+    private Environment env;
+    private volatile BypassPathMatcher bypassPaths;
+    /**
+     * Preflights and infrastructure paths such as health checks and the
+     * Prometheus scrape never carry user credentials, so they skip the filter
+     * entirely.
+     */
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return "OPTIONS".equals(request.getMethod()) || getBypassPaths().matches(request);
+    }
+
+    private BypassPathMatcher getBypassPaths() {
+        BypassPathMatcher matcher = bypassPaths;
+        if (matcher == null) {
+            String extraPatterns = env != null ? env.getProperty(BypassPathMatcher.BYPASS_PATHS_PROPERTY) : null;
+            matcher = BypassPathMatcher.of(extraPatterns);
+            bypassPaths = matcher;
+        }
+        return matcher;
+    }
     @Override
 
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
@@ -42,60 +80,133 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         chain.doFilter(request, response);
     }
 
+    // Per-request detail is TRACE only; RequestLoggingFilter writes the sampled summary line
     private void logRequestInfo(HttpServletRequest request) {
-        final String authorizationHeader = request.getHeader(AppConstants.AUTHORIZATION_HEADER);
-        log.info("Request to: {} {}", request.getMethod(), request.getRequestURI());
-        log.info("Authorization header: {}", authorizationHeader);
+        if (!log.isTraceEnabled()) {
+            return;
+        }
+        log.trace("Request to: {} {}", request.getMethod(), request.getRequestURI());
         Enumeration<String> headerNames = request.getHeaderNames();
         while (headerNames.hasMoreElements()) {
             String headerName = headerNames.nextElement();
-            log.debug("Header: {} = {}", headerName, request.getHeader(headerName));
+            log.trace("Header: {} = {}", headerName,
+                LogSanitizer.headerValue(headerName, request.getHeader(headerName)));
         }
     }
 
     private void processJwtAuthentication(HttpServletRequest request, HttpServletResponse response) {
         final String authorizationHeader = request.getHeader(AppConstants.AUTHORIZATION_HEADER);
         if (authorizationHeader == null || !authorizationHeader.startsWith(AppConstants.BEARER_PREFIX)) {
-            log.info("No JWT token found in request for: {} {}", request.getMethod(), request.getRequestURI());
+            log.debug("No JWT token found in request for: {} {}", request.getMethod(), request.getRequestURI());
+            return;
+        }
+        if (!isWellFormed(authorizationHeader)) {
+            log.warn("Rejected malformed Authorization header for: {} {}", request.getMethod(), request.getRequestURI());
+            SecurityContextHolder.clearContext();
             return;
         }
         String jwt = authorizationHeader.substring(AppConstants.BEARER_PREFIX.length());
-        log.info("JWT token extracted: {}", jwt);
-        String username = jwtUtil.extractUsername(jwt);
-        String role = jwtUtil.extractRole(jwt);
-        log.info("Extracted username: {}, role: {}", username, role);
+        VerifiedToken verified = jwtUtil.verify(jwt);
+        if (verified == null) {
+            log.warn("Token validation failed - token may be expired or invalid");
+            SecurityContextHolder.clearContext();
+            return;
+        }
+        if (tokenRevocationService.isRevoked(verified)) {
+            log.warn("Token {} of {} has been revoked", verified.tokenId(), verified.subject());
+            SecurityContextHolder.clearContext();
+            return;
+        }
+        String username = verified.subject();
+        String role = verified.roleString();
+        log.debug("Extracted username: {}, role: {}", username, role);
         if (username == null) {
             log.warn("Username extracted from token is null");
             SecurityContextHolder.clearContext(); 
             return;
         }
-        authenticateUser(request, response, username, role, jwt);
+        authenticateUser(request, response, verified, jwt);
     }
 
-    private void authenticateUser(HttpServletRequest request, HttpServletResponse response, 
-                                 String username, String role, String jwt) {
-    // First, try to get user roles from the database
-    java.util.List<SimpleGrantedAuthority> authorities = new java.util.ArrayList<>();
-    try {
-        UserInfo userInfo = authServiceClient.getUserByEmail(username);
-        if (userInfo != null && userInfo.getRoles() != null && !userInfo.getRoles().isEmpty()) {
-            log.info("Retrieved roles from database for user {}: {}", username, userInfo.getRoles());
-            for (String dbRole : userInfo.getRoles()) {
-                String formattedRole = dbRole.trim();
-                if (!formattedRole.startsWith(AppConstants.ROLE_PREFIX)) {
-                    formattedRole = AppConstants.ROLE_PREFIX + formattedRole;
+    /**
+     * Cheap shape check run before any decoding: the header must fit in
+     * {@link #MAX_AUTHORIZATION_HEADER_LENGTH} and the token must have
+     * exactly three segments, a non-empty header and no whitespace.
+     */
+    static boolean isWellFormed(String authorizationHeader) {
+        if (authorizationHeader.length() > MAX_AUTHORIZATION_HEADER_LENGTH) {
+            return false;
+        }
+        int start = AppConstants.BEARER_PREFIX.length();
+        int dots = 0;
+        for (int i = start; i < authorizationHeader.length(); i++) {
+            char c = authorizationHeader.charAt(i);
+            if (c == '.') {
+                if (++dots > 2 || i == start) {
+                    return false;
                 }
-                authorities.add(new SimpleGrantedAuthority(formattedRole));
+            } else if (c <= ' ') {
+                return false;
+            }
+        }
+        return dots == 2;
+    }
+
+    /**
+     * Builds the user straight from the token claims when trusted claims are
+     * enabled and the token's role version is still current; returns null
+     * when the auth database has to be asked instead.
+     */
+    private UserInfo trustedUserInfo(VerifiedToken verified) {
+        if (!verified.hasIdentityClaims() || !jwtConfig.isTrustedClaimsEnabled()) {
+            return null;
+        }
+        if (!roleVersionRegistry.isCurrent(verified.userId(), verified.roleVersion())) {
+            log.debug("Role version {} of user {} is stale, reading roles from database",
+                verified.roleVersion(), verified.userId());
+            return null;
+        }
+        java.util.List<String> roles = new java.util.ArrayList<>();
+        for (String tokenRole : verified.roles()) {
+            roles.add(tokenRole.substring(AppConstants.ROLE_PREFIX.length()));
+        }
+        return UserInfo.builder()
+            .id(verified.userId())
+            .email(verified.subject())
+            .name(verified.name())
+            .roles(roles)
+            .build();
+    }
+
+    private void authenticateUser(HttpServletRequest request, HttpServletResponse response,
+                                 VerifiedToken verified, String jwt) {
+    String username = verified.subject();
+    String role = verified.roleString();
+    // Resolve the user once; the result is reused for authorities, headers and by the controllers
+    UserInfo userInfo = trustedUserInfo(verified);
+    if (userInfo == null) {
+        try {
+            userInfo = authServiceClient.getUserByEmail(username);
+        } catch (Exception e) {
+            log.warn("Error retrieving user roles from database: {}", e.getMessage());
+            // Fall back to JWT token roles if database lookup fails
+        }
+    }
+    java.util.List<SimpleGrantedAuthority> authorities = new java.util.ArrayList<>();
+    if (userInfo != null && userInfo.getRoles() != null && !userInfo.getRoles().isEmpty()) {
+        log.debug("Resolved roles for user {}: {}", username, userInfo.getRoles());
+        for (String dbRole : userInfo.getRoles()) {
+            String formattedRole = dbRole.trim();
+            if (!formattedRole.startsWith(AppConstants.ROLE_PREFIX)) {
+                formattedRole = AppConstants.ROLE_PREFIX + formattedRole;
             }
+            authorities.add(new SimpleGrantedAuthority(formattedRole));
         }
-    } catch (Exception e) {
-        log.warn("Error retrieving user roles from database: {}", e.getMessage());
-        // Fall back to JWT token roles if database lookup fails
     }
     
     // If no roles were found in the database, fall back to the JWT token roles
     if (authorities.isEmpty()) {
-        log.info("No roles found in database, using roles from JWT token: {}", role);
+        log.debug("No roles found in database, using roles from JWT token: {}", role);
         String[] roleArray = role.split(",");
         for (String singleRole : roleArray) {
             if (!singleRole.trim().startsWith(AppConstants.ROLE_PREFIX)) {
@@ -106,22 +217,18 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         
         // If still no roles, use STUDENT as default
         if (authorities.isEmpty()) {
-            log.info("No roles found in JWT token, using default STUDENT role");
+            log.debug("No roles found in JWT token, using default STUDENT role");
             authorities.add(new SimpleGrantedAuthority(AppConstants.ROLE_PREFIX + AppConstants.STUDENT_ROLE));
         }
     }
     
     UserDetails userDetails = new User(username, "", authorities);
-    if (!jwtUtil.validateToken(jwt, userDetails)) {
-        log.warn("Token validation failed - token may be expired or invalid");
-        SecurityContextHolder.clearContext(); 
-        return;
-    }
     
     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
         userDetails, null, userDetails.getAuthorities());
     authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
     SecurityContextHolder.getContext().setAuthentication(authToken);
+    ResolvedPrincipal.store(request, userInfo);
     
     // Build a role string for logging and headers
     StringBuilder roleBuilder = new StringBuilder();
@@ -133,22 +240,46 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     }
     String updatedRole = roleBuilder.toString();
     
-    log.info("Authentication successful. Roles set to: {}", updatedRole);
-    log.info("Authentication details: {}", authToken.getAuthorities());
+    log.debug("Authentication successful. Roles set to: {}", updatedRole);
+    MDC.put(RequestLoggingFilter.USER_MDC_KEY, username);
     
     setRequestAttributes(request, username, updatedRole);
-    setAuthenticationHeaders(response, username, updatedRole, jwt);
-    setAuthenticationCookies(response, jwt);
-    setCacheControlHeaders(response);
-    setUserInfoHeaders(response, username);
+    if (shouldEchoAuthentication(request)) {
+        setAuthenticationHeaders(response, username, updatedRole, jwt, userInfo);
+        setAuthenticationCookies(response, jwt);
+        setCacheControlHeaders(response);
+        setUserInfoHeaders(response, userInfo);
+    }
 }
 
+    /**
+     * Authentication headers and cookies only matter to clients that are
+     * establishing a session, so by default they are written on {@code /auth/*}
+     * responses and when the client asks with {@code X-Auth-Echo: true}.
+     * Other API responses go out without them.
+     */
+    private boolean shouldEchoAuthentication(HttpServletRequest request) {
+        if (jwtConfig.isAuthEchoAlways()) {
+            return true;
+        }
+        String path = request.getRequestURI();
+        String contextPath = request.getContextPath();
+        if (path != null && contextPath != null && !contextPath.isEmpty() && path.startsWith(contextPath)) {
+            path = path.substring(contextPath.length());
+        }
+        if (path != null && path.startsWith(AppConstants.AUTH_PATH_PREFIX)) {
+            return true;
+        }
+        return "true".equalsIgnoreCase(request.getHeader(AppConstants.AUTH_ECHO_HEADER));
+    }
+
     private void setRequestAttributes(HttpServletRequest request, String username, String role) {
         request.setAttribute("X-User-Email", username);
         request.setAttribute("X-User-Role", role.replace(AppConstants.ROLE_PREFIX, ""));
     }
 
-    private void setAuthenticationHeaders(HttpServletResponse response, String username, String role, String jwt) {
+    private void setAuthenticationHeaders(HttpServletResponse response, String username, String role, String jwt,
+                                          UserInfo userInfo) {
         response.setHeader("X-Auth-Status", "authenticated");
         response.setHeader("X-Auth-Username", sanitizeHeaderValue(username));
         response.setHeader("X-Auth-Role", sanitizeHeaderValue(role.replace(AppConstants.ROLE_PREFIX, "")));
@@ -156,17 +287,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         response.setHeader("X-Auth-Token", jwt);
         response.setHeader("Access-Control-Expose-Headers", 
             "Authorization, X-Auth-Status, X-Auth-Username, X-Auth-Role, X-Auth-Name, X-Auth-Token, X-User-Id, X-User-Roles");
-        addUserIdToHeader(response, username);
+        addUserIdToHeader(response, userInfo);
     }
 
-    private void addUserIdToHeader(HttpServletResponse response, String username) {
-        try {
-            UserInfo userInfo = authServiceClient.getUserByEmail(username);
-            if (userInfo != null && userInfo.getId() != null) {
-                response.setHeader("X-User-Id", sanitizeHeaderValue(userInfo.getId().toString()));
-            }
-        } catch (Exception e) {
-            log.warn("Could not retrieve user ID: {}", e.getMessage());
+    private void addUserIdToHeader(HttpServletResponse response, UserInfo userInfo) {
+        if (userInfo != null && userInfo.getId() != null) {
+            response.setHeader("X-User-Id", sanitizeHeaderValue(userInfo.getId().toString()));
         }
     }
 
@@ -189,14 +315,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         response.setHeader("Expires", "0");
     }
 
-    private void setUserInfoHeaders(HttpServletResponse response, String username) {
-        try {
-            UserInfo userInfo = authServiceClient.getUserByEmail(username);
-            if (userInfo != null && userInfo.getName() != null) {
-                response.setHeader("X-Auth-Name", sanitizeHeaderValue(userInfo.getName()));
-            }
-        } catch (Exception e) {
-            log.warn("Could not retrieve user name: {}", e.getMessage());
+    private void setUserInfoHeaders(HttpServletResponse response, UserInfo userInfo) {
+        if (userInfo != null && userInfo.getName() != null) {
+            response.setHeader("X-Auth-Name", sanitizeHeaderValue(userInfo.getName()));
         }
     }
 
@@ -223,9 +344,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private void logAuthenticationState() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         if (auth != null) {
-            log.info("Proceeding with filter chain with authentication: {}", auth.getAuthorities());
+            log.debug("Proceeding with filter chain with authentication: {}", auth.getAuthorities());
         } else {
-            log.warn("Proceeding with filter chain with no authentication");
+            log.debug("Proceeding with filter chain with no authentication");
         }
     }
 } 
\ No newline at end of file
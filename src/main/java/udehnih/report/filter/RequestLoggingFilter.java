@@ -0,0 +1,195 @@
+package udehnih.report.filter;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Gives every request a correlation id, kept in the MDC as
+ * {@value #REQUEST_ID_MDC_KEY} and returned in {@value #REQUEST_ID_HEADER},
+ * and writes one summary line per request instead of per-header logging.
+ * <p>
+ * Summary lines are sampled. {@code REQUEST_LOG_SAMPLE_RATE} sets the
+ * default rate. {@code REQUEST_LOG_SAMPLE_RATES} sets per-endpoint rates as
+ * {@code /path/prefix=rate,...}, and the longest matching prefix wins.
+ * Server errors and requests slower than {@code REQUEST_LOG_SLOW_MS} are
+ * always logged. Requests that go async are logged when they complete.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+
+@Slf4j
+public class RequestLoggingFilter extends OncePerRequestFilter {
+    public static final String REQUEST_ID_HEADER = "X-Request-Id";
+    public static final String REQUEST_ID_MDC_KEY = "requestId";
+    public static final String USER_MDC_KEY = "user";
+    static final double DEFAULT_SAMPLE_RATE = 0.1;
+    static final String DEFAULT_SAMPLE_RATES = "/actuator/=0,/auth/=1";
+    static final long DEFAULT_SLOW_MS = 1000;
+    private static final int MAX_REQUEST_ID_LENGTH = 64;
+    @Autowired
+    private Environment env;
+    private double defaultRate = DEFAULT_SAMPLE_RATE;
+    private List<Rule> rules = parseRules(DEFAULT_SAMPLE_RATES);
+    private long slowNanos = DEFAULT_SLOW_MS * 1_000_000L;
+
+    record Rule(String prefix, double rate) {
+    }
+
+    @Override
+    protected void initFilterBean() {
+        if (env == null) {
+            return;
+        }
+        defaultRate = env.getProperty("REQUEST_LOG_SAMPLE_RATE", Double.class, DEFAULT_SAMPLE_RATE);
+        rules = parseRules(env.getProperty("REQUEST_LOG_SAMPLE_RATES", DEFAULT_SAMPLE_RATES));
+        slowNanos = env.getProperty("REQUEST_LOG_SLOW_MS", Long.class, DEFAULT_SLOW_MS) * 1_000_000L;
+    }
+    @Override
+
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String requestId = requestId(request.getHeader(REQUEST_ID_HEADER));
+        MDC.put(REQUEST_ID_MDC_KEY, requestId);
+        response.setHeader(REQUEST_ID_HEADER, requestId);
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                // The handler returned a future; the status and time are only known once it completes
+                request.getAsyncContext().addListener(new SummaryListener(request, response, requestId, start));
+            } else {
+                logSummary(request, response.getStatus(), System.nanoTime() - start);
+            }
+            MDC.remove(USER_MDC_KEY);
+            MDC.remove(REQUEST_ID_MDC_KEY);
+        }
+    }
+
+    void logSummary(HttpServletRequest request, int status, long elapsed) {
+        if (status >= 500 || elapsed >= slowNanos) {
+            log.warn("{} {} -> {} in {} ms", request.getMethod(), request.getRequestURI(), status,
+                elapsed / 1_000_000);
+        } else if (log.isInfoEnabled() && sampled(request.getRequestURI())) {
+            log.info("{} {} -> {} in {} ms", request.getMethod(), request.getRequestURI(), status,
+                elapsed / 1_000_000);
+        }
+    }
+
+    /**
+     * Writes the summary line of an async request when it completes, with the
+     * request id and start time of its first dispatch. The container calls
+     * {@code onComplete} after errors and timeouts as well, once the error
+     * response is in place, so that is the only place it logs.
+     */
+    private final class SummaryListener implements AsyncListener {
+        private final HttpServletRequest request;
+        private final HttpServletResponse response;
+        private final String requestId;
+        private final long start;
+
+        SummaryListener(HttpServletRequest request, HttpServletResponse response, String requestId, long start) {
+            this.request = request;
+            this.response = response;
+            this.requestId = requestId;
+            this.start = start;
+        }
+        @Override
+
+        public void onComplete(AsyncEvent event) {
+            long elapsed = System.nanoTime() - start;
+            MDC.put(REQUEST_ID_MDC_KEY, requestId);
+            try {
+                logSummary(request, response.getStatus(), elapsed);
+            } finally {
+                MDC.remove(REQUEST_ID_MDC_KEY);
+            }
+        }
+        @Override
+
+        public void onTimeout(AsyncEvent event) {
+        }
+        @Override
+
+        public void onError(AsyncEvent event) {
+        }
+        @Override
+
+        public void onStartAsync(AsyncEvent event) {
+            // A handler that restarts async processing drops its listeners, so register again
+            event.getAsyncContext().addListener(this);
+        }
+    }
+
+    boolean sampled(String path) {
+        double rate = rateFor(path);
+        return rate >= 1.0 || (rate > 0.0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    double rateFor(String path) {
+        if (path != null) {
+            for (Rule rule : rules) {
+                if (path.startsWith(rule.prefix())) {
+                    return rule.rate();
+                }
+            }
+        }
+        return defaultRate;
+    }
+
+    /**
+     * Reuses the caller's id when it is short and plain enough to log safely,
+     * otherwise generates a new one.
+     */
+    static String requestId(String incoming) {
+        if (incoming != null && !incoming.isEmpty() && incoming.length() <= MAX_REQUEST_ID_LENGTH) {
+            boolean safe = true;
+            for (int i = 0; i < incoming.length() && safe; i++) {
+                char c = incoming.charAt(i);
+                safe = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.';
+            }
+            if (safe) {
+                return incoming;
+            }
+        }
+        return Long.toHexString(ThreadLocalRandom.current().nextLong() | Long.MIN_VALUE);
+    }
+
+    // Longest prefix first so the most specific rule wins
+    static List<Rule> parseRules(String spec) {
+        List<Rule> parsed = new ArrayList<>();
+        if (spec != null) {
+            for (String entry : spec.split(",")) {
+                int separator = entry.lastIndexOf('=');
+                if (separator <= 0) {
+                    continue;
+                }
+                try {
+                    double rate = Double.parseDouble(entry.substring(separator + 1).trim());
+                    parsed.add(new Rule(entry.substring(0, separator).trim(), Math.max(0.0, Math.min(1.0, rate))));
+                } catch (NumberFormatException e) {
+                    log.warn("Ignoring request log sample rate '{}'", entry.trim());
+                }
+            }
+        }
+        parsed.sort(Comparator.comparingInt((Rule rule) -> rule.prefix().length()).reversed());
+        return List.copyOf(parsed);
+    }
+}
@@ -4,13 +4,16 @@ import lombok.Data;
 import lombok.*;
 import udehnih.report.enums.ReportStatus;
 import udehnih.report.enums.RejectionMessage;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 import static jakarta.persistence.GenerationType.IDENTITY;
 import static jakarta.persistence.EnumType.STRING;
 @Entity
 
-@Table(name = "report")
+@Table(name = "report", indexes = {
+    @Index(name = "idx_report_created_at_report_id", columnList = "created_at, report_id")
+})
 @Data
 
 @NoArgsConstructor
@@ -46,6 +49,11 @@ public class Report {
     private LocalDateTime createdAt;
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
+    @Version
+
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
 
     public boolean isOpen() {
         return ReportStatus.OPEN.equals(this.status);
@@ -0,0 +1,53 @@
+package udehnih.report.model;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import static jakarta.persistence.GenerationType.IDENTITY;
+
+/**
+ * One entry of the token deny list. An entry either names a single token by
+ * its {@code jti}, or revokes every token of {@code subject} issued at or
+ * before {@code issuedBefore}. Entries are kept until {@code expiresAt}, after
+ * which no token they could match is still valid or refreshable.
+ */
+@Entity
+
+@Table(name = "revoked_token", indexes = {
+    @Index(name = "idx_revoked_token_jti", columnList = "jti"),
+    @Index(name = "idx_revoked_token_subject", columnList = "subject"),
+    @Index(name = "idx_revoked_token_expires_at", columnList = "expires_at")
+})
+@Data
+
+@NoArgsConstructor
+@AllArgsConstructor
+
+@Builder
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+
+@ToString
+public class RevokedToken {
+    @Id
+
+    @GeneratedValue(strategy = IDENTITY)
+    @EqualsAndHashCode.Include
+    private Long id;
+    @Column(length = 64)
+    private String jti;
+    @Column(nullable = false)
+    private String subject;
+    @Column(name = "issued_before")
+    private Instant issuedBefore;
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+    @CreationTimestamp
+
+    @Column(name = "revoked_at", updatable = false)
+    private LocalDateTime revokedAt;
+
+    public boolean isCutoff() {
+        return jti == null && issuedBefore != null;
+    }
+}
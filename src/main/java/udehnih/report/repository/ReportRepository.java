@@ -1,33 +1,88 @@
 package udehnih.report.repository;
 import udehnih.report.model.Report;
+import udehnih.report.dto.ReportSummary;
 import udehnih.report.enums.ReportStatus;
+import udehnih.report.enums.RejectionMessage;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDateTime;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
 @SuppressWarnings("PMD.ImplicitFunctionalInterface")
 
 @Repository
 public interface ReportRepository extends JpaRepository<Report, Integer> {
-    @Async
-
     @Query("SELECT r FROM Report r WHERE r.studentId = ?1")
 
-    CompletableFuture<List<Report>> findByStudentId(String studentId);
+    List<Report> findByStudentId(String studentId);
 
     List<Report> findByStatus(ReportStatus status);
-    @Async
 
-    @Query("SELECT r FROM Report r")
+    Page<Report> findAll(Pageable pageable);
+
+    @Query("SELECT r FROM Report r WHERE (:status IS NULL OR r.status = :status) "
+        + "AND (:from IS NULL OR r.createdAt >= :from) AND (:to IS NULL OR r.createdAt < :to) "
+        + "ORDER BY r.createdAt DESC, r.reportId DESC")
 
-    CompletableFuture<List<Report>> findAllAsync();
+    List<Report> findFirstPage(@Param("status") ReportStatus status, @Param("from") LocalDateTime from,
+        @Param("to") LocalDateTime to, Pageable pageable);
 
-    Page<Report> findAll(Pageable pageable);
-    default boolean existsByStudentId(String studentId) {
-        return !findByStudentId(studentId).join().isEmpty();
-    }
+    @Query("SELECT r FROM Report r WHERE (:status IS NULL OR r.status = :status) "
+        + "AND (:from IS NULL OR r.createdAt >= :from) AND (:to IS NULL OR r.createdAt < :to) "
+        + "AND (r.createdAt < :cursorCreatedAt OR (r.createdAt = :cursorCreatedAt AND r.reportId < :cursorId)) "
+        + "ORDER BY r.createdAt DESC, r.reportId DESC")
+
+    List<Report> findPageAfter(@Param("status") ReportStatus status, @Param("from") LocalDateTime from,
+        @Param("to") LocalDateTime to, @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+        @Param("cursorId") Integer cursorId, Pageable pageable);
+
+    @Query("SELECT r.reportId AS reportId, r.studentId AS studentId, r.title AS title, r.status AS status, "
+        + "r.rejectionMessage AS rejectionMessage, r.createdAt AS createdAt, r.updatedAt AS updatedAt "
+        + "FROM Report r WHERE r.studentId = :studentId")
+
+    List<ReportSummary> findSummariesByStudentId(@Param("studentId") String studentId);
+
+    @Query("SELECT r.reportId AS reportId, r.studentId AS studentId, r.title AS title, r.status AS status, "
+        + "r.rejectionMessage AS rejectionMessage, r.createdAt AS createdAt, r.updatedAt AS updatedAt "
+        + "FROM Report r WHERE (:status IS NULL OR r.status = :status) "
+        + "AND (:from IS NULL OR r.createdAt >= :from) AND (:to IS NULL OR r.createdAt < :to) "
+        + "ORDER BY r.createdAt DESC, r.reportId DESC")
+
+    List<ReportSummary> findSummaryFirstPage(@Param("status") ReportStatus status, @Param("from") LocalDateTime from,
+        @Param("to") LocalDateTime to, Pageable pageable);
+
+    @Query("SELECT r.reportId AS reportId, r.studentId AS studentId, r.title AS title, r.status AS status, "
+        + "r.rejectionMessage AS rejectionMessage, r.createdAt AS createdAt, r.updatedAt AS updatedAt "
+        + "FROM Report r WHERE (:status IS NULL OR r.status = :status) "
+        + "AND (:from IS NULL OR r.createdAt >= :from) AND (:to IS NULL OR r.createdAt < :to) "
+        + "AND (r.createdAt < :cursorCreatedAt OR (r.createdAt = :cursorCreatedAt AND r.reportId < :cursorId)) "
+        + "ORDER BY r.createdAt DESC, r.reportId DESC")
+
+    List<ReportSummary> findSummaryPageAfter(@Param("status") ReportStatus status, @Param("from") LocalDateTime from,
+        @Param("to") LocalDateTime to, @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+        @Param("cursorId") Integer cursorId, Pageable pageable);
+
+    boolean existsByStudentId(String studentId);
+
+    /**
+     * Moves a report out of {@code expected} in one conditional UPDATE and
+     * bumps its version. Returns 0 when the report is missing or was no
+     * longer in the expected status, e.g. because another staff member
+     * processed it first.
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+
+    @Query("UPDATE Report r SET r.status = :target, r.rejectionMessage = :rejectionMessage, "
+        + "r.updatedAt = :updatedAt, r.version = r.version + 1 "
+        + "WHERE r.reportId = :reportId AND r.status = :expected")
+
+    int transitionStatus(@Param("reportId") Integer reportId, @Param("expected") ReportStatus expected,
+        @Param("target") ReportStatus target, @Param("rejectionMessage") RejectionMessage rejectionMessage,
+        @Param("updatedAt") LocalDateTime updatedAt);
 }
@@ -0,0 +1,30 @@
+package udehnih.report.repository;
+import udehnih.report.model.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+@SuppressWarnings("PMD.ImplicitFunctionalInterface")
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, Long> {
+    List<RevokedToken> findByIdGreaterThanOrderByIdAsc(Long id);
+
+    List<RevokedToken> findByIdGreaterThanOrRevokedAtGreaterThanEqualOrderByIdAsc(Long id, LocalDateTime revokedAt);
+
+    boolean existsByJti(String jti);
+
+    @Query("SELECT MAX(r.issuedBefore) FROM RevokedToken r WHERE r.subject = :subject AND r.jti IS NULL")
+
+    Instant findLatestCutoff(@Param("subject") String subject);
+    @Transactional
+    @Modifying
+
+    @Query("DELETE FROM RevokedToken r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") Instant now);
+}
@@ -13,6 +13,7 @@ import lombok.extern.slf4j.Slf4j;
 import udehnih.report.client.AuthServiceClient;
 import udehnih.report.model.UserInfo;
 import udehnih.report.util.AppConstants;
+import udehnih.report.util.ResolvedPrincipal;
 @Service
 
 @Slf4j
@@ -25,7 +26,7 @@ public class CustomUserDetailsService implements UserDetailsService {
         log.info("Attempting to load user by email: {}", email);
         try {
             String trimmedEmail = email.trim();
-            UserInfo userInfo = authServiceClient.getUserByEmail(trimmedEmail);
+            UserInfo userInfo = resolveUser(trimmedEmail);
             if (userInfo == null) {
                 log.error("No user found with email: {}", trimmedEmail);
                 throw new UsernameNotFoundException("User not found with email: " + trimmedEmail);
@@ -59,7 +60,7 @@ public class CustomUserDetailsService implements UserDetailsService {
 
     public Optional<String> getUserIdByEmail(String email) {
         try {
-            UserInfo userInfo = authServiceClient.getUserByEmail(email);
+            UserInfo userInfo = resolveUser(email);
             if (userInfo != null && userInfo.getId() != null) {
                 return Optional.of(userInfo.getId().toString());
             }
@@ -70,10 +71,14 @@ public class CustomUserDetailsService implements UserDetailsService {
     }
     public UserInfo getUserInfoByEmail(String email) {
         try {
-            return authServiceClient.getUserByEmail(email);
+            return resolveUser(email);
         } catch (Exception e) {
             log.error("Error getting user info for {}: {}", email, e.getMessage());
             return null;
         }
     }
+    private UserInfo resolveUser(String email) {
+        UserInfo resolved = ResolvedPrincipal.current(email);
+        return resolved != null ? resolved : authServiceClient.getUserByEmail(email);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,156 @@
+package udehnih.report.service;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import udehnih.report.exception.PasswordHashingRejectedException;
+
+/**
+ * Runs password hashes and checks on the bounded {@code passwordHashExecutor}
+ * pool instead of the request thread. When the pool's queue is full, or a
+ * hash has waited longer than {@code PASSWORD_HASH_TIMEOUT_MS} to start, a
+ * {@link PasswordHashingRejectedException} is thrown. It carries an estimate
+ * of when the backlog will have drained, for a {@code Retry-After} header.
+ * A hash that timed out in the queue is skipped when its turn comes, so
+ * shedding it frees the thread. A hash that has started is always waited for.
+ */
+@Service
+
+@Slf4j
+public class PasswordHashingService {
+    static final String HASH_METRIC = "auth.password.hash";
+    static final String REJECTED_METRIC = "auth.password.hash.rejected";
+    private static final long DEFAULT_TIMEOUT_MS = 5000;
+    private static final long INITIAL_HASH_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long MAX_RETRY_AFTER_SECONDS = 30;
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolTaskExecutor executor;
+    private final long timeoutMillis;
+    private final Timer matchesTimer;
+    private final Timer encodeTimer;
+    private final Counter queueFullCounter;
+    private final Counter timeoutCounter;
+    // Moving average of recent hash times, used to estimate Retry-After
+    private volatile long recentHashNanos = INITIAL_HASH_NANOS;
+    @Autowired
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder,
+                                  @Qualifier("passwordHashExecutor") ThreadPoolTaskExecutor executor,
+                                  Environment env, ObjectProvider<MeterRegistry> meterRegistry) {
+        this(passwordEncoder, executor,
+            Duration.ofMillis(env.getProperty("PASSWORD_HASH_TIMEOUT_MS", Long.class, DEFAULT_TIMEOUT_MS)),
+            meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+    }
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder, ThreadPoolTaskExecutor executor,
+                                  Duration timeout, MeterRegistry registry) {
+        this.passwordEncoder = passwordEncoder;
+        this.executor = executor;
+        this.timeoutMillis = timeout.toMillis();
+        this.matchesTimer = Timer.builder(HASH_METRIC).tag("operation", "matches")
+            .description("Time spent hashing passwords, excluding queueing").register(registry);
+        this.encodeTimer = Timer.builder(HASH_METRIC).tag("operation", "encode")
+            .description("Time spent hashing passwords, excluding queueing").register(registry);
+        this.queueFullCounter = Counter.builder(REJECTED_METRIC).tag("reason", "queue_full")
+            .description("Password hashes turned away because the pool was saturated").register(registry);
+        this.timeoutCounter = Counter.builder(REJECTED_METRIC).tag("reason", "timeout")
+            .description("Password hashes turned away after waiting in the queue past the timeout")
+            .register(registry);
+    }
+
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(matchesTimer, () -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    public String encode(CharSequence rawPassword) {
+        return run(encodeTimer, () -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * True when {@code encodedPassword} uses another format or cost than new
+     * hashes do. Only inspects the hash, so it runs on the calling thread.
+     */
+    public boolean needsRehash(String encodedPassword) {
+        return encodedPassword != null && passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T run(Timer timer, Supplier<T> hash) {
+        // Claimed by whichever comes first: the pool thread starting the hash or the caller giving up
+        AtomicBoolean claimed = new AtomicBoolean();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                if (!claimed.compareAndSet(false, true)) {
+                    // The caller has already been turned away; don't spend a thread on the hash
+                    return null;
+                }
+                long start = System.nanoTime();
+                try {
+                    return hash.get();
+                } finally {
+                    long elapsed = System.nanoTime() - start;
+                    timer.record(elapsed, TimeUnit.NANOSECONDS);
+                    recentHashNanos = (recentHashNanos * 7 + elapsed) / 8;
+                }
+            });
+        } catch (TaskRejectedException e) {
+            queueFullCounter.increment();
+            long retryAfter = retryAfterSeconds();
+            log.warn("Password hashing pool is full, asking the client to retry in {}s", retryAfter);
+            throw new PasswordHashingRejectedException("Password hashing pool is full", retryAfter, e);
+        }
+        try {
+            try {
+                return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (claimed.compareAndSet(false, true)) {
+                    future.cancel(false);
+                    timeoutCounter.increment();
+                    long retryAfter = retryAfterSeconds();
+                    log.warn("Password hash waited over {} ms, asking the client to retry in {}s", timeoutMillis,
+                        retryAfter);
+                    throw new PasswordHashingRejectedException("Password hashing timed out", retryAfter, e);
+                }
+                // The hash has started and cannot be stopped, so its result is worth waiting for
+                return future.get();
+            }
+        } catch (InterruptedException e) {
+            if (claimed.compareAndSet(false, true)) {
+                future.cancel(false);
+            }
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingRejectedException("Interrupted while waiting for password hash",
+                retryAfterSeconds(), e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    /** Time for the current backlog to drain at the recent hash rate, between 1 and 30 seconds. */
+    long retryAfterSeconds() {
+        long pending = (long) executor.getQueueSize() + executor.getActiveCount();
+        long threads = Math.max(1, executor.getMaxPoolSize());
+        long nanos = pending * recentHashNanos / threads;
+        long seconds = (nanos + 999_999_999L) / 1_000_000_000L;
+        return Math.max(1, Math.min(MAX_RETRY_AFTER_SECONDS, seconds));
+    }
+}
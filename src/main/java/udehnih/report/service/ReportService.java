@@ -1,6 +1,11 @@
 package udehnih.report.service;
 import udehnih.report.model.Report;
 import udehnih.report.dto.RejectionRequestDto;
+import udehnih.report.dto.ReportCursor;
+import udehnih.report.dto.ReportPage;
+import udehnih.report.dto.ReportSummary;
+import udehnih.report.enums.ReportStatus;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 public interface ReportService {
@@ -9,6 +14,8 @@ public interface ReportService {
 
     CompletableFuture<List<Report>> getUserReports(String studentId);
 
+    CompletableFuture<List<ReportSummary>> getUserReportSummaries(String studentId);
+
     Report updateReport(Integer reportId, Report updatedReport);
 
  
@@ -16,6 +23,12 @@ public interface ReportService {
 
     CompletableFuture<List<Report>> getAllReports();
 
+    CompletableFuture<ReportPage<Report>> getReportsPage(ReportStatus status, LocalDateTime from, LocalDateTime to,
+                                                         ReportCursor after, int limit);
+
+    CompletableFuture<ReportPage<ReportSummary>> getReportSummariesPage(ReportStatus status, LocalDateTime from,
+                                                                        LocalDateTime to, ReportCursor after, int limit);
+
     Report processReport(Integer reportId, RejectionRequestDto rejectionRequest);
 
     CompletableFuture<Report> getReportById(Integer reportId);
@@ -3,23 +3,38 @@ import udehnih.report.model.Report;
 import udehnih.report.repository.ReportRepository;
 import udehnih.report.factory.ReportFactory;
 import udehnih.report.enums.ReportStatus;
+import udehnih.report.enums.RejectionMessage;
 import udehnih.report.dto.RejectionRequestDto;
+import udehnih.report.dto.ReportCursor;
+import udehnih.report.dto.ReportPage;
+import udehnih.report.dto.ReportSummary;
 import udehnih.report.exception.ReportNotFoundException;
 import udehnih.report.exception.InvalidReportStateException;
 import udehnih.report.util.AppConstants;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import jakarta.transaction.Transactional;
-import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.scheduling.annotation.Async;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
 @Service
 public class ReportServiceImpl implements ReportService {
     private final ReportRepository reportRepository;
+    private final Executor reportTaskExecutor;
+    // Lookups still running, keyed by studentId, so identical concurrent calls share one query
+    private final ConcurrentMap<String, CompletableFuture<List<Report>>> userReportsInFlight = new ConcurrentHashMap<>();
 
-    public ReportServiceImpl(ReportRepository reportRepository) {
+    public ReportServiceImpl(ReportRepository reportRepository,
+                             @Qualifier("reportTaskExecutor") Executor reportTaskExecutor) {
         this.reportRepository = reportRepository;
+        this.reportTaskExecutor = reportTaskExecutor;
     }
     @Override
 
@@ -29,16 +44,44 @@ public class ReportServiceImpl implements ReportService {
     }
     @Override
 
+    public CompletableFuture<List<Report>> getUserReports(final String studentId) {
+        final CompletableFuture<List<Report>> created = new CompletableFuture<>();
+        final CompletableFuture<List<Report>> inFlight = userReportsInFlight.putIfAbsent(studentId, created);
+        if (inFlight != null) {
+            return inFlight.copy();
+        }
+        try {
+            reportTaskExecutor.execute(() -> {
+                try {
+                    final List<Report> reports = reportRepository.findByStudentId(studentId);
+                    userReportsInFlight.remove(studentId, created);
+                    created.complete(reports);
+                } catch (RuntimeException e) {
+                    userReportsInFlight.remove(studentId, created);
+                    created.completeExceptionally(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            userReportsInFlight.remove(studentId, created);
+            created.completeExceptionally(e);
+        }
+        return created.copy();
+    }
+    @Override
+
     @Async("reportTaskExecutor")
 
-    public CompletableFuture<List<Report>> getUserReports(final String studentId) {
-        return reportRepository.findByStudentId(studentId);
+    public CompletableFuture<List<ReportSummary>> getUserReportSummaries(final String studentId) {
+        return CompletableFuture.completedFuture(reportRepository.findSummariesByStudentId(studentId));
     }
     @Override
 
     public Report updateReport(final Integer reportId, final Report updatedReport) {
         final Report report = reportRepository.findById(reportId)
                 .orElseThrow(() -> new ReportNotFoundException(AppConstants.REPORT_NOT_FOUND_MSG + reportId));
+        if (updatedReport.getVersion() != null && !updatedReport.getVersion().equals(report.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(Report.class, reportId);
+        }
         report.setTitle(updatedReport.getTitle());
         report.setDetail(updatedReport.getDetail());
         report.setUpdatedAt(LocalDateTime.now());
@@ -54,41 +97,65 @@ public class ReportServiceImpl implements ReportService {
     @Async("reportTaskExecutor")
 
     public CompletableFuture<List<Report>> getAllReports() {
-        return reportRepository.findAllAsync();
+        return CompletableFuture.completedFuture(reportRepository.findAll());
+    }
+    @Override
+
+    @Async("reportTaskExecutor")
+
+    public CompletableFuture<ReportPage<Report>> getReportsPage(final ReportStatus status, final LocalDateTime from,
+                                                                final LocalDateTime to, final ReportCursor after,
+                                                                final int limit) {
+        // One extra row tells us whether another page exists without a COUNT query
+        final Pageable window = PageRequest.of(0, limit + 1);
+        final List<Report> rows = after == null
+            ? reportRepository.findFirstPage(status, from, to, window)
+            : reportRepository.findPageAfter(status, from, to, after.getCreatedAt(), after.getReportId(), window);
+        return CompletableFuture.completedFuture(
+            ReportPage.of(rows, limit, r -> new ReportCursor(r.getCreatedAt(), r.getReportId())));
+    }
+    @Override
+
+    @Async("reportTaskExecutor")
+
+    public CompletableFuture<ReportPage<ReportSummary>> getReportSummariesPage(final ReportStatus status,
+                                                                              final LocalDateTime from,
+                                                                              final LocalDateTime to,
+                                                                              final ReportCursor after,
+                                                                              final int limit) {
+        final Pageable window = PageRequest.of(0, limit + 1);
+        final List<ReportSummary> rows = after == null
+            ? reportRepository.findSummaryFirstPage(status, from, to, window)
+            : reportRepository.findSummaryPageAfter(status, from, to, after.getCreatedAt(), after.getReportId(), window);
+        return CompletableFuture.completedFuture(
+            ReportPage.of(rows, limit, r -> new ReportCursor(r.getCreatedAt(), r.getReportId())));
     }
     @Override
 
     @Async("reportTaskExecutor")
 
     public CompletableFuture<Report> getReportById(final Integer reportId) {
-        return CompletableFuture.supplyAsync(() -> 
-            reportRepository.findById(reportId)
-                .orElseThrow(() -> new ReportNotFoundException("Report not found with id: " + reportId))
-        );
+        return reportRepository.findById(reportId)
+            .map(CompletableFuture::completedFuture)
+            .orElseGet(() -> CompletableFuture.failedFuture(
+                new ReportNotFoundException("Report not found with id: " + reportId)));
     }
     @Override
 
     @Transactional
-    @Modifying
 
     public Report processReport(final Integer reportId, final RejectionRequestDto rejectionRequest) {
-        final Report report = reportRepository.findById(reportId)
-                .orElseThrow(() -> new ReportNotFoundException(AppConstants.REPORT_NOT_FOUND_MSG + reportId));
-        if (!report.isOpen()) {
+        final RejectionMessage rejectionMessage = rejectionRequest != null ? rejectionRequest.getRejectionMessage() : null;
+        final ReportStatus target = rejectionMessage != null ? ReportStatus.REJECTED : ReportStatus.RESOLVED;
+        final int updated = reportRepository.transitionStatus(
+            reportId, ReportStatus.OPEN, target, rejectionMessage, LocalDateTime.now());
+        if (updated == 0) {
+            if (!reportRepository.existsById(reportId)) {
+                throw new ReportNotFoundException(AppConstants.REPORT_NOT_FOUND_MSG + reportId);
+            }
             throw new InvalidReportStateException("Report cannot be processed because it is not in OPEN status");
         }
-        final LocalDateTime now = LocalDateTime.now();
-        if (rejectionRequest != null && rejectionRequest.getRejectionMessage() != null) {
-            report.setRejectionMessage(rejectionRequest.getRejectionMessage());
-            report.setUpdatedAt(now);
-            reportRepository.save(report);
-            report.setStatus(ReportStatus.REJECTED);
-            report.setUpdatedAt(now);
-        } else {
-            report.setRejectionMessage(null);
-            report.setStatus(ReportStatus.RESOLVED);
-            report.setUpdatedAt(now);
-        }
-        return reportRepository.save(report);
+        return reportRepository.findById(reportId)
+                .orElseThrow(() -> new ReportNotFoundException(AppConstants.REPORT_NOT_FOUND_MSG + reportId));
     }
 }
\ No newline at end of file
@@ -0,0 +1,282 @@
+package udehnih.report.service;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import udehnih.report.config.JwtConfig;
+import udehnih.report.model.RevokedToken;
+import udehnih.report.repository.RevokedTokenRepository;
+import udehnih.report.util.BloomFilter;
+import udehnih.report.util.VerifiedToken;
+
+/**
+ * Keeps the {@code revoked_token} deny list mirrored in an in-process Bloom
+ * filter so the authentication filter can rule out revocation without a
+ * query. Only tokens the filter reports as possibly revoked are confirmed
+ * against the database.
+ * <p>
+ * New rows are picked up every {@code TOKEN_REVOCATION_REFRESH_MS} by reading
+ * the ids above the last one seen plus every row revoked since
+ * {@code TOKEN_REVOCATION_REFRESH_OVERLAP_MS} before the previous refresh, so
+ * a row another instance committed late with a lower id is not skipped. Rows
+ * read twice are counted once, by {@code jti}. Every
+ * {@code TOKEN_REVOCATION_REBUILD_MS} expired rows are purged and the filter
+ * is rebuilt from what is left.
+ */
+@Service
+
+@Slf4j
+public class TokenRevocationService {
+    private static final String JTI_KEY = "jti:";
+    private static final String SUBJECT_KEY = "sub:";
+    private static final long DEFAULT_EXPECTED_ENTRIES = 100_000;
+    private static final double DEFAULT_FALSE_POSITIVE_RATE = 0.001;
+    private static final long DEFAULT_REFRESH_OVERLAP_MS = 60_000;
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final long expectedEntries;
+    private final double falsePositiveRate;
+    private final Duration maxTokenLifetime;
+    private final Duration refreshGrace;
+    private final Duration refreshOverlap;
+    // Filter keys of the rows inside the refresh overlap, so re-read rows are not counted twice
+    private final Map<String, LocalDateTime> recentKeys = new HashMap<>();
+    // Replaced wholesale on rebuild; incremental refreshes only add to it
+    private volatile BloomFilter filter;
+    private volatile long lastSeenId;
+    private LocalDateTime lastRefreshAt;
+    private long entryCount;
+    private long capacity;
+    @Autowired
+
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository, Environment env,
+                                  JwtConfig jwtConfig) {
+        this(revokedTokenRepository,
+            env.getProperty("TOKEN_REVOCATION_EXPECTED_ENTRIES", Long.class, DEFAULT_EXPECTED_ENTRIES),
+            env.getProperty("TOKEN_REVOCATION_FALSE_POSITIVE_RATE", Double.class, DEFAULT_FALSE_POSITIVE_RATE),
+            Duration.ofMillis(jwtConfig.getExpiration()),
+            jwtConfig.getRefreshGrace(),
+            Duration.ofMillis(env.getProperty("TOKEN_REVOCATION_REFRESH_OVERLAP_MS", Long.class,
+                DEFAULT_REFRESH_OVERLAP_MS)));
+    }
+
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository, long expectedEntries,
+                                  double falsePositiveRate, Duration maxTokenLifetime) {
+        this(revokedTokenRepository, expectedEntries, falsePositiveRate, maxTokenLifetime, Duration.ZERO,
+            Duration.ofMillis(DEFAULT_REFRESH_OVERLAP_MS));
+    }
+
+    /**
+     * {@code refreshGrace} is how long after expiry a token can still be
+     * refreshed; entries are kept that much longer so a revoked token cannot
+     * be refreshed once its entry is purged.
+     */
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository, long expectedEntries,
+                                  double falsePositiveRate, Duration maxTokenLifetime,
+                                  Duration refreshGrace, Duration refreshOverlap) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.expectedEntries = Math.max(1, expectedEntries);
+        this.falsePositiveRate = falsePositiveRate;
+        this.maxTokenLifetime = maxTokenLifetime;
+        this.refreshGrace = refreshGrace;
+        this.refreshOverlap = refreshOverlap;
+    }
+
+    /**
+     * True when {@code token} is on the deny list, either by its {@code jti}
+     * or because its subject revoked every token issued up to a cutoff. When
+     * the filter flags a token but the database cannot be read, the token is
+     * treated as revoked.
+     */
+    public boolean isRevoked(VerifiedToken token) {
+        BloomFilter current = getFilter();
+        // Until the deny list could be loaded every token is checked against the database
+        boolean jtiFlagged = token.tokenId() != null
+            && (current == null || current.mightContain(JTI_KEY + token.tokenId()));
+        boolean subjectFlagged = current == null || current.mightContain(SUBJECT_KEY + token.subject());
+        if (!jtiFlagged && !subjectFlagged) {
+            return false;
+        }
+        try {
+            if (jtiFlagged && revokedTokenRepository.existsByJti(token.tokenId())) {
+                return true;
+            }
+            if (subjectFlagged) {
+                Instant cutoff = revokedTokenRepository.findLatestCutoff(token.subject());
+                return cutoff != null && (token.issuedAt() == null || !token.issuedAt().isAfter(cutoff));
+            }
+            return false;
+        } catch (RuntimeException e) {
+            log.warn("Could not confirm revocation of token for {}: {}", token.subject(), e.getMessage());
+            return true;
+        }
+    }
+
+    /**
+     * Revokes a single token. Tokens without a {@code jti} cannot be told
+     * apart, so for those every token of the subject issued so far is revoked.
+     */
+    public void revoke(VerifiedToken token) {
+        if (token.tokenId() == null) {
+            revokeAllIssuedBefore(token.subject(), Instant.now());
+            return;
+        }
+        RevokedToken entry = revokedTokenRepository.save(RevokedToken.builder()
+            .jti(token.tokenId())
+            .subject(token.subject())
+            .expiresAt(token.expiresAt().plus(refreshGrace))
+            .build());
+        add(entry);
+        log.info("Revoked token {} of {}", token.tokenId(), token.subject());
+    }
+
+    /**
+     * Revokes every token of {@code subject} issued at or before
+     * {@code cutoff}. Token issue times have second precision, so a token
+     * issued in the same second as the cutoff is revoked as well.
+     */
+    public void revokeAllIssuedBefore(String subject, Instant cutoff) {
+        Instant truncated = cutoff.truncatedTo(ChronoUnit.SECONDS);
+        RevokedToken entry = revokedTokenRepository.save(RevokedToken.builder()
+            .subject(subject)
+            .issuedBefore(truncated)
+            .expiresAt(truncated.plus(maxTokenLifetime).plus(refreshGrace))
+            .build());
+        add(entry);
+        log.info("Revoked all tokens of {} issued up to {}", subject, truncated);
+    }
+
+    /** Adds deny-list rows written since the last refresh, by any instance. */
+    @Scheduled(fixedDelayString = "${TOKEN_REVOCATION_REFRESH_MS:5000}",
+        initialDelayString = "${TOKEN_REVOCATION_REFRESH_MS:5000}")
+    public void refresh() {
+        if (filter == null) {
+            getFilter();
+            return;
+        }
+        try {
+            LocalDateTime startedAt = LocalDateTime.now();
+            LocalDateTime since;
+            synchronized (this) {
+                since = lastRefreshAt.minus(refreshOverlap);
+            }
+            List<RevokedToken> read = revokedTokenRepository
+                .findByIdGreaterThanOrRevokedAtGreaterThanEqualOrderByIdAsc(lastSeenId, since);
+            int added = 0;
+            synchronized (this) {
+                recentKeys.values().removeIf(revokedAt -> revokedAt.isBefore(since));
+                for (RevokedToken entry : read) {
+                    if (add(entry)) {
+                        added++;
+                    }
+                    lastSeenId = Math.max(lastSeenId, entry.getId());
+                }
+                lastRefreshAt = startedAt;
+            }
+            if (added == 0) {
+                return;
+            }
+            log.debug("Added {} revoked token entries", added);
+            if (entryCount > capacity) {
+                log.info("Revocation filter holds {} entries, more than the {} it was sized for; rebuilding",
+                    entryCount, capacity);
+                rebuild();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not refresh revoked tokens: {}", e.getMessage());
+        }
+    }
+
+    /** Purges entries whose tokens have expired and rebuilds the filter. */
+    @Scheduled(fixedDelayString = "${TOKEN_REVOCATION_REBUILD_MS:3600000}",
+        initialDelayString = "${TOKEN_REVOCATION_REBUILD_MS:3600000}")
+    public void purgeAndRebuild() {
+        try {
+            int purged = revokedTokenRepository.deleteExpired(Instant.now());
+            if (purged > 0) {
+                log.info("Purged {} expired revoked token entries", purged);
+            }
+            rebuild();
+        } catch (RuntimeException e) {
+            log.warn("Could not purge revoked tokens: {}", e.getMessage());
+        }
+    }
+
+    private BloomFilter getFilter() {
+        BloomFilter current = filter;
+        if (current == null) {
+            synchronized (this) {
+                if (filter == null) {
+                    try {
+                        rebuild();
+                    } catch (RuntimeException e) {
+                        log.warn("Could not load revoked tokens: {}", e.getMessage());
+                        return null;
+                    }
+                }
+                current = filter;
+            }
+        }
+        return current;
+    }
+
+    private synchronized void rebuild() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        List<RevokedToken> entries = revokedTokenRepository.findByIdGreaterThanOrderByIdAsc(0L);
+        long size = Math.max(expectedEntries, entries.size() * 2L);
+        BloomFilter next = BloomFilter.create(size, falsePositiveRate);
+        long maxId = 0;
+        LocalDateTime since = startedAt.minus(refreshOverlap);
+        recentKeys.clear();
+        for (RevokedToken entry : entries) {
+            put(next, entry);
+            maxId = Math.max(maxId, entry.getId());
+            LocalDateTime revokedAt = revokedAt(entry);
+            if (!revokedAt.isBefore(since)) {
+                recentKeys.put(key(entry), revokedAt);
+            }
+        }
+        entryCount = entries.size();
+        capacity = size;
+        lastSeenId = maxId;
+        lastRefreshAt = startedAt;
+        filter = next;
+        log.info("Revocation filter built: {} entries, {} bits, {} hashes",
+            entries.size(), next.bitCount(), next.hashCount());
+    }
+
+    // Local writes go into the filter at once; lastSeenId only moves on refresh
+    // so rows other instances wrote with lower ids are not skipped.
+    // Returns false when the entry's key was already added inside the overlap
+    private synchronized boolean add(RevokedToken entry) {
+        BloomFilter current = getFilter();
+        if (current == null) {
+            return false;
+        }
+        put(current, entry);
+        if (recentKeys.putIfAbsent(key(entry), revokedAt(entry)) != null) {
+            return false;
+        }
+        entryCount++;
+        return true;
+    }
+
+    private static void put(BloomFilter target, RevokedToken entry) {
+        target.put(key(entry));
+    }
+
+    private static String key(RevokedToken entry) {
+        return entry.getJti() != null ? JTI_KEY + entry.getJti() : SUBJECT_KEY + entry.getSubject();
+    }
+
+    private static LocalDateTime revokedAt(RevokedToken entry) {
+        return entry.getRevokedAt() != null ? entry.getRevokedAt() : LocalDateTime.now();
+    }
+}
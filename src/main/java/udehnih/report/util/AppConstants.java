@@ -8,6 +8,11 @@ public final class AppConstants {
     public static final String STUDENT_ROLE = "STUDENT";
     public static final String REPORT_NOT_FOUND_MSG = "Report not found with id: ";
     public static final String TEST_STUDENT_ID = "12345";
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String AUTH_ECHO_HEADER = "X-Auth-Echo";
+    public static final String AUTH_PATH_PREFIX = "/auth/";
+    /** Request attribute set when the auth passthrough already failed, so the controller goes straight to local auth. */
+    public static final String AUTH_LOCAL_ONLY_ATTRIBUTE = "udehnih.report.auth.localOnly";
 
     private AppConstants() {
         throw new UnsupportedOperationException("Utility class");
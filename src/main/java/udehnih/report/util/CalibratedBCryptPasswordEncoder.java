@@ -0,0 +1,93 @@
+package udehnih.report.util;
+import java.time.Duration;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * BCrypt encoder whose cost is measured on the current hardware rather than
+ * hard-coded. A stored hash is only flagged for rehashing when it is weaker
+ * than the current cost or outside the configured bounds, so instances that
+ * calibrate to different costs never rehash each other's hashes back down.
+ */
+@Slf4j
+public class CalibratedBCryptPasswordEncoder extends BCryptPasswordEncoder {
+    public static final int MIN_COST = 4;
+    public static final int MAX_COST = 31;
+    private static final Pattern BCRYPT_COST = Pattern.compile("\\A\\$2[abxy]?\\$(\\d\\d)\\$");
+    // Cheap enough to time quickly, expensive enough to dominate timer noise
+    private static final int PROBE_COST = 8;
+    private static final int PROBE_ROUNDS = 3;
+    private final int cost;
+    private final int minCost;
+    private final int maxCost;
+
+    public CalibratedBCryptPasswordEncoder(int cost) {
+        this(cost, MIN_COST, MAX_COST);
+    }
+
+    public CalibratedBCryptPasswordEncoder(int cost, int minCost, int maxCost) {
+        super(cost);
+        this.cost = cost;
+        this.minCost = minCost;
+        this.maxCost = maxCost;
+    }
+
+    public int getCost() {
+        return cost;
+    }
+
+    /**
+     * True when {@code encodedPassword} is a BCrypt hash below this encoder's
+     * cost, or outside {@code [minCost, maxCost]}. A higher cost within the
+     * bounds is kept.
+     */
+    @Override
+
+    public boolean upgradeEncoding(String encodedPassword) {
+        int stored = costOf(encodedPassword);
+        return stored > 0 && stored != cost && (stored < cost || stored < minCost || stored > maxCost);
+    }
+
+    /**
+     * Cost of a BCrypt hash such as {@code $2a$10$...}, or -1 when
+     * {@code encodedPassword} is not one.
+     */
+    public static int costOf(String encodedPassword) {
+        if (encodedPassword == null) {
+            return -1;
+        }
+        Matcher matcher = BCRYPT_COST.matcher(encodedPassword);
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : -1;
+    }
+
+    /**
+     * Times a few hashes at a low cost and extrapolates, since every extra
+     * cost step doubles the work, to the cost whose hash time is closest to
+     * {@code target}, kept within {@code minCost} and {@code maxCost}.
+     */
+    public static int calibrate(Duration target, int minCost, int maxCost) {
+        int floor = Math.max(MIN_COST, minCost);
+        int ceiling = Math.min(MAX_COST, Math.max(floor, maxCost));
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(PROBE_COST);
+        // The first hash pays for class loading and JIT warm-up
+        probe.encode("calibration");
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < PROBE_ROUNDS; i++) {
+            long start = System.nanoTime();
+            probe.encode("calibration");
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        int cost = chooseCost(best, PROBE_COST, target.toNanos(), floor, ceiling);
+        log.info("BCrypt cost {} calibrated for {} ms per hash (cost {} took {} ms)", cost, target.toMillis(),
+            PROBE_COST, best / 1_000_000.0);
+        return cost;
+    }
+
+    static int chooseCost(long probeNanos, int probeCost, long targetNanos, int minCost, int maxCost) {
+        double steps = Math.log((double) targetNanos / Math.max(1, probeNanos)) / Math.log(2);
+        int cost = probeCost + (int) Math.round(steps);
+        return Math.max(minCost, Math.min(maxCost, cost));
+    }
+}
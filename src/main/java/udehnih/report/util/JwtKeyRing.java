@@ -0,0 +1,107 @@
+package udehnih.report.util;
+import io.jsonwebtoken.security.Keys;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Immutable set of HMAC signing keys addressed by key id ({@code kid}).
+ * Keys are derived once when the ring is built; new tokens are signed with
+ * the active key and verification picks the key the token's {@code kid}
+ * header names. Tokens issued before key ids existed carry no {@code kid}
+ * and are checked against {@link #LEGACY_KEY_ID}, or the active key when the
+ * ring has no legacy key.
+ */
+public final class JwtKeyRing {
+    public static final String LEGACY_KEY_ID = "default";
+    private final Map<String, String> secrets;
+    private final Map<String, Key> keys;
+    private final String activeKeyId;
+
+    private JwtKeyRing(Map<String, String> secrets, String activeKeyId) {
+        this.secrets = Collections.unmodifiableMap(new LinkedHashMap<>(secrets));
+        Map<String, Key> derived = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : secrets.entrySet()) {
+            derived.put(entry.getKey(), Keys.hmacShaKeyFor(entry.getValue().getBytes(StandardCharsets.UTF_8)));
+        }
+        this.keys = Collections.unmodifiableMap(derived);
+        this.activeKeyId = activeKeyId;
+    }
+
+    /**
+     * Builds a ring from {@code kid -> secret} pairs plus the legacy single
+     * secret, which joins as {@link #LEGACY_KEY_ID} unless that id is taken.
+     * The active key is {@code activeKeyId} when given, otherwise the last
+     * configured key, otherwise the legacy key.
+     */
+    public
+
+    static JwtKeyRing of(Map<String, String> signingKeys, String legacySecret, String activeKeyId) {
+        Map<String, String> secrets = new LinkedHashMap<>();
+        if (legacySecret != null && !legacySecret.isBlank()) {
+            secrets.put(LEGACY_KEY_ID, legacySecret);
+        }
+        String lastConfigured = null;
+        if (signingKeys != null) {
+            for (Map.Entry<String, String> entry : signingKeys.entrySet()) {
+                if (entry.getKey() != null && !entry.getKey().isBlank()
+                        && entry.getValue() != null && !entry.getValue().isBlank()) {
+                    secrets.put(entry.getKey().trim(), entry.getValue().trim());
+                    lastConfigured = entry.getKey().trim();
+                }
+            }
+        }
+        if (secrets.isEmpty()) {
+            throw new IllegalStateException("No JWT signing keys configured");
+        }
+        String active = activeKeyId != null && !activeKeyId.isBlank() ? activeKeyId.trim()
+            : lastConfigured != null ? lastConfigured : LEGACY_KEY_ID;
+        if (!secrets.containsKey(active)) {
+            throw new IllegalStateException("Active JWT key id '" + active + "' has no configured secret");
+        }
+        return new JwtKeyRing(secrets, active);
+    }
+
+    public String activeKeyId() {
+        return activeKeyId;
+    }
+
+    public Key activeKey() {
+        return keys.get(activeKeyId);
+    }
+
+    /**
+     * Returns the key for {@code keyId}, or null when the ring does not hold
+     * it. A null {@code keyId} selects the legacy key.
+     */
+    public Key keyFor(String keyId) {
+        if (keyId == null) {
+            Key legacy = keys.get(LEGACY_KEY_ID);
+            return legacy != null ? legacy : activeKey();
+        }
+        return keys.get(keyId);
+    }
+
+    /**
+     * True when this ring can verify everything {@code previous} could, i.e.
+     * no key id was dropped or given a different secret.
+     */
+    public boolean retainsAllKeysOf(JwtKeyRing previous) {
+        for (Map.Entry<String, String> entry : previous.secrets.entrySet()) {
+            if (!entry.getValue().equals(secrets.get(entry.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean sameAs(JwtKeyRing other) {
+        return other != null && activeKeyId.equals(other.activeKeyId) && secrets.equals(other.secrets);
+    }
+
+    public int size() {
+        return keys.size();
+    }
+}
@@ -0,0 +1,285 @@
+package udehnih.report.util;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.jsonwebtoken.MalformedJwtException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes the header and payload of a compact JWT for the small, fixed set of
+ * claims this service reads. Segments are Base64URL-decoded straight from the
+ * token into a per-thread buffer and stream-parsed with a shared Jackson
+ * factory, so no intermediate strings, maps or mappers are created.
+ * Nothing here checks the signature; see {@link JwtUtil#verify(String)}.
+ */
+public final class JwtPayloadDecoder {
+    private static final JsonFactory JSON = new JsonFactory();
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[INITIAL_BUFFER_SIZE]);
+    private static final byte[] BASE64URL = new byte[128];
+
+    static {
+        java.util.Arrays.fill(BASE64URL, (byte) -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64URL[alphabet.charAt(i)] = (byte) i;
+        }
+    }
+
+    private JwtPayloadDecoder() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    /** The JOSE header fields needed to pick a verification key. */
+    public record Header(String algorithm, String keyId) {
+    }
+
+    /**
+     * The claims this service reads. Times are epoch seconds and, like every
+     * other field, null when the claim is absent.
+     */
+    public record Payload(String subject, Long expiresAt, Long issuedAt, Long notBefore, String role,
+                          List<String> roles, Long userId, String name, Long roleVersion, String tokenId) {
+    }
+
+    /** Positions of the two dots of a compact JWS. */
+    public record Segments(int headerEnd, int payloadEnd) {
+    }
+
+    public
+
+    static Segments segments(String token) {
+        int headerEnd = token.indexOf('.');
+        int payloadEnd = headerEnd < 0 ? -1 : token.indexOf('.', headerEnd + 1);
+        if (headerEnd <= 0 || payloadEnd <= headerEnd + 1 || token.indexOf('.', payloadEnd + 1) >= 0) {
+            throw new MalformedJwtException("JWT must have exactly three segments");
+        }
+        return new Segments(headerEnd, payloadEnd);
+    }
+
+    public
+
+    static Header decodeHeader(String token, Segments segments) {
+        byte[] buffer = buffer(segments.headerEnd());
+        int length = decodeBase64Url(token, 0, segments.headerEnd(), buffer, 0);
+        String algorithm = null;
+        String keyId = null;
+        try (JsonParser parser = JSON.createParser(buffer, 0, length)) {
+            expectObject(parser);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("alg".equals(field)) {
+                    algorithm = text(value, parser);
+                } else if ("kid".equals(field)) {
+                    keyId = text(value, parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            throw new MalformedJwtException("Unable to read JWT header: " + e.getMessage(), e);
+        }
+        return new Header(algorithm, keyId);
+    }
+
+    public
+
+    static Payload decodePayload(String token, Segments segments) {
+        return decodePayload(token, segments, null);
+    }
+
+    /**
+     * Like {@link #decodePayload(String, Segments)}, and also puts every other
+     * claim with a string, number or boolean value into {@code otherClaims}
+     * when it is not null. Object and array claims are skipped.
+     */
+    public
+
+    static Payload decodePayload(String token, Segments segments, Map<String, Object> otherClaims) {
+        int from = segments.headerEnd() + 1;
+        byte[] buffer = buffer(segments.payloadEnd() - from);
+        int length = decodeBase64Url(token, from, segments.payloadEnd(), buffer, 0);
+        String subject = null;
+        Long expiresAt = null;
+        Long issuedAt = null;
+        Long notBefore = null;
+        String role = null;
+        List<String> roles = null;
+        Long userId = null;
+        String name = null;
+        Long roleVersion = null;
+        String tokenId = null;
+        try (JsonParser parser = JSON.createParser(buffer, 0, length)) {
+            expectObject(parser);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "sub" -> subject = text(value, parser);
+                    case "exp" -> expiresAt = number(value, parser);
+                    case "iat" -> issuedAt = number(value, parser);
+                    case "nbf" -> notBefore = number(value, parser);
+                    case "role" -> role = text(value, parser);
+                    case "roles" -> roles = strings(value, parser);
+                    case "uid" -> userId = number(value, parser);
+                    case "name" -> name = text(value, parser);
+                    case "rv" -> roleVersion = number(value, parser);
+                    case "jti" -> tokenId = text(value, parser);
+                    default -> other(field, value, parser, otherClaims);
+                }
+            }
+        } catch (IOException e) {
+            throw new MalformedJwtException("Unable to read JWT payload: " + e.getMessage(), e);
+        }
+        return new Payload(subject, expiresAt, issuedAt, notBefore, role, roles, userId, name, roleVersion,
+            tokenId);
+    }
+
+    /**
+     * Decodes the Base64URL characters {@code token[from, to)} into
+     * {@code target} starting at {@code offset} and returns the number of
+     * bytes written. Decoding stops at the first padding character.
+     */
+    public
+
+    static int decodeBase64Url(String token, int from, int to, byte[] target, int offset) {
+        int written = 0;
+        int bits = 0;
+        int bitCount = 0;
+        for (int i = from; i < to; i++) {
+            char c = token.charAt(i);
+            if (c == '=') {
+                break;
+            }
+            int value = c < 128 ? BASE64URL[c] : -1;
+            if (value < 0) {
+                throw new MalformedJwtException("Invalid Base64URL character in JWT");
+            }
+            bits = (bits << 6) | value;
+            bitCount += 6;
+            if (bitCount >= 8) {
+                bitCount -= 8;
+                target[offset + written++] = (byte) (bits >> bitCount);
+            }
+        }
+        return written;
+    }
+
+    /**
+     * True when {@code token[from, to)} is the unpadded Base64URL form of
+     * exactly {@code byteLength} bytes: the exact length, no padding, only
+     * alphabet characters and zero unused bits in the last character. Any
+     * byte string then has a single accepted spelling.
+     */
+    public
+
+    static boolean isCanonicalBase64Url(String token, int from, int to, int byteLength) {
+        if (to - from != (byteLength * 4 + 2) / 3) {
+            return false;
+        }
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = token.charAt(i);
+            value = c < 128 ? BASE64URL[c] : -1;
+            if (value < 0) {
+                return false;
+            }
+        }
+        int unusedBits = switch (byteLength % 3) {
+            case 1 -> 4;
+            case 2 -> 2;
+            default -> 0;
+        };
+        return (value & ((1 << unusedBits) - 1)) == 0;
+    }
+
+    /** Upper bound of the bytes {@code base64Length} Base64URL characters decode to. */
+    public
+
+    static int decodedLength(int base64Length) {
+        return base64Length * 3 / 4 + 3;
+    }
+
+    /** Per-thread scratch buffer of at least {@code decodedLength(base64Length)} bytes. */
+    static byte[] buffer(int base64Length) {
+        return scratch(decodedLength(base64Length));
+    }
+
+    /**
+     * Per-thread scratch buffer of at least {@code required} bytes. The same
+     * array is handed out again on the next call from this thread.
+     */
+    static byte[] scratch(int required) {
+        byte[] buffer = BUFFER.get();
+        if (buffer.length < required) {
+            buffer = new byte[Math.max(required, buffer.length * 2)];
+            BUFFER.set(buffer);
+        }
+        return buffer;
+    }
+    private
+
+    static void expectObject(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new MalformedJwtException("JWT segment is not a JSON object");
+        }
+    }
+    private
+
+    static String text(JsonToken value, JsonParser parser) throws IOException {
+        if (value == JsonToken.VALUE_STRING) {
+            return parser.getText();
+        }
+        parser.skipChildren();
+        return null;
+    }
+    private
+
+    static Long number(JsonToken value, JsonParser parser) throws IOException {
+        if (value == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getLongValue();
+        }
+        if (value == JsonToken.VALUE_NUMBER_FLOAT) {
+            return (long) parser.getDoubleValue();
+        }
+        parser.skipChildren();
+        return null;
+    }
+    private
+
+    static void other(String field, JsonToken value, JsonParser parser, Map<String, Object> otherClaims)
+            throws IOException {
+        if (otherClaims == null) {
+            parser.skipChildren();
+            return;
+        }
+        switch (value) {
+            case VALUE_STRING -> otherClaims.put(field, parser.getText());
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> otherClaims.put(field, parser.getNumberValue());
+            case VALUE_TRUE, VALUE_FALSE -> otherClaims.put(field, parser.getBooleanValue());
+            default -> parser.skipChildren();
+        }
+    }
+    private
+
+    static List<String> strings(JsonToken value, JsonParser parser) throws IOException {
+        if (value != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        List<String> values = new ArrayList<>(2);
+        JsonToken element;
+        while ((element = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (element == JsonToken.VALUE_STRING) {
+                values.add(parser.getText());
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return values;
+    }
+}
@@ -1,34 +1,338 @@
 package udehnih.report.util;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.security.SignatureException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 import udehnih.report.config.JwtConfig;
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 import java.util.Collection;
 import java.util.function.Function;
-import com.fasterxml.jackson.databind.ObjectMapper;
 @Component
 
 @Slf4j
 public class JwtUtil {
+    static final String VERIFIED_TOKEN_HIT_RATIO_METRIC = "jwt.verified.cache.hit.ratio";
+    static final String USER_ID_CLAIM = "uid";
+    static final String NAME_CLAIM = "name";
+    static final String ROLE_VERSION_CLAIM = "rv";
     @Autowired
     private JwtConfig jwtConfig;
+    // Built on first use and shared; both are immutable and safe to use from any thread
+    private volatile JwtKeyRing keyRing;
+    private volatile JwtParser parser;
+    private volatile Cache<String, VerifiedToken> verifiedTokens;
+    private volatile boolean verifiedTokenCacheResolved;
+    private MeterRegistry meterRegistry;
 
-    private Key getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtConfig.getSecretKey().getBytes(StandardCharsets.UTF_8));
+    @Autowired(required = false)
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    private JwtKeyRing getKeyRing() {
+        JwtKeyRing ring = keyRing;
+        if (ring == null) {
+            ring = loadKeyRing();
+            keyRing = ring;
+        }
+        return ring;
+    }
+
+    private JwtKeyRing loadKeyRing() {
+        JwtConfig.SigningKeys signingKeys = jwtConfig.getSigningKeys();
+        return JwtKeyRing.of(signingKeys.keys(), jwtConfig.getSecretKey(), signingKeys.activeKeyId());
+    }
+
+    /**
+     * Re-reads the configured keys and swaps in the new ring when it differs,
+     * so keys can be added, activated or retired without a restart. Verified
+     * tokens are dropped from the cache when a key was retired or replaced.
+     * When the keys cannot be read, the current ring stays in place.
+     */
+    @Scheduled(fixedDelayString = "${JWT_KEY_REFRESH_MS:60000}", initialDelayString = "${JWT_KEY_REFRESH_MS:60000}")
+    public void refreshKeyRing() {
+        JwtKeyRing current = keyRing;
+        if (current == null) {
+            return;
+        }
+        JwtKeyRing next;
+        try {
+            next = loadKeyRing();
+        } catch (RuntimeException e) {
+            log.warn("Keeping current JWT keys, reload failed: {}", e.getMessage());
+            return;
+        }
+        if (next.sameAs(current)) {
+            return;
+        }
+        keyRing = next;
+        Cache<String, VerifiedToken> cache = verifiedTokens;
+        if (cache != null && !next.retainsAllKeysOf(current)) {
+            cache.invalidateAll();
+        }
+        log.info("JWT key ring reloaded: {} keys, active kid={}", next.size(), next.activeKeyId());
+    }
+
+    private JwtParser getParser() {
+        JwtParser current = parser;
+        if (current == null) {
+            current = Jwts.parserBuilder().setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                @Override
+                public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                    return resolveKey(header.getKeyId());
+                }
+            }).build();
+            parser = current;
+        }
+        return current;
+    }
+
+    // Looks the key up by kid instead of trying every key in the ring
+    private Key resolveKey(String keyId) {
+        Key key = getKeyRing().keyFor(keyId);
+        if (key == null) {
+            throw new SignatureException("Unknown JWT signing key id: " + keyId);
+        }
+        return key;
+    }
+
+    /**
+     * Verifies the signature and expiry of {@code token} once and returns its
+     * claims, or null when the token is invalid, expired or has no subject.
+     */
+    public VerifiedToken verify(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        Cache<String, VerifiedToken> cache = getVerifiedTokenCache();
+        if (cache == null) {
+            return verifyUncached(token);
+        }
+        String digest = digest(token);
+        VerifiedToken cached = cache.getIfPresent(digest);
+        if (cached != null && cached.expiresAt().isAfter(Instant.now())) {
+            return cached;
+        }
+        VerifiedToken verified = verifyUncached(token);
+        if (verified != null) {
+            cache.put(digest, verified);
+        }
+        return verified;
+    }
+
+    /**
+     * Like {@link #verify(String)}, but also accepts a token that expired less
+     * than {@link JwtConfig#getRefreshGrace()} ago, so it can be exchanged for
+     * a new one. The signature is still checked and the result is not cached.
+     */
+    public VerifiedToken verifyForRefresh(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        return verifyUncached(token, jwtConfig.getRefreshGrace());
+    }
+
+    private VerifiedToken verifyUncached(String token) {
+        return verifyUncached(token, null);
+    }
+
+    private VerifiedToken verifyUncached(String token, Duration expiredGrace) {
+        try {
+            JwtPayloadDecoder.Segments segments = JwtPayloadDecoder.segments(token);
+            JwtPayloadDecoder.Header header = JwtPayloadDecoder.decodeHeader(token, segments);
+            // One spelling per signature, so a token cannot be varied into new cache entries
+            if (!JwtPayloadDecoder.isCanonicalBase64Url(token, segments.payloadEnd() + 1, token.length(),
+                    signatureLength(header.algorithm()))) {
+                log.warn("JWT verification failed: signature is not canonical Base64URL");
+                return null;
+            }
+            // The library checks the signature, key strength, expiry and not-before
+            return toVerifiedToken(getParser().parseClaimsJws(token).getBody());
+        } catch (ExpiredJwtException e) {
+            // The library checks the signature before the expiry, so these claims are signed
+            Date expiration = e.getClaims().getExpiration();
+            if (expiredGrace != null && expiration != null
+                    && expiration.toInstant().plus(expiredGrace).isAfter(Instant.now())) {
+                return toVerifiedToken(e.getClaims());
+            }
+            log.warn("JWT verification failed: {}", e.getMessage());
+            return null;
+        } catch (JwtException | IllegalArgumentException e) {
+            log.warn("JWT verification failed: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static VerifiedToken toVerifiedToken(Claims claims) {
+        if (claims.getSubject() == null || claims.getExpiration() == null) {
+            log.warn("Verified JWT is missing its subject or expiration");
+            return null;
+        }
+        return new VerifiedToken(
+            claims.getSubject(),
+            extractRoles(claims),
+            claims.getExpiration().toInstant(),
+            claims.getIssuedAt() != null ? claims.getIssuedAt().toInstant() : null,
+            longClaim(claims, USER_ID_CLAIM),
+            claims.get(NAME_CLAIM, String.class),
+            longClaim(claims, ROLE_VERSION_CLAIM),
+            claims.getId());
+    }
+
+    private static Long longClaim(Claims claims, String name) {
+        return claims.get(name) instanceof Number number ? number.longValue() : null;
+    }
+
+    // Bytes in an HMAC signature of the given JWS algorithm; only HS256/384/512 are accepted
+    private static int signatureLength(String jwsAlgorithm) {
+        if (jwsAlgorithm == null) {
+            throw new UnsupportedJwtException("JWT header has no alg");
+        }
+        return switch (jwsAlgorithm) {
+            case "HS256" -> 32;
+            case "HS384" -> 48;
+            case "HS512" -> 64;
+            default -> throw new UnsupportedJwtException("Unsupported JWT algorithm: " + jwsAlgorithm);
+        };
+    }
+
+    private Cache<String, VerifiedToken> getVerifiedTokenCache() {
+        if (!verifiedTokenCacheResolved) {
+            synchronized (this) {
+                if (!verifiedTokenCacheResolved) {
+                    verifiedTokens = buildVerifiedTokenCache(jwtConfig.getVerifiedTokenCacheSize());
+                    verifiedTokenCacheResolved = true;
+                }
+            }
+        }
+        return verifiedTokens;
+    }
+
+    private Cache<String, VerifiedToken> buildVerifiedTokenCache(long maxSize) {
+        if (maxSize <= 0) {
+            log.info("Verified token cache disabled");
+            return null;
+        }
+        Cache<String, VerifiedToken> cache = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfter(new Expiry<String, VerifiedToken>() {
+                @Override
+                public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+                    // An entry never outlives the token it was verified from
+                    return Math.max(0, Duration.between(Instant.now(), value.expiresAt()).toNanos());
+                }
+
+                @Override
+                public long expireAfterUpdate(String key, VerifiedToken value, long currentTime,
+                                              long currentDuration) {
+                    return expireAfterCreate(key, value, currentTime);
+                }
+
+                @Override
+                public long expireAfterRead(String key, VerifiedToken value, long currentTime,
+                                            long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .recordStats()
+            .build();
+        if (meterRegistry != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwtVerifiedTokens");
+            Gauge.builder(VERIFIED_TOKEN_HIT_RATIO_METRIC, cache, c -> c.stats().hitRate())
+                .description("Share of JWT verifications answered from the verified token cache")
+                .register(meterRegistry);
+        }
+        log.info("Verified token cache enabled: maxSize={}", maxSize);
+        return cache;
+    }
+
+    // Keys are SHA-256 digests so raw bearer tokens are never kept in the heap
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static List<String> extractRoles(Claims claims) {
+        List<String> roles = new ArrayList<>();
+        Object rolesClaim = claims.get("roles");
+        String role = claims.get("role", String.class);
+        if (rolesClaim instanceof Collection<?> values) {
+            for (Object value : values) {
+                addRole(roles, value);
+            }
+        } else if (role != null) {
+            for (String singleRole : role.split(",")) {
+                addRole(roles, singleRole);
+            }
+        }
+        if (roles.isEmpty()) {
+            roles.add(AppConstants.ROLE_PREFIX + AppConstants.STUDENT_ROLE);
+        }
+        return roles;
+    }
+
+    private static void addRole(List<String> roles, Object value) {
+        if (value == null || value.toString().isBlank()) {
+            return;
+        }
+        String role = value.toString().trim();
+        roles.add(role.startsWith(AppConstants.ROLE_PREFIX) ? role : AppConstants.ROLE_PREFIX + role);
     }
 
     public String generateToken(String email, String role) {
+        return generateToken(email, role, null, null, null);
+    }
+
+    /**
+     * Issues a token that also carries the user's id, display name and the
+     * role version it was issued with, so the authentication filter can trust
+     * it without reading the auth database. Null values are left out. Every
+     * token gets a random {@code jti} so it can be revoked on its own.
+     */
+    public String generateToken(String email, String role, Long userId, String name, Long roleVersion) {
         Map<String, Object> claims = new HashMap<>();
+        if (userId != null) {
+            claims.put(USER_ID_CLAIM, userId);
+        }
+        if (name != null) {
+            claims.put(NAME_CLAIM, name);
+        }
+        if (roleVersion != null) {
+            claims.put(ROLE_VERSION_CLAIM, roleVersion);
+        }
         if (role.contains(",")) {
             String[] roles = role.split(",");
             StringBuilder formattedRoles = new StringBuilder();
@@ -49,12 +353,15 @@ public class JwtUtil {
             claims.put("role", formattedRole);
             claims.put("roles", new String[]{formattedRole});
         }
+        JwtKeyRing ring = getKeyRing();
         return Jwts.builder()
                 .setClaims(claims)
                 .setSubject(email)
+                .setId(UUID.randomUUID().toString())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + jwtConfig.getExpiration()))
-                .signWith(getSigningKey())
+                .setHeaderParam(JwsHeader.KEY_ID, ring.activeKeyId())
+                .signWith(ring.activeKey())
                 .compact();
     }
 
@@ -116,9 +423,7 @@ public class JwtUtil {
 
     private Claims extractAllClaims(String token) {
         try {
-            return Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
+            return getParser()
                     .parseClaimsJws(token)
                     .getBody();
         } catch (Exception e) {
@@ -131,20 +436,20 @@ public class JwtUtil {
 
     private Claims extractClaimsWithoutVerification(String token) {
         try {
-            // Split the token into parts
-            String[] parts = token.split("\\.");
-            if (parts.length != 3) {
-                throw new IllegalArgumentException("Invalid token format");
-            }
-            
-            // Decode the claims part (middle part) without verification
-            String base64EncodedClaims = parts[1];
-            java.util.Base64.Decoder decoder = java.util.Base64.getUrlDecoder();
-            String claimsJson = new String(decoder.decode(base64EncodedClaims), StandardCharsets.UTF_8);
-            
-            // Parse JSON into Claims
-            ObjectMapper mapper = new ObjectMapper();
-            Map<String, Object> claimsMap = mapper.readValue(claimsJson, Map.class);
+            // Decode the claims part (middle part) without verification, straight from the token
+            Map<String, Object> claimsMap = new HashMap<>();
+            JwtPayloadDecoder.Payload payload = JwtPayloadDecoder.decodePayload(token,
+                JwtPayloadDecoder.segments(token), claimsMap);
+            putIfPresent(claimsMap, Claims.SUBJECT, payload.subject());
+            putIfPresent(claimsMap, Claims.EXPIRATION, payload.expiresAt());
+            putIfPresent(claimsMap, Claims.ISSUED_AT, payload.issuedAt());
+            putIfPresent(claimsMap, Claims.NOT_BEFORE, payload.notBefore());
+            putIfPresent(claimsMap, Claims.ID, payload.tokenId());
+            putIfPresent(claimsMap, "role", payload.role());
+            putIfPresent(claimsMap, "roles", payload.roles());
+            putIfPresent(claimsMap, USER_ID_CLAIM, payload.userId());
+            putIfPresent(claimsMap, NAME_CLAIM, payload.name());
+            putIfPresent(claimsMap, ROLE_VERSION_CLAIM, payload.roleVersion());
             
             // Create a custom Claims implementation
             CustomClaims claims = new CustomClaims(claimsMap);
@@ -156,6 +461,12 @@ public class JwtUtil {
         }
     }
     
+    private static void putIfPresent(Map<String, Object> claims, String name, Object value) {
+        if (value != null) {
+            claims.put(name, value);
+        }
+    }
+    
     // Custom implementation of Claims interface
     private static class CustomClaims implements Claims {
         private final Map<String, Object> claims;
@@ -341,10 +652,7 @@ public class JwtUtil {
 
     public Boolean validateTokenIgnoreExpiration(String token) {
         try {
-            Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token);
+            getParser().parseClaimsJws(token);
             return true;
         } catch (Exception e) {
             if (e.getMessage() != null && e.getMessage().contains("expired")) {
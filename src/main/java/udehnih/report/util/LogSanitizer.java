@@ -0,0 +1,62 @@
+package udehnih.report.util;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps credentials out of log output. Values of headers that carry tokens,
+ * cookies or passwords are replaced by a marker that only records their
+ * length.
+ */
+public final class LogSanitizer {
+    private static final Set<String> SENSITIVE_HEADERS = Set.of(
+        "authorization", "x-auth-token", "cookie", "set-cookie", "proxy-authorization");
+    private static final Set<String> SENSITIVE_FIELDS = Set.of("password", "token", "refreshtoken", "secret");
+
+    private LogSanitizer() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    public
+
+    static String redact(String value) {
+        return value == null ? null : "<redacted " + value.length() + " chars>";
+    }
+
+    /** Returns {@code value}, or a redaction marker when {@code name} is a credential header. */
+    public
+
+    static String headerValue(String name, String value) {
+        boolean sensitive = name != null && SENSITIVE_HEADERS.contains(name.toLowerCase(Locale.ROOT));
+        return sensitive ? redact(value) : value;
+    }
+
+    /** Copy of {@code headers} with credential headers redacted. */
+    public
+
+    static Map<String, String> headers(Map<String, String> headers) {
+        Map<String, String> safe = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : headers.entrySet()) {
+            safe.put(entry.getKey(), headerValue(entry.getKey(), entry.getValue()));
+        }
+        return safe;
+    }
+
+    /** Copy of a request body with passwords, tokens and secrets redacted. */
+    public
+
+    static Map<String, Object> body(Map<String, Object> body) {
+        if (body == null) {
+            return null;
+        }
+        Map<String, Object> safe = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : body.entrySet()) {
+            boolean sensitive = entry.getKey() != null
+                && SENSITIVE_FIELDS.contains(entry.getKey().toLowerCase(Locale.ROOT));
+            safe.put(entry.getKey(), sensitive && entry.getValue() != null
+                ? redact(entry.getValue().toString()) : entry.getValue());
+        }
+        return safe;
+    }
+}
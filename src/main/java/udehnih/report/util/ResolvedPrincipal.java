@@ -0,0 +1,50 @@
+package udehnih.report.util;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import udehnih.report.model.UserInfo;
+
+/**
+ * Holds the {@link UserInfo} that {@code JwtAuthenticationFilter} resolved for
+ * the current request, so controllers and services can reuse it instead of
+ * querying the auth service again. Lookups only return the stored user when it
+ * belongs to the requested email; callers fall back to their own lookup
+ * otherwise.
+ */
+public final class ResolvedPrincipal {
+    public static final String REQUEST_ATTRIBUTE = ResolvedPrincipal.class.getName();
+
+    private ResolvedPrincipal() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    public static void store(HttpServletRequest request, UserInfo userInfo) {
+        if (request != null && userInfo != null) {
+            request.setAttribute(REQUEST_ATTRIBUTE, userInfo);
+        }
+    }
+
+    public static UserInfo get(HttpServletRequest request, String email) {
+        if (request == null) {
+            return null;
+        }
+        return matching(request.getAttribute(REQUEST_ATTRIBUTE), email);
+    }
+
+    public static UserInfo current(String email) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        return matching(attributes.getAttribute(REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST), email);
+    }
+    private
+
+    static UserInfo matching(Object stored, String email) {
+        if (stored instanceof UserInfo userInfo && email != null
+                && userInfo.getEmail() != null && userInfo.getEmail().equalsIgnoreCase(email)) {
+            return userInfo;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,38 @@
+package udehnih.report.util;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Claims of a JWT whose signature and expiry have already been checked.
+ * Roles always carry the {@code ROLE_} prefix. {@code userId}, {@code name},
+ * {@code roleVersion} and {@code tokenId} (the {@code jti} claim) are null for
+ * tokens issued without them.
+ */
+public record VerifiedToken(String subject, List<String> roles, Instant expiresAt, Instant issuedAt,
+                            Long userId, String name, Long roleVersion, String tokenId) {
+
+    public VerifiedToken {
+        roles = roles == null ? List.of() : List.copyOf(roles);
+    }
+
+    public VerifiedToken(String subject, List<String> roles, Instant expiresAt, Instant issuedAt) {
+        this(subject, roles, expiresAt, issuedAt, null, null, null, null);
+    }
+
+    public VerifiedToken(String subject, List<String> roles, Instant expiresAt, Instant issuedAt,
+                         Long userId, String name, Long roleVersion) {
+        this(subject, roles, expiresAt, issuedAt, userId, name, roleVersion, null);
+    }
+
+    public String roleString() {
+        return String.join(",", roles);
+    }
+
+    /**
+     * True when the token names the user and the role version it was issued
+     * with, which is what the trusted-claims mode needs.
+     */
+    public boolean hasIdentityClaims() {
+        return userId != null && roleVersion != null;
+    }
+}
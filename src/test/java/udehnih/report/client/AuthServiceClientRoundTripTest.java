@@ -0,0 +1,116 @@
+package udehnih.report.client;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.util.ReflectionTestUtils;
+import udehnih.report.model.UserInfo;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs the user lookups against the H2 auth schema and compares the number of
+ * statements and the result of the aggregated query with the old
+ * COUNT / id / name / roles sequence. The latency comparison lives in
+ * {@code UserLookupBenchmark} under src/jmh.
+ */
+class AuthServiceClientRoundTripTest {
+
+    private static final String EMAIL = "testreport@test.com";
+
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void setUpDatabase() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource();
+        dataSource.setDriverClassName("org.h2.Driver");
+        dataSource.setUrl("jdbc:h2:mem:authroundtrip;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE");
+        dataSource.setUsername("sa");
+        dataSource.setPassword("sa");
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator();
+        populator.addScript(new ClassPathResource("auth-schema.sql"));
+        populator.execute(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    private AuthServiceClient clientWith(JdbcTemplate template) {
+        AuthServiceClient client = new AuthServiceClient();
+        ReflectionTestUtils.setField(client, "authJdbcTemplate", template);
+        // Caching disabled so every lookup measures the database round trip.
+        ReflectionTestUtils.setField(client, "userInfoCache", new UserInfoCache(0, 0, null));
+        return client;
+    }
+
+    @Test
+    void getUserByEmailUsesSingleRoundTrip() {
+        JdbcTemplate spy = spy(jdbcTemplate);
+        AuthServiceClient client = clientWith(spy);
+
+        UserInfo userInfo = client.getUserByEmail(EMAIL);
+
+        assertNotNull(userInfo);
+        assertEquals("Test User", userInfo.getName());
+        assertEquals(List.of("STUDENT"), userInfo.getRoles());
+        verify(spy, times(1)).query(anyString(), any(UserInfoRowMapper.class), any(Object[].class));
+        verify(spy, never()).queryForObject(anyString(), any(Class.class), any(Object[].class));
+        verify(spy, never()).queryForList(anyString(), any(Class.class), any(Object[].class));
+    }
+
+    @Test
+    void getUserByIdUsesSingleRoundTrip() {
+        Long id = jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = ?", Long.class, EMAIL);
+        JdbcTemplate spy = spy(jdbcTemplate);
+        AuthServiceClient client = clientWith(spy);
+
+        UserInfo userInfo = client.getUserById(id);
+
+        assertNotNull(userInfo);
+        assertEquals(EMAIL, userInfo.getEmail());
+        verify(spy, times(1)).query(anyString(), any(UserInfoRowMapper.class), any(Object[].class));
+    }
+
+    @Test
+    void unknownUserReturnsNullWithoutFollowUpQueries() {
+        JdbcTemplate spy = spy(jdbcTemplate);
+        AuthServiceClient client = clientWith(spy);
+
+        assertNull(client.getUserByEmail("nobody@test.com"));
+        verify(spy, times(1)).query(anyString(), any(UserInfoRowMapper.class), any(Object[].class));
+    }
+
+    @Test
+    void aggregatedLookupMatchesSequentialLookup() {
+        AuthServiceClient client = clientWith(jdbcTemplate);
+
+        UserInfo aggregated = client.getUserByEmail(EMAIL);
+        UserInfo sequential = legacyLookup(EMAIL);
+
+        assertEquals(sequential.getId(), aggregated.getId());
+        assertEquals(sequential.getEmail(), aggregated.getEmail());
+        assertEquals(sequential.getName(), aggregated.getName());
+        assertEquals(sequential.getRoles(), aggregated.getRoles());
+        assertNull(client.getUserByEmail("nobody@test.com"));
+        assertNull(legacyLookup("nobody@test.com"));
+    }
+
+    private UserInfo legacyLookup(String email) {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE email = ?", Integer.class, email);
+        if (count == null || count == 0) {
+            return null;
+        }
+        Long id = jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = ?", Long.class, email);
+        String name = jdbcTemplate.queryForObject("SELECT name FROM users WHERE email = ?", String.class, email);
+        List<String> roles = jdbcTemplate.queryForList("SELECT r.name FROM roles r " +
+                "JOIN user_roles ur ON r.id = ur.role_id " +
+                "JOIN users u ON u.id = ur.user_id " +
+                "WHERE u.email = ?", String.class, email);
+        return UserInfo.builder().id(id).email(email).name(name).roles(roles).build();
+    }
+}
@@ -5,16 +5,24 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.jdbc.core.JdbcTemplate;
 import udehnih.report.model.UserInfo;
 import udehnih.report.util.JwtUtil;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -27,6 +35,9 @@ public class AuthServiceClientTest {
     @Mock
     private JdbcTemplate authJdbcTemplate;
 
+    @Spy
+    private UserInfoCache userInfoCache = new UserInfoCache(60, 100, null);
+
     @InjectMocks
     private AuthServiceClient authServiceClient;
 
@@ -40,16 +51,21 @@ public class AuthServiceClientTest {
     void setUp() {
     }
 
+    private UserInfo storedUser(String... roles) {
+        return UserInfo.builder()
+                .id(TEST_USER_ID)
+                .email(TEST_EMAIL)
+                .name(TEST_NAME)
+                .roles(new ArrayList<>(Arrays.asList(roles)))
+                .build();
+    }
+
     @Test
     void validateTokenSuccess() {
         when(jwtUtil.extractUsername(TEST_TOKEN)).thenReturn(TEST_EMAIL);
         when(jwtUtil.extractRole(TEST_TOKEN)).thenReturn(TEST_ROLE);
-        when(authJdbcTemplate.queryForObject(eq("SELECT COUNT(*) FROM users WHERE email = ?"), 
-                eq(Integer.class), eq(TEST_EMAIL))).thenReturn(1);
-        when(authJdbcTemplate.queryForObject(eq("SELECT id FROM users WHERE email = ?"), 
-                eq(Long.class), eq(TEST_EMAIL))).thenReturn(TEST_USER_ID);
-        when(authJdbcTemplate.queryForObject(eq("SELECT name FROM users WHERE email = ?"), 
-                eq(String.class), eq(TEST_EMAIL))).thenReturn(TEST_NAME);
+        when(authJdbcTemplate.query(eq(AuthServiceClient.USER_BY_EMAIL_SQL), any(UserInfoRowMapper.class), eq(TEST_EMAIL)))
+                .thenReturn(List.of(storedUser("STUDENT")));
 
         UserInfo result = authServiceClient.validateToken(TEST_TOKEN);
 
@@ -61,9 +77,8 @@ public class AuthServiceClientTest {
         
         verify(jwtUtil).extractUsername(TEST_TOKEN);
         verify(jwtUtil).extractRole(TEST_TOKEN);
-        verify(authJdbcTemplate).queryForObject(eq("SELECT COUNT(*) FROM users WHERE email = ?"), eq(Integer.class), eq(TEST_EMAIL));
-        verify(authJdbcTemplate).queryForObject(eq("SELECT id FROM users WHERE email = ?"), eq(Long.class), eq(TEST_EMAIL));
-        verify(authJdbcTemplate).queryForObject(eq("SELECT name FROM users WHERE email = ?"), eq(String.class), eq(TEST_EMAIL));
+        verify(authJdbcTemplate, times(1)).query(anyString(), any(UserInfoRowMapper.class), any(Object[].class));
+        verifyNoMoreInteractions(authJdbcTemplate);
     }
 
     @Test
@@ -75,63 +90,43 @@ public class AuthServiceClientTest {
         assertNull(result);
         verify(jwtUtil).extractUsername(TEST_TOKEN);
         verify(jwtUtil, never()).extractRole(anyString());
-        verify(authJdbcTemplate, never()).queryForObject(eq("SELECT COUNT(*) FROM users WHERE email = ?"), eq(Integer.class), eq(TEST_EMAIL));
+        verifyNoInteractions(authJdbcTemplate);
     }
 
     @Test
     void validateTokenUserNotFound() {
         when(jwtUtil.extractUsername(TEST_TOKEN)).thenReturn(TEST_EMAIL);
         when(jwtUtil.extractRole(TEST_TOKEN)).thenReturn(TEST_ROLE);
-        when(authJdbcTemplate.queryForObject(eq("SELECT COUNT(*) FROM users WHERE email = ?"), 
-                eq(Integer.class), eq(TEST_EMAIL))).thenReturn(0);
+        when(authJdbcTemplate.query(eq(AuthServiceClient.USER_BY_EMAIL_SQL), any(UserInfoRowMapper.class), eq(TEST_EMAIL)))
+                .thenReturn(Collections.emptyList());
 
         UserInfo result = authServiceClient.validateToken(TEST_TOKEN);
 
         assertNull(result);
         verify(jwtUtil).extractUsername(TEST_TOKEN);
         verify(jwtUtil).extractRole(TEST_TOKEN);
-        verify(authJdbcTemplate).queryForObject(eq("SELECT COUNT(*) FROM users WHERE email = ?"), 
-                eq(Integer.class), eq(TEST_EMAIL));
-        verify(authJdbcTemplate, never()).queryForObject(eq("SELECT id FROM users WHERE email = ?"), 
-                eq(Long.class), eq(TEST_EMAIL));
+        verify(authJdbcTemplate).query(eq(AuthServiceClient.USER_BY_EMAIL_SQL), any(UserInfoRowMapper.class), eq(TEST_EMAIL));
     }
 
     @Test
     void validateTokenExceptionDuringUserInfoRetrieval() {
         when(jwtUtil.extractUsername(TEST_TOKEN)).thenReturn(TEST_EMAIL);
         when(jwtUtil.extractRole(TEST_TOKEN)).thenReturn(TEST_ROLE);
-        when(authJdbcTemplate.queryForObject(eq("SELECT COUNT(*) FROM users WHERE email = ?"), 
-                eq(Integer.class), eq(TEST_EMAIL))).thenReturn(1);
-        when(authJdbcTemplate.queryForObject(eq("SELECT id FROM users WHERE email = ?"), 
-                eq(Long.class), eq(TEST_EMAIL))).thenThrow(new RuntimeException("Database error"));
+        when(authJdbcTemplate.query(eq(AuthServiceClient.USER_BY_EMAIL_SQL), any(UserInfoRowMapper.class), eq(TEST_EMAIL)))
+                .thenThrow(new RuntimeException("Database error"));
 
         UserInfo result = authServiceClient.validateToken(TEST_TOKEN);
 
         assertNull(result);
         verify(jwtUtil).extractUsername(TEST_TOKEN);
         verify(jwtUtil).extractRole(TEST_TOKEN);
-        verify(authJdbcTemplate).queryForObject(eq("SELECT COUNT(*) FROM users WHERE email = ?"), 
-                eq(Integer.class), eq(TEST_EMAIL));
-        verify(authJdbcTemplate).queryForObject(eq("SELECT id FROM users WHERE email = ?"), 
-                eq(Long.class), eq(TEST_EMAIL));
+        verify(authJdbcTemplate).query(eq(AuthServiceClient.USER_BY_EMAIL_SQL), any(UserInfoRowMapper.class), eq(TEST_EMAIL));
     }
 
     @Test
     void getUserByEmailSuccess() {
-        when(authJdbcTemplate.queryForObject(eq("SELECT COUNT(*) FROM users WHERE email = ?"), 
-                eq(Integer.class), eq(TEST_EMAIL))).thenReturn(1);
-        when(authJdbcTemplate.queryForObject(eq("SELECT id FROM users WHERE email = ?"), 
-                eq(Long.class), eq(TEST_EMAIL))).thenReturn(TEST_USER_ID);
-        when(authJdbcTemplate.queryForObject(eq("SELECT name FROM users WHERE email = ?"), 
-                eq(String.class), eq(TEST_EMAIL))).thenReturn(TEST_NAME);
-        
-        List<String> roles = Arrays.asList("ROLE_STUDENT");
-        String rolesSql = "SELECT r.name FROM roles r " +
-                         "JOIN user_roles ur ON r.id = ur.role_id " +
-                         "JOIN users u ON u.id = ur.user_id " +
-                         "WHERE u.email = ?";
-        when(authJdbcTemplate.queryForList(eq(rolesSql), eq(String.class), eq(TEST_EMAIL)))
-                .thenReturn(roles);
+        when(authJdbcTemplate.query(eq(AuthServiceClient.USER_BY_EMAIL_SQL), any(UserInfoRowMapper.class), eq(TEST_EMAIL)))
+                .thenReturn(List.of(storedUser("ROLE_STUDENT")));
 
         UserInfo result = authServiceClient.getUserByEmail(TEST_EMAIL);
 
@@ -141,98 +136,182 @@ public class AuthServiceClientTest {
         assertEquals(TEST_NAME, result.getName());
         assertEquals(1, result.getRoles().size());
         assertEquals("ROLE_STUDENT", result.getRoles().get(0));
+        verify(authJdbcTemplate, times(1)).query(anyString(), any(UserInfoRowMapper.class), any(Object[].class));
+        verifyNoMoreInteractions(authJdbcTemplate);
     }
 
     @Test
     void getUserByEmailUserNotFound() {
-        when(authJdbcTemplate.queryForObject(eq("SELECT COUNT(*) FROM users WHERE email = ?"), 
-                eq(Integer.class), eq(TEST_EMAIL))).thenReturn(0);
+        when(authJdbcTemplate.query(eq(AuthServiceClient.USER_BY_EMAIL_SQL), any(UserInfoRowMapper.class), eq(TEST_EMAIL)))
+                .thenReturn(Collections.emptyList());
 
         UserInfo result = authServiceClient.getUserByEmail(TEST_EMAIL);
 
         assertNull(result);
-        verify(authJdbcTemplate).queryForObject(eq("SELECT COUNT(*) FROM users WHERE email = ?"), 
-                eq(Integer.class), eq(TEST_EMAIL));
-        verify(authJdbcTemplate, never()).queryForObject(eq("SELECT id FROM users WHERE email = ?"), 
-                eq(Long.class), eq(TEST_EMAIL));
+        verify(authJdbcTemplate).query(eq(AuthServiceClient.USER_BY_EMAIL_SQL), any(UserInfoRowMapper.class), eq(TEST_EMAIL));
     }
 
     @Test
     void getUserByEmailExceptionDuringUserInfoRetrieval() {
-        when(authJdbcTemplate.queryForObject(eq("SELECT COUNT(*) FROM users WHERE email = ?"), 
-                eq(Integer.class), eq(TEST_EMAIL))).thenThrow(new RuntimeException("Database error"));
+        when(authJdbcTemplate.query(eq(AuthServiceClient.USER_BY_EMAIL_SQL), any(UserInfoRowMapper.class), eq(TEST_EMAIL)))
+                .thenThrow(new RuntimeException("Database error"));
 
         UserInfo result = authServiceClient.getUserByEmail(TEST_EMAIL);
 
         assertNull(result);
-        verify(authJdbcTemplate).queryForObject(eq("SELECT COUNT(*) FROM users WHERE email = ?"), 
-                eq(Integer.class), eq(TEST_EMAIL));
-    }
-
-    @Test
-    void getUserByEmailNoRolesFoundDefaultsToStudent() {
-        String countSql = "SELECT COUNT(*) FROM users WHERE email = ?";
-        when(authJdbcTemplate.queryForObject(eq(countSql), eq(Integer.class), eq(TEST_EMAIL)))
-                .thenReturn(1);
-                
-        String userIdSql = "SELECT id FROM users WHERE email = ?";
-        when(authJdbcTemplate.queryForObject(eq(userIdSql), eq(Long.class), eq(TEST_EMAIL)))
-                .thenReturn(TEST_USER_ID);
-                
-        String userNameSql = "SELECT name FROM users WHERE email = ?";
-        when(authJdbcTemplate.queryForObject(eq(userNameSql), eq(String.class), eq(TEST_EMAIL)))
-                .thenReturn(TEST_NAME);
-        
-        String rolesSql = "SELECT r.name FROM roles r " +
-                         "JOIN user_roles ur ON r.id = ur.role_id " +
-                         "JOIN users u ON u.id = ur.user_id " +
-                         "WHERE u.email = ?";
-        when(authJdbcTemplate.queryForList(eq(rolesSql), eq(String.class), eq(TEST_EMAIL)))
-                .thenReturn(new java.util.ArrayList<>()); // Empty list, not null
+        verify(authJdbcTemplate).query(eq(AuthServiceClient.USER_BY_EMAIL_SQL), any(UserInfoRowMapper.class), eq(TEST_EMAIL));
+    }
 
-        UserInfo result = authServiceClient.getUserByEmail(TEST_EMAIL);
+    @Test
+    void getUserByEmailWithNumericValueLooksUpById() {
+        when(authJdbcTemplate.query(eq(AuthServiceClient.USER_BY_ID_SQL), any(UserInfoRowMapper.class), eq(TEST_USER_ID)))
+                .thenReturn(List.of(storedUser("STUDENT")));
 
-        assertNotNull(result, "Result should not be null");
-        assertEquals(TEST_EMAIL, result.getEmail());
+        UserInfo result = authServiceClient.getUserByEmail(TEST_USER_ID.toString());
+
+        assertNotNull(result);
         assertEquals(TEST_USER_ID, result.getId());
-        assertEquals(TEST_NAME, result.getName());
-        assertEquals(1, result.getRoles().size(), "Should have one default role");
-        assertEquals("STUDENT", result.getRoles().get(0));
-        
-        verify(authJdbcTemplate).queryForObject(eq(countSql), eq(Integer.class), eq(TEST_EMAIL));
-        verify(authJdbcTemplate).queryForObject(eq(userIdSql), eq(Long.class), eq(TEST_EMAIL));
-        verify(authJdbcTemplate).queryForObject(eq(userNameSql), eq(String.class), eq(TEST_EMAIL));
-        verify(authJdbcTemplate).queryForList(eq(rolesSql), eq(String.class), eq(TEST_EMAIL));
+        assertEquals(TEST_EMAIL, result.getEmail());
+        verify(authJdbcTemplate, never()).query(eq(AuthServiceClient.USER_BY_EMAIL_SQL), any(UserInfoRowMapper.class), any(Object[].class));
     }
 
     @Test
-    void getUserByEmailExceptionDuringRolesRetrievalDefaultsToStudent() {
-        when(authJdbcTemplate.queryForObject(eq("SELECT COUNT(*) FROM users WHERE email = ?"), 
-                eq(Integer.class), eq(TEST_EMAIL))).thenReturn(1);
-        when(authJdbcTemplate.queryForObject(eq("SELECT id FROM users WHERE email = ?"), 
-                eq(Long.class), eq(TEST_EMAIL))).thenReturn(TEST_USER_ID);
-        when(authJdbcTemplate.queryForObject(eq("SELECT name FROM users WHERE email = ?"), 
-                eq(String.class), eq(TEST_EMAIL))).thenReturn(TEST_NAME);
-        
-        String rolesSql = "SELECT r.name FROM roles r " +
-                         "JOIN user_roles ur ON r.id = ur.role_id " +
-                         "JOIN users u ON u.id = ur.user_id " +
-                         "WHERE u.email = ?";
-        when(authJdbcTemplate.queryForList(eq(rolesSql), eq(String.class), eq(TEST_EMAIL)))
-                .thenThrow(new RuntimeException("Error retrieving roles"));
+    void getUserByIdSuccess() {
+        when(authJdbcTemplate.query(eq(AuthServiceClient.USER_BY_ID_SQL), any(UserInfoRowMapper.class), eq(TEST_USER_ID)))
+                .thenReturn(List.of(storedUser("STAFF", "STUDENT")));
 
-        UserInfo result = authServiceClient.getUserByEmail(TEST_EMAIL);
+        UserInfo result = authServiceClient.getUserById(TEST_USER_ID);
 
-        assertNotNull(result, "Result should not be null");
+        assertNotNull(result);
         assertEquals(TEST_EMAIL, result.getEmail());
-        assertEquals(TEST_USER_ID, result.getId());
         assertEquals(TEST_NAME, result.getName());
-        assertEquals(1, result.getRoles().size(), "Should have one default role");
-        assertEquals("STUDENT", result.getRoles().get(0));
-        
-        verify(authJdbcTemplate).queryForObject(eq("SELECT COUNT(*) FROM users WHERE email = ?"), eq(Integer.class), eq(TEST_EMAIL));
-        verify(authJdbcTemplate).queryForObject(eq("SELECT id FROM users WHERE email = ?"), eq(Long.class), eq(TEST_EMAIL));
-        verify(authJdbcTemplate).queryForObject(eq("SELECT name FROM users WHERE email = ?"), eq(String.class), eq(TEST_EMAIL));
-        verify(authJdbcTemplate).queryForList(eq(rolesSql), eq(String.class), eq(TEST_EMAIL));
+        assertEquals(Arrays.asList("STAFF", "STUDENT"), result.getRoles());
+        verify(authJdbcTemplate, times(1)).query(anyString(), any(UserInfoRowMapper.class), any(Object[].class));
+        verifyNoMoreInteractions(authJdbcTemplate);
+    }
+
+    @Test
+    void getUserByIdUserNotFound() {
+        when(authJdbcTemplate.query(eq(AuthServiceClient.USER_BY_ID_SQL), any(UserInfoRowMapper.class), eq(TEST_USER_ID)))
+                .thenReturn(Collections.emptyList());
+
+        assertNull(authServiceClient.getUserById(TEST_USER_ID));
+    }
+
+    @Test
+    void getUserByIdExceptionReturnsNull() {
+        when(authJdbcTemplate.query(eq(AuthServiceClient.USER_BY_ID_SQL), any(UserInfoRowMapper.class), eq(TEST_USER_ID)))
+                .thenThrow(new RuntimeException("Database error"));
+
+        assertNull(authServiceClient.getUserById(TEST_USER_ID));
+    }
+
+    @Test
+    void getUserByEmailServesRepeatedLookupsFromCache() {
+        when(authJdbcTemplate.query(eq(AuthServiceClient.USER_BY_EMAIL_SQL), any(UserInfoRowMapper.class), eq(TEST_EMAIL)))
+                .thenReturn(List.of(storedUser("STUDENT")));
+
+        UserInfo first = authServiceClient.getUserByEmail(TEST_EMAIL);
+        UserInfo second = authServiceClient.getUserByEmail(TEST_EMAIL);
+        UserInfo byId = authServiceClient.getUserById(TEST_USER_ID);
+
+        assertSame(first, second);
+        assertSame(first, byId);
+        verify(authJdbcTemplate, times(1)).query(anyString(), any(UserInfoRowMapper.class), any(Object[].class));
+    }
+
+    @Test
+    void missingUserIsNotCached() {
+        when(authJdbcTemplate.query(eq(AuthServiceClient.USER_BY_EMAIL_SQL), any(UserInfoRowMapper.class), eq(TEST_EMAIL)))
+                .thenReturn(Collections.emptyList());
+
+        assertNull(authServiceClient.getUserByEmail(TEST_EMAIL));
+        assertNull(authServiceClient.getUserByEmail(TEST_EMAIL));
+
+        verify(authJdbcTemplate, times(2)).query(anyString(), any(UserInfoRowMapper.class), any(Object[].class));
+    }
+
+    @Test
+    void invalidateUserForcesDatabaseLookup() {
+        when(authJdbcTemplate.query(eq(AuthServiceClient.USER_BY_EMAIL_SQL), any(UserInfoRowMapper.class), eq(TEST_EMAIL)))
+                .thenReturn(List.of(storedUser("STUDENT")));
+
+        authServiceClient.getUserByEmail(TEST_EMAIL);
+        authServiceClient.invalidateUser(TEST_EMAIL);
+        authServiceClient.getUserByEmail(TEST_EMAIL);
+
+        verify(authJdbcTemplate, times(2)).query(anyString(), any(UserInfoRowMapper.class), any(Object[].class));
+        verify(userInfoCache).invalidate(TEST_EMAIL);
+    }
+
+    @Test
+    void validateTokenDoesNotOverwriteCachedRoles() {
+        when(jwtUtil.extractUsername(TEST_TOKEN)).thenReturn(TEST_EMAIL);
+        when(jwtUtil.extractRole(TEST_TOKEN)).thenReturn(TEST_ROLE);
+        when(authJdbcTemplate.query(eq(AuthServiceClient.USER_BY_EMAIL_SQL), any(UserInfoRowMapper.class), eq(TEST_EMAIL)))
+                .thenReturn(List.of(storedUser("STAFF")));
+
+        UserInfo fromToken = authServiceClient.validateToken(TEST_TOKEN);
+        UserInfo stored = authServiceClient.getUserByEmail(TEST_EMAIL);
+
+        assertEquals(List.of(TEST_ROLE), fromToken.getRoles());
+        assertEquals(List.of("STAFF"), stored.getRoles());
+    }
+
+    @Test
+    void getUsersByIdsUsesBoundedNumberOfQueries() {
+        when(authJdbcTemplate.query(anyString(), any(UserInfoRowMapper.class), any(Object[].class)))
+                .thenReturn(Collections.emptyList());
+        List<Long> ids = LongStream.rangeClosed(1, 2_000).boxed().collect(Collectors.toList());
+
+        authServiceClient.getUsersByIds(ids);
+
+        int expectedQueries = (ids.size() + AuthServiceClient.BATCH_CHUNK_SIZE - 1) / AuthServiceClient.BATCH_CHUNK_SIZE;
+        verify(authJdbcTemplate, times(expectedQueries)).query(anyString(), any(UserInfoRowMapper.class), any(Object[].class));
+    }
+
+    @Test
+    void getUsersByIdsQueriesOnlyUncachedDistinctIds() {
+        UserInfo cached = storedUser("STUDENT");
+        userInfoCache.put(cached);
+        UserInfo other = UserInfo.builder().id(2L).email("other@example.com").name("Other").roles(List.of("STUDENT")).build();
+        when(authJdbcTemplate.query(contains("WHERE u.id IN (?)"), any(UserInfoRowMapper.class), eq(2L)))
+                .thenReturn(List.of(other));
+
+        Map<Long, UserInfo> result = authServiceClient.getUsersByIds(Arrays.asList(TEST_USER_ID, 2L, 2L, null));
+
+        assertEquals(2, result.size());
+        assertSame(cached, result.get(TEST_USER_ID));
+        assertSame(other, result.get(2L));
+        verify(authJdbcTemplate, times(1)).query(anyString(), any(UserInfoRowMapper.class), any(Object[].class));
+    }
+
+    @Test
+    void getUsersByEmailsReturnsFoundUsersKeyedByEmail() {
+        when(authJdbcTemplate.query(contains("WHERE u.email IN (?, ?)"), any(UserInfoRowMapper.class), eq(TEST_EMAIL), eq("missing@example.com")))
+                .thenReturn(List.of(storedUser("STUDENT")));
+
+        Map<String, UserInfo> result = authServiceClient.getUsersByEmails(Arrays.asList(TEST_EMAIL, "missing@example.com"));
+
+        assertEquals(1, result.size());
+        assertEquals(TEST_NAME, result.get(TEST_EMAIL).getName());
+        assertFalse(result.containsKey("missing@example.com"));
+    }
+
+    @Test
+    void getUsersByEmailsReturnsPartialResultWhenQueryFails() {
+        when(authJdbcTemplate.query(anyString(), any(UserInfoRowMapper.class), any(Object[].class)))
+                .thenThrow(new RuntimeException("Database error"));
+
+        Map<String, UserInfo> result = authServiceClient.getUsersByEmails(List.of(TEST_EMAIL));
+
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    void batchLookupsWithEmptyInputDoNotQuery() {
+        assertTrue(authServiceClient.getUsersByIds(Collections.emptyList()).isEmpty());
+        assertTrue(authServiceClient.getUsersByEmails(null).isEmpty());
+        verifyNoInteractions(authJdbcTemplate);
     }
 }
@@ -0,0 +1,110 @@
+package udehnih.report.client;
+
+import java.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AuthServiceHealthMonitorTest {
+
+    private static final String URL = "http://external-auth:8080";
+
+    private RestTemplate probeTemplate;
+    private AuthServiceHealthMonitor monitor;
+
+    @BeforeEach
+    void setUp() {
+        probeTemplate = mock(RestTemplate.class);
+        monitor = new AuthServiceHealthMonitor(URL, probeTemplate, 3, 2, Duration.ofSeconds(1));
+    }
+
+    @Test
+    void unavailableBeforeFirstProbe() {
+        assertNull(monitor.getState());
+        assertFalse(monitor.isAvailable());
+        assertEquals(Status.UNKNOWN, monitor.health().getStatus());
+    }
+
+    @Test
+    void firstSuccessfulProbeMarksServiceUp() {
+        when(probeTemplate.headForHeaders(URL)).thenReturn(new HttpHeaders());
+
+        monitor.probe();
+
+        assertEquals(AuthServiceHealthMonitor.State.UP, monitor.getState());
+        assertTrue(monitor.isAvailable());
+        assertEquals(Status.UP, monitor.health().getStatus());
+    }
+
+    @Test
+    void clientErrorStillCountsAsReachable() {
+        when(probeTemplate.headForHeaders(URL)).thenThrow(new HttpClientErrorException(HttpStatus.METHOD_NOT_ALLOWED));
+
+        monitor.probe();
+
+        assertTrue(monitor.isAvailable());
+    }
+
+    @Test
+    void goesDownOnlyAfterConsecutiveFailures() {
+        when(probeTemplate.headForHeaders(URL)).thenReturn(new HttpHeaders());
+        monitor.probe();
+        when(probeTemplate.headForHeaders(URL)).thenThrow(new ResourceAccessException("Connection refused"));
+
+        monitor.probe();
+        assertEquals(AuthServiceHealthMonitor.State.DEGRADED, monitor.getState());
+        assertTrue(monitor.isAvailable());
+        monitor.probe();
+        assertTrue(monitor.isAvailable());
+        monitor.probe();
+
+        assertEquals(AuthServiceHealthMonitor.State.DOWN, monitor.getState());
+        assertFalse(monitor.isAvailable());
+        assertEquals(AuthServiceHealthMonitor.LOCAL_FALLBACK_STATUS, monitor.health().getStatus());
+        assertEquals("Connection refused", monitor.health().getDetails().get("lastError"));
+    }
+
+    @Test
+    void recoversOnlyAfterConsecutiveSuccesses() {
+        monitor.recordFailure(new ResourceAccessException("Connection refused"));
+        assertEquals(AuthServiceHealthMonitor.State.DOWN, monitor.getState());
+
+        monitor.recordSuccess(Duration.ofMillis(10).toNanos());
+        assertFalse(monitor.isAvailable());
+        monitor.recordFailure(new ResourceAccessException("Connection refused"));
+        monitor.recordSuccess(Duration.ofMillis(10).toNanos());
+        assertFalse(monitor.isAvailable());
+        monitor.recordSuccess(Duration.ofMillis(10).toNanos());
+
+        assertEquals(AuthServiceHealthMonitor.State.UP, monitor.getState());
+    }
+
+    @Test
+    void slowResponsesAreDegradedButStillUsed() {
+        monitor.recordSuccess(Duration.ofSeconds(2).toNanos());
+
+        assertEquals(AuthServiceHealthMonitor.State.DEGRADED, monitor.getState());
+        assertTrue(monitor.isAvailable());
+        assertEquals(AuthServiceHealthMonitor.DEGRADED_STATUS, monitor.health().getStatus());
+    }
+
+    @Test
+    void localUrlIsNeverProbed() {
+        AuthServiceHealthMonitor local = new AuthServiceHealthMonitor("http://localhost:8000", probeTemplate, 3, 2,
+            Duration.ofSeconds(1));
+
+        local.probe();
+
+        verifyNoInteractions(probeTemplate);
+        assertEquals(Status.UP, local.health().getStatus());
+        assertEquals("local", local.health().getDetails().get("mode"));
+    }
+}
@@ -0,0 +1,80 @@
+package udehnih.report.client;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RoleVersionRegistryTest {
+
+    private static JdbcTemplate jdbcTemplate;
+    private static long userId;
+
+    @BeforeAll
+    static void setUpDatabase() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource();
+        dataSource.setDriverClassName("org.h2.Driver");
+        dataSource.setUrl("jdbc:h2:mem:authroleversions;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE");
+        dataSource.setUsername("sa");
+        dataSource.setPassword("sa");
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator();
+        populator.addScript(new ClassPathResource("auth-schema.sql"));
+        populator.execute(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        userId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = 'testreport@test.com'", Long.class);
+    }
+
+    @Test
+    void userWithoutRowIsAtVersionZero() {
+        RoleVersionRegistry registry = new RoleVersionRegistry(jdbcTemplate, 30, 10, null);
+
+        assertEquals(0L, registry.currentVersion(userId));
+        assertTrue(registry.isCurrent(userId, 0L));
+        assertFalse(registry.isCurrent(userId, null));
+    }
+
+    @Test
+    void repeatedChecksAreServedFromCache() {
+        JdbcTemplate spy = spy(jdbcTemplate);
+        RoleVersionRegistry registry = new RoleVersionRegistry(spy, 30, 10, null);
+
+        for (int i = 0; i < 5; i++) {
+            registry.isCurrent(userId, 0L);
+        }
+
+        verify(spy, times(1)).queryForList(eq(RoleVersionRegistry.ROLE_VERSION_SQL), eq(Long.class), any(Object[].class));
+    }
+
+    @Test
+    void bumpedVersionIsSeenAfterInvalidate() {
+        RoleVersionRegistry registry = new RoleVersionRegistry(jdbcTemplate, 30, 10, null);
+        assertTrue(registry.isCurrent(userId, 0L));
+
+        jdbcTemplate.update("MERGE INTO user_role_versions (user_id, role_version) KEY (user_id) VALUES (?, 1)", userId);
+        try {
+            assertTrue(registry.isCurrent(userId, 0L), "cached version is served until refreshed");
+            registry.invalidate(userId);
+            assertFalse(registry.isCurrent(userId, 0L));
+            assertTrue(registry.isCurrent(userId, 1L));
+        } finally {
+            jdbcTemplate.update("DELETE FROM user_role_versions WHERE user_id = ?", userId);
+        }
+    }
+
+    @Test
+    void unreadableVersionIsNeverCurrent() {
+        JdbcTemplate broken = mock(JdbcTemplate.class);
+        when(broken.queryForList(anyString(), eq(Long.class), any(Object[].class)))
+            .thenThrow(new RuntimeException("relation \"user_role_versions\" does not exist"));
+        RoleVersionRegistry registry = new RoleVersionRegistry(broken, 30, 10, null);
+
+        assertNull(registry.currentVersion(1L));
+        assertFalse(registry.isCurrent(1L, 0L));
+    }
+}
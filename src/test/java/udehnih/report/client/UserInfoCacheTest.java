@@ -0,0 +1,98 @@
+package udehnih.report.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import udehnih.report.model.UserInfo;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserInfoCacheTest {
+
+    private static UserInfo user(Long id, String email) {
+        return UserInfo.builder().id(id).email(email).name("User " + id).roles(List.of("STUDENT")).build();
+    }
+
+    @Test
+    void putMakesUserAvailableByEmailAndId() {
+        UserInfoCache cache = new UserInfoCache(60, 10, null);
+        UserInfo userInfo = user(1L, "a@test.com");
+
+        cache.put(userInfo);
+
+        assertSame(userInfo, cache.getByEmail("a@test.com"));
+        assertSame(userInfo, cache.getById(1L));
+    }
+
+    @Test
+    void invalidateByEmailAlsoDropsIdEntry() {
+        UserInfoCache cache = new UserInfoCache(60, 10, null);
+        cache.put(user(1L, "a@test.com"));
+
+        cache.invalidate("a@test.com");
+
+        assertNull(cache.getByEmail("a@test.com"));
+        assertNull(cache.getById(1L));
+    }
+
+    @Test
+    void invalidateByIdAlsoDropsEmailEntry() {
+        UserInfoCache cache = new UserInfoCache(60, 10, null);
+        cache.put(user(1L, "a@test.com"));
+
+        cache.invalidate(1L);
+
+        assertNull(cache.getByEmail("a@test.com"));
+        assertNull(cache.getById(1L));
+    }
+
+    @Test
+    void invalidateAllClearsEverything() {
+        UserInfoCache cache = new UserInfoCache(60, 10, null);
+        cache.put(user(1L, "a@test.com"));
+        cache.put(user(2L, "b@test.com"));
+
+        cache.invalidateAll();
+
+        assertNull(cache.getByEmail("a@test.com"));
+        assertNull(cache.getById(2L));
+    }
+
+    @Test
+    void zeroTtlDisablesCaching() {
+        UserInfoCache cache = new UserInfoCache(0, 10, null);
+        cache.put(user(1L, "a@test.com"));
+
+        assertNull(cache.getByEmail("a@test.com"));
+        assertNull(cache.getById(1L));
+        cache.invalidate("a@test.com");
+        cache.invalidateAll();
+    }
+
+    @Test
+    void nullKeysAreIgnored() {
+        UserInfoCache cache = new UserInfoCache(60, 10, null);
+        cache.put(null);
+        cache.put(user(null, null));
+
+        assertNull(cache.getByEmail(null));
+        assertNull(cache.getById(null));
+    }
+
+    @Test
+    void hitAndMissMetricsAreRegistered() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        UserInfoCache cache = new UserInfoCache(60, 10, registry);
+        cache.put(user(1L, "a@test.com"));
+
+        cache.getByEmail("a@test.com");
+        cache.getByEmail("missing@test.com");
+
+        assertEquals(1.0, registry.get("cache.gets").tag("cache", "userInfoByEmail").tag("result", "hit")
+                .functionCounter().count());
+        assertEquals(1.0, registry.get("cache.gets").tag("cache", "userInfoByEmail").tag("result", "miss")
+                .functionCounter().count());
+        assertNotNull(registry.find("cache.evictions").tag("cache", "userInfoById").functionCounter());
+    }
+}
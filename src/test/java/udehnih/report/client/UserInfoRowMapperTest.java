@@ -0,0 +1,49 @@
+package udehnih.report.client;
+
+import org.junit.jupiter.api.Test;
+import udehnih.report.model.UserInfo;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UserInfoRowMapperTest {
+
+    private final UserInfoRowMapper mapper = new UserInfoRowMapper();
+
+    @Test
+    void mapRowReadsUserColumnsAndRoles() throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        Array roles = mock(Array.class);
+        when(rs.getLong("id")).thenReturn(7L);
+        when(rs.wasNull()).thenReturn(false);
+        when(rs.getString("email")).thenReturn("staff@example.com");
+        when(rs.getString("name")).thenReturn("Staff User");
+        when(rs.getArray("roles")).thenReturn(roles);
+        when(roles.getArray()).thenReturn(new Object[] {"STAFF", null, "STUDENT"});
+
+        UserInfo userInfo = mapper.mapRow(rs, 0);
+
+        assertEquals(7L, userInfo.getId());
+        assertEquals("staff@example.com", userInfo.getEmail());
+        assertEquals("Staff User", userInfo.getName());
+        assertEquals(Arrays.asList("STAFF", "STUDENT"), userInfo.getRoles());
+        verify(roles).free();
+    }
+
+    @Test
+    void mapRowDefaultsToStudentWhenNoRoles() throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("id")).thenReturn(1L);
+        when(rs.getString("email")).thenReturn("student@example.com");
+        when(rs.getArray("roles")).thenReturn(null);
+
+        UserInfo userInfo = mapper.mapRow(rs, 0);
+
+        assertEquals(List.of("STUDENT"), userInfo.getRoles());
+    }
+}
@@ -1,11 +1,15 @@
 package udehnih.report.config;
 import static org.junit.jupiter.api.Assertions.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.task.DelegatingSecurityContextAsyncTaskExecutor;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
@@ -47,6 +51,22 @@ class AsyncConfigTest {
             fail("Test was interrupted while waiting for tasks to complete");
         }
     }
+    @Test
+
+    void taskExecutorShouldPropagateSecurityContextInOneHop() throws Exception {
+        Authentication authentication = new UsernamePasswordAuthenticationToken("async@example.com", null, java.util.List.of());
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+        try {
+            String[] seen = CompletableFuture.supplyAsync(() -> new String[] {
+                Thread.currentThread().getName(),
+                SecurityContextHolder.getContext().getAuthentication().getName()
+            }, asyncConfig.taskExecutor()).get(1, TimeUnit.SECONDS);
+            assertTrue(seen[0].startsWith("ReportThread-"));
+            assertEquals("async@example.com", seen[1]);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
     private static class ThreadNameCapturingTask implements Runnable {
         private volatile String threadName;
         @Override
@@ -0,0 +1,94 @@
+package udehnih.report.config;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+class AuthHttpClientConfigTest {
+    private HttpServer server;
+    private PoolingHttpClientConnectionManager connectionManager;
+    private CloseableHttpClient httpClient;
+    @BeforeEach
+
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/auth/login", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            byte[] body = "{\"token\":\"jwt\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+    }
+    @AfterEach
+
+    void tearDown() throws Exception {
+        if (httpClient != null) {
+            httpClient.close();
+        }
+        if (connectionManager != null) {
+            connectionManager.close();
+        }
+        server.stop(0);
+    }
+    @Test
+
+    void poolLimitsAndMetricsComeFromEnvironment() {
+        AuthHttpClientConfig config = config(new MockEnvironment()
+            .withProperty("AUTH_HTTP_MAX_CONNECTIONS", "20")
+            .withProperty("AUTH_HTTP_MAX_CONNECTIONS_PER_ROUTE", "5"));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+        connectionManager = config.authHttpConnectionManager(provider(registry));
+
+        assertEquals(20, connectionManager.getMaxTotal());
+        assertEquals(5, connectionManager.getDefaultMaxPerRoute());
+        assertNotNull(registry.find("httpcomponents.httpclient.pool.total.max")
+            .tag("httpclient", AuthHttpClientConfig.POOL_NAME).gauge());
+    }
+    @Test
+
+    void sequentialForwardsReuseOneConnection() {
+        AuthHttpClientConfig config = config(new MockEnvironment());
+        connectionManager = config.authHttpConnectionManager(provider(null));
+        httpClient = config.authHttpClient(connectionManager);
+        RestTemplate restTemplate = config.authRestTemplate(new RestTemplateBuilder(), httpClient);
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/auth/login";
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("{\"token\":\"jwt\"}", restTemplate.postForObject(url, "{}", String.class));
+        }
+
+        assertEquals(1, connectionManager.getTotalStats().getAvailable(),
+            "Kept-alive connection should be returned to the pool and reused");
+        assertEquals(0, connectionManager.getTotalStats().getLeased());
+    }
+
+    private static AuthHttpClientConfig config(MockEnvironment env) {
+        AuthHttpClientConfig config = new AuthHttpClientConfig();
+        ReflectionTestUtils.setField(config, "env", env);
+        return config;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ObjectProvider<MeterRegistry> provider(MeterRegistry registry) {
+        ObjectProvider<MeterRegistry> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(registry);
+        return provider;
+    }
+}
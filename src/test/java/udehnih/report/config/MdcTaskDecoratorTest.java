@@ -0,0 +1,29 @@
+package udehnih.report.config;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import java.util.concurrent.atomic.AtomicReference;
+import static org.junit.jupiter.api.Assertions.*;
+class MdcTaskDecoratorTest {
+    @Test
+
+    void submitterContextIsVisibleInTheTaskAndRestoredAfter() throws Exception {
+        MDC.put("requestId", "req-1");
+        Runnable decorated;
+        AtomicReference<String> seen = new AtomicReference<>();
+        AtomicReference<String> restored = new AtomicReference<>();
+        try {
+            decorated = new MdcTaskDecorator().decorate(() -> seen.set(MDC.get("requestId")));
+        } finally {
+            MDC.remove("requestId");
+        }
+        Thread worker = new Thread(() -> {
+            MDC.put("requestId", "worker");
+            decorated.run();
+            restored.set(MDC.get("requestId"));
+        });
+        worker.start();
+        worker.join();
+        assertEquals("req-1", seen.get());
+        assertEquals("worker", restored.get());
+    }
+}
@@ -0,0 +1,73 @@
+package udehnih.report.config;
+import static org.junit.jupiter.api.Assertions.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+class PermitLimitedTaskExecutorTest {
+    @Test
+
+    void runsTasksOnNamedVirtualThreads() throws Exception {
+        PermitLimitedTaskExecutor executor = AsyncConfig.virtualThreadExecutor(2, null);
+        AtomicReference<Thread> thread = new AtomicReference<>();
+        Future<?> future = executor.submit(() -> thread.set(Thread.currentThread()));
+        future.get(1, TimeUnit.SECONDS);
+        assertTrue(thread.get().isVirtual());
+        assertTrue(thread.get().getName().startsWith("ReportThread-"),
+                "Thread name should start with 'ReportThread-' but was: " + thread.get().getName());
+    }
+    @Test
+
+    void neverRunsMoreTasksThanPermits() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PermitLimitedTaskExecutor executor = AsyncConfig.virtualThreadExecutor(2, registry);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(6);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        for (int i = 0; i < 6; i++) {
+            executor.execute(() -> {
+                peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    release.await(2, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    running.decrementAndGet();
+                    done.countDown();
+                }
+            });
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (executor.getActiveCount() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(2, executor.getActiveCount());
+        assertEquals(4, executor.getQueueDepth());
+        assertEquals(4.0, registry.get(AsyncConfig.QUEUE_DEPTH_METRIC).gauge().value());
+        assertEquals(2.0, registry.get(AsyncConfig.ACTIVE_TASKS_METRIC).gauge().value());
+        release.countDown();
+        assertTrue(done.await(2, TimeUnit.SECONDS), "Queued tasks should run once permits are released");
+        assertEquals(2, peak.get());
+        assertEquals(0, executor.getQueueDepth());
+        assertEquals(0, executor.getActiveCount());
+    }
+    @Test
+
+    void rejectsNonPositiveConcurrency() {
+        assertThrows(IllegalArgumentException.class,
+            () -> new PermitLimitedTaskExecutor(Thread.ofVirtual().factory(), 0));
+    }
+    @Test
+
+    void platformExecutorExportsGauges() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AsyncConfig.platformThreadExecutor(registry).shutdown();
+        assertNotNull(registry.find(AsyncConfig.QUEUE_DEPTH_METRIC).tag("mode", AsyncConfig.PLATFORM_MODE).gauge());
+        assertNotNull(registry.find(AsyncConfig.ACTIVE_TASKS_METRIC).tag("mode", AsyncConfig.PLATFORM_MODE).gauge());
+    }
+}
@@ -16,6 +16,7 @@ import org.springframework.security.config.annotation.authentication.configurati
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import udehnih.report.filter.CorsFilter;
@@ -58,11 +59,32 @@ public class SecurityConfigTest {
     }
 
     @Test
-    void passwordEncoderShouldReturnBCryptPasswordEncoder() {
-        BCryptPasswordEncoder encoder = securityConfig.passwordEncoder();
-        
-        assertNotNull(encoder);
-        assertTrue(encoder instanceof BCryptPasswordEncoder);
+    void passwordEncoderShouldStorePrefixedBCryptAndAcceptLegacyHashes() {
+        PasswordEncoder encoder = securityConfig.passwordEncoder();
+        String legacy = new BCryptPasswordEncoder(4).encode("password");
+
+        String encoded = encoder.encode("password");
+
+        assertTrue(encoded.startsWith("{bcrypt}$2a$"));
+        assertTrue(encoder.matches("password", encoded));
+        assertFalse(encoder.upgradeEncoding(encoded));
+        assertTrue(encoder.matches("password", legacy));
+        assertTrue(encoder.upgradeEncoding(legacy));
+        // Cost 15 is above the default BCRYPT_MAX_COST of 14
+        assertTrue(encoder.upgradeEncoding("{bcrypt}$2a$15$ixlPY3AAd4ty1l6E2IsQ9OFZi2ba9ZQE0bP7RFcGIWNhyFrrT3YUi"));
+    }
+
+    @Test
+    void onlyRequestsOnASeparateManagementPortArePermittedWithoutAToken() {
+        MockHttpServletRequest onManagementPort = new MockHttpServletRequest("GET", "/actuator/prometheus");
+        onManagementPort.setLocalPort(8081);
+        MockHttpServletRequest onServerPort = new MockHttpServletRequest("GET", "/actuator/prometheus");
+        onServerPort.setLocalPort(8080);
+
+        assertTrue(SecurityConfig.managementPortRequests(8081, 8080).matches(onManagementPort));
+        assertFalse(SecurityConfig.managementPortRequests(8081, 8080).matches(onServerPort));
+        assertFalse(SecurityConfig.managementPortRequests(8080, 8080).matches(onServerPort));
+        assertFalse(SecurityConfig.managementPortRequests(null, 8080).matches(onManagementPort));
     }
 
     @Test
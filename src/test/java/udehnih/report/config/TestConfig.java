@@ -11,8 +11,10 @@ import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import udehnih.report.client.AuthServiceClient;
+import udehnih.report.client.RoleVersionRegistry;
 import udehnih.report.service.CustomUserDetailsService;
 import udehnih.report.service.ReportService;
+import udehnih.report.service.TokenRevocationService;
 import udehnih.report.util.JwtUtil;
 
 @TestConfiguration
@@ -97,6 +99,16 @@ public class TestConfig implements WebMvcConfigurer {
         return Mockito.mock(AuthServiceClient.class);
     }
 
+    @Bean
+    public RoleVersionRegistry roleVersionRegistry() {
+        return Mockito.mock(RoleVersionRegistry.class);
+    }
+
+    @Bean
+    public TokenRevocationService tokenRevocationService() {
+        return Mockito.mock(TokenRevocationService.class);
+    }
+
     @Bean
     public ReportService reportService() {
         return Mockito.mock(ReportService.class);
@@ -7,9 +7,11 @@ import udehnih.report.client.AuthServiceClient;
 import java.util.Arrays;
 import udehnih.report.factory.ReportFactory;
 import udehnih.report.dto.ReportRequestDto;
+import udehnih.report.dto.ReportSummary;
 import udehnih.report.enums.ReportStatus;
 import udehnih.report.config.TestConfig;
 import udehnih.report.exception.ReportNotFoundException;
+import udehnih.report.util.ResolvedPrincipal;
 import org.junit.jupiter.api.Test;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import static org.mockito.ArgumentMatchers.any;
@@ -19,9 +21,11 @@ import static org.mockito.Mockito.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import java.util.List;
@@ -230,6 +234,26 @@ public class ReportControllerTest {
                 .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isNotFound());
     }
+
+    @Test
+    @WithMockUser(username = "student@example.com", roles = {"STUDENT"})
+    void updateReportWithStaleVersionReturnsConflict() throws Exception {
+        Integer reportId = 4242;
+
+        ReportRequestDto request = new ReportRequestDto();
+        request.setTitle("Updated Report");
+        request.setDetail("Updated Detail");
+        request.setVersion(1L);
+
+        when(reportService.updateReport(eq(reportId), any(Report.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Report.class, reportId));
+
+        mockMvc.perform(put("/api/reports/{reportId}", reportId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .with(csrf())
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isConflict());
+    }
     
     @Test
     @WithMockUser(username = "student@example.com", roles = {"STUDENT"})
@@ -533,4 +557,84 @@ public class ReportControllerTest {
         mockMvc.perform(asyncDispatch(mvcResult))
                 .andExpect(status().isBadRequest());
     }
+
+    @Test
+    @WithMockUser(username = "resolved@example.com", roles = {"STUDENT"})
+    void getUserReportsReusesPrincipalResolvedByFilter() throws Exception {
+        String studentId = "54321";
+        String email = "resolved@example.com";
+
+        UserInfo userInfo = UserInfo.builder()
+            .id(Long.valueOf(studentId))
+            .email(email)
+            .name("Resolved Student")
+            .roles(Arrays.asList("STUDENT"))
+            .build();
+
+        List<Report> reports = Arrays.asList(
+            ReportFactory.createOpenReport(studentId, "Resolved Report", "Detail"));
+        when(reportService.getUserReports(studentId))
+            .thenReturn(CompletableFuture.completedFuture(reports));
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/reports")
+                .requestAttr(ResolvedPrincipal.REQUEST_ATTRIBUTE, userInfo)
+                .with(csrf()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].studentId").value(studentId));
+
+        verify(authServiceClient, never()).getUserByEmail(email);
+    }
+
+    @Test
+    @WithMockUser(username = "summary@example.com", roles = {"STUDENT"})
+    void getUserReportsWithSummaryViewOmitsDetail() throws Exception {
+        String studentId = "67890";
+        String email = "summary@example.com";
+
+        UserInfo userInfo = UserInfo.builder()
+            .id(Long.valueOf(studentId))
+            .email(email)
+            .name("Summary Student")
+            .roles(Arrays.asList("STUDENT"))
+            .build();
+        when(authServiceClient.getUserByEmail(email)).thenReturn(userInfo);
+
+        ReportSummary summary = new SpelAwareProxyProjectionFactory().createProjection(ReportSummary.class,
+            ReportFactory.createOpenReport(studentId, "Summary Report", "Long detail"));
+        when(reportService.getUserReportSummaries(studentId))
+            .thenReturn(CompletableFuture.completedFuture(List.of(summary)));
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/reports")
+                .param("view", "summary")
+                .with(csrf()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].title").value("Summary Report"))
+                .andExpect(jsonPath("$[0].status").value("OPEN"))
+                .andExpect(jsonPath("$[0].detail").doesNotExist());
+
+        verify(reportService, never()).getUserReports(studentId);
+    }
+
+    @Test
+    @WithMockUser(username = "badview@example.com", roles = {"STUDENT"})
+    void getUserReportsWithUnknownViewReturnsBadRequest() throws Exception {
+        MvcResult mvcResult = mockMvc.perform(get("/api/reports")
+                .param("view", "compact")
+                .with(csrf()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isBadRequest());
+    }
 }
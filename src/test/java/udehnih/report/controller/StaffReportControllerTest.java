@@ -5,16 +5,19 @@ import udehnih.report.service.ReportService;
 import udehnih.report.factory.ReportFactory;
 import udehnih.report.enums.ReportStatus;
 import udehnih.report.dto.RejectionRequestDto;
+import udehnih.report.dto.ReportCursor;
+import udehnih.report.dto.ReportPage;
+import udehnih.report.dto.ReportSummary;
 import udehnih.report.exception.ReportNotFoundException;
 import udehnih.report.exception.InvalidReportStateException;
 import udehnih.report.config.TestConfig;
 import udehnih.report.client.AuthServiceClient;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import static org.mockito.ArgumentMatchers.contains;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 import org.springframework.http.MediaType;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -24,12 +27,18 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import static org.mockito.Mockito.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -64,8 +73,8 @@ public class StaffReportControllerTest {
     @Test
     @WithMockUser(username = "staff@test.com", roles = {"STAFF"})
     void getAllReportsReturnsEmptyList() throws Exception {
-        when(reportService.getAllReports())
-            .thenReturn(CompletableFuture.completedFuture(Collections.emptyList()));
+        when(reportService.getReportsPage(any(), any(), any(), any(), anyInt()))
+            .thenReturn(CompletableFuture.completedFuture(new ReportPage<>(Collections.emptyList(), null)));
         
         MvcResult result = mockMvc.perform(get("/api/staff/reports")
                 .with(csrf()))
@@ -86,8 +95,8 @@ public class StaffReportControllerTest {
             ReportFactory.createOpenReport("67890", "Test Report 2", "Detail 2")
         );
         
-        when(reportService.getAllReports())
-            .thenReturn(CompletableFuture.completedFuture(reports));
+        when(reportService.getReportsPage(any(), any(), any(), any(), anyInt()))
+            .thenReturn(CompletableFuture.completedFuture(new ReportPage<>(reports, null)));
         
         // Mock the AuthServiceClient for student name lookup
         UserInfo userInfo1 = UserInfo.builder()
@@ -97,7 +106,7 @@ public class StaffReportControllerTest {
             .roles(Arrays.asList("ROLE_STUDENT"))
             .build();
             
-        when(authServiceClient.getUserByEmail(contains("12345"))).thenReturn(userInfo1);
+        doReturn(Map.of(12345L, userInfo1)).when(authServiceClient).getUsersByIds(anyCollection());
         
         MvcResult result = mockMvc.perform(get("/api/staff/reports")
                 .with(csrf()))
@@ -109,7 +118,11 @@ public class StaffReportControllerTest {
                 .andExpect(jsonPath("$").isArray())
                 .andExpect(jsonPath("$.length()").value(2))
                 .andExpect(jsonPath("$[0].title").value("Test Report 1"))
-                .andExpect(jsonPath("$[1].title").value("Test Report 2"));
+                .andExpect(jsonPath("$[1].title").value("Test Report 2"))
+                .andExpect(jsonPath("$[0].studentName").value("Student One"))
+                .andExpect(jsonPath("$[1].studentName").value("User 67890"));
+
+        verify(authServiceClient, never()).getUserById(anyLong());
     }
     @Test
     @WithMockUser(username = "staff@test.com", roles = {"STAFF"})
@@ -178,8 +191,8 @@ public class StaffReportControllerTest {
     @Test
     @WithMockUser(username = "staff@test.com", roles = {"STAFF"})
     void getAllReportsWithServerError() throws Exception {
-        when(reportService.getAllReports())
-            .thenReturn(CompletableFuture.completedFuture(Collections.emptyList()));
+        when(reportService.getReportsPage(any(), any(), any(), any(), anyInt()))
+            .thenReturn(CompletableFuture.completedFuture(new ReportPage<>(Collections.emptyList(), null)));
         
         MvcResult result = mockMvc.perform(get("/api/staff/reports")
                 .with(csrf()))
@@ -200,11 +213,11 @@ public class StaffReportControllerTest {
             ReportFactory.createOpenReport("12345@test.com", "Test Report 1", "Detail 1")
         );
         
-        when(reportService.getAllReports())
-            .thenReturn(CompletableFuture.completedFuture(reports));
+        when(reportService.getReportsPage(any(), any(), any(), any(), anyInt()))
+            .thenReturn(CompletableFuture.completedFuture(new ReportPage<>(reports, null)));
         
-        when(authServiceClient.getUserByEmail(contains("@")))
-            .thenThrow(new RuntimeException("Service unavailable"));
+        doThrow(new RuntimeException("Service unavailable"))
+            .when(authServiceClient).getUsersByEmails(anyCollection());
         
         MvcResult result = mockMvc.perform(get("/api/staff/reports")
                 .with(csrf()))
@@ -223,11 +236,11 @@ public class StaffReportControllerTest {
             ReportFactory.createOpenReport("12345@test.com", "Test Report 1", "Detail 1")
         );
         
-        when(reportService.getAllReports())
-            .thenReturn(CompletableFuture.completedFuture(reports));
+        when(reportService.getReportsPage(any(), any(), any(), any(), anyInt()))
+            .thenReturn(CompletableFuture.completedFuture(new ReportPage<>(reports, null)));
         
-        when(authServiceClient.getUserByEmail(contains("@")))
-            .thenReturn(null);
+        doReturn(Collections.emptyMap())
+            .when(authServiceClient).getUsersByEmails(anyCollection());
         
         MvcResult result = mockMvc.perform(get("/api/staff/reports")
                 .with(csrf()))
@@ -238,4 +251,126 @@ public class StaffReportControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$[0].studentName").value("Unknown"));
     }
+
+    @Test
+    @WithMockUser(username = "staff@test.com", roles = {"STAFF"})
+    void getAllReportsReturnsNextCursorHeaderWhenMorePagesExist() throws Exception {
+        List<Report> reports = Arrays.asList(
+            ReportFactory.createOpenReport("12345", "Paged Report", "Detail")
+        );
+        String nextCursor = new ReportCursor(LocalDateTime.of(2025, 5, 1, 10, 0), 42).encode();
+        when(reportService.getReportsPage(any(), any(), any(), any(), anyInt()))
+            .thenReturn(CompletableFuture.completedFuture(new ReportPage<>(reports, nextCursor)));
+
+        MvcResult result = mockMvc.perform(get("/api/staff/reports")
+                .with(csrf()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", nextCursor))
+                .andExpect(jsonPath("$.length()").value(1));
+    }
+
+    @Test
+    @WithMockUser(username = "staff@test.com", roles = {"STAFF"})
+    void getAllReportsPassesFiltersCursorAndCappedPageSize() throws Exception {
+        ReportCursor cursor = new ReportCursor(LocalDateTime.of(2025, 4, 30, 8, 15, 30), 7);
+        when(reportService.getReportsPage(any(), any(), any(), any(), anyInt()))
+            .thenReturn(CompletableFuture.completedFuture(new ReportPage<>(Collections.emptyList(), null)));
+
+        MvcResult result = mockMvc.perform(get("/api/staff/reports")
+                .param("cursor", cursor.encode())
+                .param("size", "5000")
+                .param("status", "REJECTED")
+                .param("from", "2025-01-01T00:00:00")
+                .param("to", "2025-06-01T00:00:00")
+                .with(csrf()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+
+        verify(reportService).getReportsPage(
+            eq(ReportStatus.REJECTED),
+            eq(LocalDateTime.of(2025, 1, 1, 0, 0)),
+            eq(LocalDateTime.of(2025, 6, 1, 0, 0)),
+            eq(cursor),
+            eq(StaffReportController.MAX_PAGE_SIZE));
+    }
+
+    @Test
+    @WithMockUser(username = "staff@test.com", roles = {"STAFF"})
+    void getAllReportsUsesDefaultPageSizeWithoutCursor() throws Exception {
+        when(reportService.getReportsPage(any(), any(), any(), any(), anyInt()))
+            .thenReturn(CompletableFuture.completedFuture(new ReportPage<>(Collections.emptyList(), null)));
+
+        MvcResult result = mockMvc.perform(get("/api/staff/reports")
+                .param("status", "CLOSED")
+                .with(csrf()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+
+        verify(reportService).getReportsPage(
+            eq(ReportStatus.CLOSED), isNull(), isNull(), isNull(), eq(StaffReportController.DEFAULT_PAGE_SIZE));
+    }
+
+    @Test
+    @WithMockUser(username = "staff@test.com", roles = {"STAFF"})
+    void getAllReportsWithInvalidCursorReturnsBadRequest() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/staff/reports")
+                .param("cursor", "not-a-cursor")
+                .with(csrf()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(username = "staff@test.com", roles = {"STAFF"})
+    void getAllReportsWithSummaryViewUsesProjectionAndKeepsStudentNames() throws Exception {
+        ReportSummary summary = new SpelAwareProxyProjectionFactory().createProjection(ReportSummary.class,
+            ReportFactory.createOpenReport("24680", "Summary Report", "Long detail"));
+        UserInfo student = UserInfo.builder().id(24680L).name("Summary Student").build();
+        doReturn(Map.of(24680L, student)).when(authServiceClient).getUsersByIds(anyCollection());
+        when(reportService.getReportSummariesPage(any(), any(), any(), any(), anyInt()))
+            .thenReturn(CompletableFuture.completedFuture(new ReportPage<>(List.of(summary), null)));
+
+        MvcResult result = mockMvc.perform(get("/api/staff/reports")
+                .param("view", "summary")
+                .param("status", "IN_PROGRESS")
+                .with(csrf()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].title").value("Summary Report"))
+                .andExpect(jsonPath("$[0].studentName").value("Summary Student"))
+                .andExpect(jsonPath("$[0].detail").doesNotExist());
+
+        verify(reportService, never()).getReportsPage(
+            eq(ReportStatus.IN_PROGRESS), any(), any(), any(), anyInt());
+    }
+
+    @Test
+    @WithMockUser(username = "staff@test.com", roles = {"STAFF"})
+    void getAllReportsWithUnknownViewReturnsBadRequest() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/staff/reports")
+                .param("view", "compact")
+                .with(csrf()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isBadRequest());
+    }
 }
@@ -1,5 +1,7 @@
 package udehnih.report.dto;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 import udehnih.report.model.Report;
 import udehnih.report.enums.ReportStatus;
 import udehnih.report.enums.RejectionMessage;
@@ -130,4 +132,38 @@ class ReportMapperTest {
         assertEquals(now, dto.getCreatedAt());
         assertEquals(now, dto.getUpdatedAt());
     }
-} 
\ No newline at end of file
+    @Test
+
+    void toDtoWithSummaryLeavesDetailEmpty() {
+        Report report = Report.builder()
+                .reportId(7)
+                .studentId("12345")
+                .title("Summary")
+                .detail("Long detail")
+                .status(ReportStatus.REJECTED)
+                .rejectionMessage(RejectionMessage.OTHER)
+                .build();
+        ReportSummary summary = new SpelAwareProxyProjectionFactory().createProjection(ReportSummary.class, report);
+        ReportResponseDto dto = ReportMapper.toDto(summary);
+        assertEquals(7, dto.getReportId());
+        assertEquals("Summary", dto.getTitle());
+        assertEquals(ReportStatus.REJECTED, dto.getStatus());
+        assertEquals(RejectionMessage.OTHER.getMessage(), dto.getRejectionMessageText());
+        assertNull(dto.getDetail());
+    }
+    @Test
+
+    void toDtoWithNullSummaryReturnsNull() {
+        assertNull(ReportMapper.toDto((ReportSummary) null));
+    }
+    @Test
+
+    void onlyTheSummaryViewLeavesDetailOutOfTheJson() throws Exception {
+        ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+        Report report = Report.builder().reportId(7).studentId("12345").title("Summary").build();
+        ReportSummary summary = new SpelAwareProxyProjectionFactory().createProjection(ReportSummary.class, report);
+
+        assertTrue(mapper.readTree(mapper.writeValueAsString(ReportMapper.toDto(report))).has("detail"));
+        assertFalse(mapper.readTree(mapper.writeValueAsString(ReportMapper.toDto(summary))).has("detail"));
+    }
+}
@@ -0,0 +1,49 @@
+package udehnih.report.dto;
+import org.junit.jupiter.api.Test;
+import java.time.LocalDateTime;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+class ReportPageTest {
+    @Test
+
+    void cursorRoundTripsThroughEncodedToken() {
+        ReportCursor cursor = new ReportCursor(LocalDateTime.of(2025, 5, 20, 14, 30, 15, 123000000), 42);
+        String token = cursor.encode();
+        assertFalse(token.contains("="));
+        assertFalse(token.contains("/"));
+        assertEquals(cursor, ReportCursor.decode(token));
+    }
+    @Test
+
+    void decodeRejectsMalformedTokens() {
+        assertThrows(IllegalArgumentException.class, () -> ReportCursor.decode("not-a-cursor"));
+        assertThrows(IllegalArgumentException.class, () -> ReportCursor.decode("***"));
+        String missingId = java.util.Base64.getUrlEncoder().encodeToString("2025-05-20T14:30|".getBytes());
+        assertThrows(IllegalArgumentException.class, () -> ReportCursor.decode(missingId));
+    }
+    @Test
+
+    void ofWithoutExtraRowHasNoNextCursor() {
+        ReportPage<Integer> page = ReportPage.of(List.of(3, 2, 1), 3,
+            i -> new ReportCursor(LocalDateTime.of(2025, 1, i, 0, 0), i));
+        assertEquals(List.of(3, 2, 1), page.getItems());
+        assertNull(page.getNextCursor());
+    }
+    @Test
+
+    void ofWithExtraRowTrimsAndPointsAtLastReturnedItem() {
+        ReportPage<Integer> page = ReportPage.of(List.of(4, 3, 2, 1), 3,
+            i -> new ReportCursor(LocalDateTime.of(2025, 1, i, 0, 0), i));
+        assertEquals(List.of(4, 3, 2), page.getItems());
+        assertEquals(new ReportCursor(LocalDateTime.of(2025, 1, 2, 0, 0), 2),
+            ReportCursor.decode(page.getNextCursor()));
+    }
+    @Test
+
+    void mapKeepsNextCursor() {
+        ReportPage<Integer> page = new ReportPage<>(List.of(1, 2), "abc");
+        ReportPage<String> mapped = page.map(String::valueOf);
+        assertEquals(List.of("1", "2"), mapped.getItems());
+        assertEquals("abc", mapped.getNextCursor());
+    }
+}
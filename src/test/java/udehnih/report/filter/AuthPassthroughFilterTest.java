@@ -0,0 +1,171 @@
+package udehnih.report.filter;
+import com.sun.net.httpserver.HttpServer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import udehnih.report.client.AuthServiceHealthMonitor;
+import udehnih.report.util.AppConstants;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+class AuthPassthroughFilterTest {
+    private static final String UPSTREAM_BODY = "{\"token\":\"upstream-jwt\"}";
+    private HttpServer server;
+    private CloseableHttpClient httpClient;
+    private AuthServiceHealthMonitor monitor;
+    private final AtomicReference<String> receivedBody = new AtomicReference<>();
+    private final AtomicReference<String> receivedRequestId = new AtomicReference<>();
+    private final AtomicReference<String> receivedCookie = new AtomicReference<>();
+    private volatile int upstreamStatus = 200;
+    @BeforeEach
+
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/auth/", exchange -> {
+            receivedBody.set(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            receivedRequestId.set(exchange.getRequestHeaders().getFirst(RequestLoggingFilter.REQUEST_ID_HEADER));
+            receivedCookie.set(exchange.getRequestHeaders().getFirst("Cookie"));
+            byte[] body = UPSTREAM_BODY.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.getResponseHeaders().add("Authorization", "Bearer upstream-jwt");
+            exchange.getResponseHeaders().add("X-Internal-Node", "auth-3");
+            exchange.sendResponseHeaders(upstreamStatus, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        httpClient = HttpClients.createDefault();
+        monitor = mock(AuthServiceHealthMonitor.class);
+        when(monitor.getAuthServiceUrl()).thenReturn("http://127.0.0.1:" + server.getAddress().getPort() + "/");
+        when(monitor.isAvailable()).thenReturn(true);
+    }
+    @AfterEach
+
+    void tearDown() throws Exception {
+        httpClient.close();
+        server.stop(0);
+    }
+
+    private AuthPassthroughFilter filter(MockEnvironment env) throws Exception {
+        AuthPassthroughFilter filter = new AuthPassthroughFilter();
+        ReflectionTestUtils.setField(filter, "env", env);
+        ReflectionTestUtils.setField(filter, "authHttpClient", httpClient);
+        ReflectionTestUtils.setField(filter, "authServiceHealthMonitor", monitor);
+        filter.afterPropertiesSet();
+        return filter;
+    }
+
+    private AuthPassthroughFilter enabledFilter() throws Exception {
+        return filter(new MockEnvironment().withProperty("AUTH_PASSTHROUGH_ENABLED", "true"));
+    }
+
+    private static MockHttpServletRequest login(String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/auth/login");
+        request.setContentType("application/json");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+    @Test
+
+    void relaysBytesAndOnlyAllowlistedHeaders() throws Exception {
+        MockHttpServletRequest request = login("{\"email\":\"a@b.c\",\"password\":\"pw\"}");
+        request.addHeader(RequestLoggingFilter.REQUEST_ID_HEADER, "req-1");
+        request.addHeader("Cookie", "session=secret");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        enabledFilter().doFilter(request, response, (req, res) -> fail("Relayed request must not reach the controller"));
+
+        assertEquals("{\"email\":\"a@b.c\",\"password\":\"pw\"}", receivedBody.get());
+        assertEquals("req-1", receivedRequestId.get());
+        assertNull(receivedCookie.get());
+        assertEquals(200, response.getStatus());
+        assertEquals(UPSTREAM_BODY, response.getContentAsString());
+        assertEquals("Bearer upstream-jwt", response.getHeader("Authorization"));
+        assertNull(response.getHeader("X-Internal-Node"));
+    }
+    @Test
+
+    void clientErrorsAreRelayedAsIs() throws Exception {
+        upstreamStatus = 401;
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        enabledFilter().doFilter(login("{}"), response, (req, res) -> fail("4xx must not fall back"));
+
+        assertEquals(401, response.getStatus());
+        assertEquals(UPSTREAM_BODY, response.getContentAsString());
+    }
+    @Test
+
+    void serverErrorFallsBackWithTheBufferedBody() throws Exception {
+        upstreamStatus = 503;
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicReference<String> replayed = new AtomicReference<>();
+        AtomicReference<Object> localOnly = new AtomicReference<>();
+
+        enabledFilter().doFilter(login("{\"email\":\"a@b.c\"}"), response, (req, res) -> {
+            replayed.set(new String(req.getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+            localOnly.set(req.getAttribute(AppConstants.AUTH_LOCAL_ONLY_ATTRIBUTE));
+        });
+
+        assertEquals("{\"email\":\"a@b.c\"}", replayed.get());
+        assertEquals(Boolean.TRUE, localOnly.get());
+        assertNull(response.getHeader("Authorization"));
+    }
+    @Test
+
+    void unreachableServiceFallsBackAndIsReported() throws Exception {
+        // Nothing listens on port 1, so the connection is refused
+        when(monitor.getAuthServiceUrl()).thenReturn("http://127.0.0.1:1");
+        AtomicReference<Boolean> reachedController = new AtomicReference<>(false);
+
+        enabledFilter().doFilter(login("{}"), new MockHttpServletResponse(), (req, res) -> reachedController.set(true));
+
+        assertTrue(reachedController.get());
+        verify(monitor).recordFailure(any(Exception.class));
+    }
+    @Test
+
+    void unavailableServiceIsNotTried() throws Exception {
+        when(monitor.isAvailable()).thenReturn(false);
+        AtomicReference<Boolean> reachedController = new AtomicReference<>(false);
+
+        enabledFilter().doFilter(login("{}"), new MockHttpServletResponse(), (req, res) -> reachedController.set(true));
+
+        assertTrue(reachedController.get());
+        assertNull(receivedBody.get());
+    }
+    @Test
+
+    void oversizedBodyIsRejected() throws Exception {
+        AuthPassthroughFilter filter = filter(new MockEnvironment()
+            .withProperty("AUTH_PASSTHROUGH_ENABLED", "true")
+            .withProperty("AUTH_PASSTHROUGH_MAX_BODY_BYTES", "8"));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(login("{\"email\":\"a@b.c\"}"), response, (req, res) -> fail("Must not reach the controller"));
+
+        assertEquals(413, response.getStatus());
+        assertNull(receivedBody.get());
+    }
+    @Test
+
+    void onlyEnabledAuthPostsArePassedThrough() throws Exception {
+        AuthPassthroughFilter disabled = filter(new MockEnvironment());
+        AuthPassthroughFilter enabled = enabledFilter();
+
+        assertTrue(disabled.shouldNotFilter(login("{}")));
+        assertFalse(enabled.shouldNotFilter(login("{}")));
+        assertTrue(enabled.shouldNotFilter(new MockHttpServletRequest("GET", "/auth/login")));
+        assertTrue(enabled.shouldNotFilter(new MockHttpServletRequest("POST", "/auth/revoke")));
+        assertTrue(enabled.shouldNotFilter(new MockHttpServletRequest("POST", "/api/reports")));
+    }
+}
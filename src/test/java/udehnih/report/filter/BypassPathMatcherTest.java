@@ -0,0 +1,34 @@
+package udehnih.report.filter;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import static org.junit.jupiter.api.Assertions.*;
+class BypassPathMatcherTest {
+    @Test
+
+    void defaultsCoverInfrastructurePaths() {
+        BypassPathMatcher matcher = BypassPathMatcher.of(null);
+        assertTrue(matcher.matches("/actuator/health"));
+        assertTrue(matcher.matches("/actuator/health/liveness"));
+        assertTrue(matcher.matches("/error"));
+        assertFalse(matcher.matches("/actuator/healthz"));
+        assertFalse(matcher.matches("/actuator/env"));
+        assertFalse(matcher.matches("/actuator/prometheus"));
+        assertFalse(matcher.matches("/api/reports"));
+        assertFalse(matcher.matches("/auth/login"));
+    }
+    @Test
+
+    void extraPatternsAreAdded() {
+        BypassPathMatcher matcher = BypassPathMatcher.of(" /api/test/public , /static/** ,");
+        assertTrue(matcher.matches("/api/test/public"));
+        assertTrue(matcher.matches("/static/app.js"));
+        assertFalse(matcher.matches("/api/test/publicity"));
+    }
+    @Test
+
+    void contextPathIsStripped() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/report/actuator/health");
+        request.setContextPath("/report");
+        assertTrue(BypassPathMatcher.of(null).matches(request));
+    }
+}
@@ -11,9 +11,15 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.security.core.context.SecurityContextHolder;
 import udehnih.report.client.AuthServiceClient;
+import udehnih.report.client.RoleVersionRegistry;
+import udehnih.report.config.JwtConfig;
 import udehnih.report.model.UserInfo;
+import udehnih.report.service.TokenRevocationService;
 import udehnih.report.util.AppConstants;
 import udehnih.report.util.JwtUtil;
+import udehnih.report.util.ResolvedPrincipal;
+import udehnih.report.util.VerifiedToken;
+import java.time.Instant;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Enumeration;
@@ -30,6 +36,12 @@ class JwtAuthenticationFilterTest {
     @Mock
     private AuthServiceClient authServiceClient;
     @Mock
+    private JwtConfig jwtConfig;
+    @Mock
+    private RoleVersionRegistry roleVersionRegistry;
+    @Mock
+    private TokenRevocationService tokenRevocationService;
+    @Mock
     private HttpServletRequest request;
     @Mock
     private HttpServletResponse response;
@@ -43,6 +55,14 @@ class JwtAuthenticationFilterTest {
     private final String testEmail = "test@example.com";
     private final String testRole = "STUDENT";
     private final String testAuthHeader = AppConstants.BEARER_PREFIX + testToken;
+    private static VerifiedToken verifiedToken(String subject, String role) {
+        return new VerifiedToken(subject, Arrays.asList(role.split(",")),
+            Instant.now().plusSeconds(3600), Instant.now());
+    }
+    private static VerifiedToken trustedToken(long userId, long roleVersion) {
+        return new VerifiedToken("trusted@example.com", List.of(AppConstants.ROLE_PREFIX + "STAFF"),
+            Instant.now().plusSeconds(3600), Instant.now(), userId, "Trusted User", roleVersion);
+    }
     @BeforeEach
 
     void setUp() {
@@ -52,14 +72,14 @@ class JwtAuthenticationFilterTest {
         when(request.getRequestURI()).thenReturn("/api/test");
         when(request.getHeaderNames()).thenReturn(headerNames);
         when(headerNames.hasMoreElements()).thenReturn(false);
+        // Most tests check what gets echoed back, so the client opts in by default
+        when(request.getHeader(AppConstants.AUTH_ECHO_HEADER)).thenReturn("true");
     }
     
     @Test
     void doFilterInternalShouldAuthenticateUserWhenValidTokenIsProvided() throws Exception {
         when(request.getHeader(AppConstants.AUTHORIZATION_HEADER)).thenReturn(testAuthHeader);
-        when(jwtUtil.extractUsername(testToken)).thenReturn(testEmail);
-        when(jwtUtil.extractRole(testToken)).thenReturn(AppConstants.ROLE_PREFIX + testRole);
-        when(jwtUtil.validateToken(eq(testToken), any())).thenReturn(true);
+        when(jwtUtil.verify(testToken)).thenReturn(verifiedToken(testEmail, AppConstants.ROLE_PREFIX + testRole));
         
         UserInfo userInfo = UserInfo.builder()
             .id(1L)
@@ -71,9 +91,7 @@ class JwtAuthenticationFilterTest {
         when(authServiceClient.getUserByEmail(testEmail)).thenReturn(userInfo);
         jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
         verify(request, atLeastOnce()).getHeader(AppConstants.AUTHORIZATION_HEADER);
-        verify(jwtUtil, atLeastOnce()).extractUsername(testToken);
-        verify(jwtUtil, atLeastOnce()).extractRole(testToken);
-        verify(jwtUtil, atLeastOnce()).validateToken(eq(testToken), any());
+        verify(jwtUtil, times(1)).verify(testToken);
         verify(response, atLeastOnce()).setHeader(eq("X-Auth-Status"), eq("authenticated"));
         verify(response, atLeastOnce()).setHeader(eq("X-Auth-Username"), eq(testEmail));
         verify(response, atLeastOnce()).setHeader(eq("X-Auth-Role"), eq(testRole));
@@ -88,9 +106,7 @@ class JwtAuthenticationFilterTest {
         when(request.getHeader(AppConstants.AUTHORIZATION_HEADER)).thenReturn(null);
         jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
         verify(request, atLeastOnce()).getHeader(AppConstants.AUTHORIZATION_HEADER);
-        verify(jwtUtil, never()).extractUsername(anyString());
-        verify(jwtUtil, never()).extractRole(anyString());
-        verify(jwtUtil, never()).validateToken(anyString(), any());
+        verify(jwtUtil, never()).verify(anyString());
         verify(filterChain).doFilter(request, response);
     }
 
@@ -99,36 +115,28 @@ class JwtAuthenticationFilterTest {
         when(request.getHeader(AppConstants.AUTHORIZATION_HEADER)).thenReturn("InvalidToken");
         jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
         verify(request, atLeastOnce()).getHeader(AppConstants.AUTHORIZATION_HEADER);
-        verify(jwtUtil, never()).extractUsername(anyString());
-        verify(jwtUtil, never()).extractRole(anyString());
-        verify(jwtUtil, never()).validateToken(anyString(), any());
+        verify(jwtUtil, never()).verify(anyString());
         verify(filterChain).doFilter(request, response);
     }
 
     @Test
     void doFilterInternalShouldHandleNullUsernameWhenExtractedFromToken() throws Exception {
         when(request.getHeader(AppConstants.AUTHORIZATION_HEADER)).thenReturn(testAuthHeader);
-        when(jwtUtil.extractUsername(testToken)).thenReturn(null);
-        when(jwtUtil.extractRole(testToken)).thenReturn(AppConstants.ROLE_PREFIX + testRole);
+        when(jwtUtil.verify(testToken)).thenReturn(verifiedToken(null, AppConstants.ROLE_PREFIX + testRole));
         jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
         verify(request, atLeastOnce()).getHeader(AppConstants.AUTHORIZATION_HEADER);
-        verify(jwtUtil, atLeastOnce()).extractUsername(testToken);
-        verify(jwtUtil, atLeastOnce()).extractRole(testToken);
-        verify(jwtUtil, never()).validateToken(anyString(), any());
+        verify(jwtUtil, times(1)).verify(testToken);
+        verify(authServiceClient, never()).getUserByEmail(anyString());
         verify(filterChain).doFilter(request, response);
     }
 
     @Test
     void doFilterInternalShouldHandleInvalidTokenWhenValidationFails() throws Exception {
         when(request.getHeader(AppConstants.AUTHORIZATION_HEADER)).thenReturn(testAuthHeader);
-        when(jwtUtil.extractUsername(testToken)).thenReturn(testEmail);
-        when(jwtUtil.extractRole(testToken)).thenReturn(AppConstants.ROLE_PREFIX + testRole);
-        when(jwtUtil.validateToken(eq(testToken), any())).thenReturn(false);
+        when(jwtUtil.verify(testToken)).thenReturn(null);
         jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
         verify(request, atLeastOnce()).getHeader(AppConstants.AUTHORIZATION_HEADER);
-        verify(jwtUtil, atLeastOnce()).extractUsername(testToken);
-        verify(jwtUtil, atLeastOnce()).extractRole(testToken);
-        verify(jwtUtil, atLeastOnce()).validateToken(eq(testToken), any());
+        verify(jwtUtil, times(1)).verify(testToken);
         verify(response, never()).setHeader(eq("X-Auth-Status"), eq("authenticated"));
         verify(filterChain).doFilter(request, response);
     }
@@ -136,10 +144,10 @@ class JwtAuthenticationFilterTest {
 
     void doFilterInternalShouldHandleExceptionDuringAuthentication() throws Exception {
         when(request.getHeader(AppConstants.AUTHORIZATION_HEADER)).thenReturn(testAuthHeader);
-        when(jwtUtil.extractUsername(testToken)).thenThrow(new RuntimeException("Test exception"));
+        when(jwtUtil.verify(testToken)).thenThrow(new RuntimeException("Test exception"));
         jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
         verify(request, atLeastOnce()).getHeader(AppConstants.AUTHORIZATION_HEADER);
-        verify(jwtUtil, atLeastOnce()).extractUsername(testToken);
+        verify(jwtUtil, atLeastOnce()).verify(testToken);
         verify(response, atLeastOnce()).setHeader(eq("X-Auth-Status"), eq("unauthenticated"));
         verify(response, atLeastOnce()).setHeader(eq("X-Auth-Error"), anyString());
         verify(filterChain).doFilter(request, response);
@@ -148,9 +156,7 @@ class JwtAuthenticationFilterTest {
 
     void addUserIdToHeaderShouldHandleDatabaseException() throws Exception {
         when(request.getHeader(AppConstants.AUTHORIZATION_HEADER)).thenReturn(testAuthHeader);
-        when(jwtUtil.extractUsername(testToken)).thenReturn(testEmail);
-        when(jwtUtil.extractRole(testToken)).thenReturn(AppConstants.ROLE_PREFIX + testRole);
-        when(jwtUtil.validateToken(eq(testToken), any())).thenReturn(true);
+        when(jwtUtil.verify(testToken)).thenReturn(verifiedToken(testEmail, AppConstants.ROLE_PREFIX + testRole));
         when(authServiceClient.getUserByEmail(testEmail))
                 .thenThrow(new RuntimeException("Database error"));
         jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
@@ -160,9 +166,7 @@ class JwtAuthenticationFilterTest {
     @Test
     void setUserInfoHeadersShouldHandleDatabaseException() throws Exception {
         when(request.getHeader(AppConstants.AUTHORIZATION_HEADER)).thenReturn(testAuthHeader);
-        when(jwtUtil.extractUsername(testToken)).thenReturn(testEmail);
-        when(jwtUtil.extractRole(testToken)).thenReturn(AppConstants.ROLE_PREFIX + testRole);
-        when(jwtUtil.validateToken(eq(testToken), any())).thenReturn(true);
+        when(jwtUtil.verify(testToken)).thenReturn(verifiedToken(testEmail, AppConstants.ROLE_PREFIX + testRole));
         
         UserInfo userInfo = UserInfo.builder()
             .id(1L)
@@ -184,9 +188,7 @@ class JwtAuthenticationFilterTest {
     @Test
     void testSetAuthenticationCookies() throws Exception {
         when(request.getHeader(AppConstants.AUTHORIZATION_HEADER)).thenReturn(testAuthHeader);
-        when(jwtUtil.extractUsername(testToken)).thenReturn(testEmail);
-        when(jwtUtil.extractRole(testToken)).thenReturn(AppConstants.ROLE_PREFIX + testRole);
-        when(jwtUtil.validateToken(eq(testToken), any())).thenReturn(true);
+        when(jwtUtil.verify(testToken)).thenReturn(verifiedToken(testEmail, AppConstants.ROLE_PREFIX + testRole));
         
         UserInfo userInfo = UserInfo.builder()
             .id(1L)
@@ -224,9 +226,7 @@ class JwtAuthenticationFilterTest {
     @Test
     void testSetCacheControlHeaders() throws Exception {
         when(request.getHeader(AppConstants.AUTHORIZATION_HEADER)).thenReturn(testAuthHeader);
-        when(jwtUtil.extractUsername(testToken)).thenReturn(testEmail);
-        when(jwtUtil.extractRole(testToken)).thenReturn(AppConstants.ROLE_PREFIX + testRole);
-        when(jwtUtil.validateToken(eq(testToken), any())).thenReturn(true);
+        when(jwtUtil.verify(testToken)).thenReturn(verifiedToken(testEmail, AppConstants.ROLE_PREFIX + testRole));
         
         UserInfo userInfo = UserInfo.builder()
             .id(1L)
@@ -249,9 +249,7 @@ class JwtAuthenticationFilterTest {
         String multipleRoles = AppConstants.ROLE_PREFIX + testRole + "," + AppConstants.ROLE_PREFIX + "STAFF";
         
         when(request.getHeader(AppConstants.AUTHORIZATION_HEADER)).thenReturn(testAuthHeader);
-        when(jwtUtil.extractUsername(testToken)).thenReturn(testEmail);
-        when(jwtUtil.extractRole(testToken)).thenReturn(multipleRoles);
-        when(jwtUtil.validateToken(eq(testToken), any())).thenReturn(true);
+        when(jwtUtil.verify(testToken)).thenReturn(verifiedToken(testEmail, multipleRoles));
         
         UserInfo userInfo = UserInfo.builder()
             .id(1L)
@@ -270,9 +268,7 @@ class JwtAuthenticationFilterTest {
     @Test
     void testAuthenticateUserWithEmptyRoles() throws Exception {
         when(request.getHeader(AppConstants.AUTHORIZATION_HEADER)).thenReturn(testAuthHeader);
-        when(jwtUtil.extractUsername(testToken)).thenReturn(testEmail);
-        when(jwtUtil.extractRole(testToken)).thenReturn("");
-        when(jwtUtil.validateToken(eq(testToken), any())).thenReturn(true);
+        when(jwtUtil.verify(testToken)).thenReturn(verifiedToken(testEmail, ""));
         
         UserInfo userInfo = UserInfo.builder()
             .id(1L)
@@ -294,24 +290,19 @@ class JwtAuthenticationFilterTest {
         when(request.getHeaderNames()).thenReturn(headerNames);
         when(headerNames.hasMoreElements()).thenReturn(true, true, false);
         when(headerNames.nextElement()).thenReturn("Content-Type", "Accept");
-        when(request.getHeader("Content-Type")).thenReturn("application/json");
-        when(request.getHeader("Accept")).thenReturn("*/*");
         
         jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
         
-        verify(request, atLeastOnce()).getHeaderNames();
-        verify(headerNames, times(3)).hasMoreElements();
-        verify(headerNames, times(2)).nextElement();
-        verify(request).getHeader("Content-Type");
-        verify(request).getHeader("Accept");
+        // Headers are only enumerated when TRACE is enabled, which it is not by default
+        verify(request, never()).getHeaderNames();
+        verify(headerNames, never()).nextElement();
+        verify(filterChain).doFilter(request, response);
     }
     
     @Test
     void testDefaultRoleAssignmentWhenAuthoritiesAreEmpty() throws Exception {
         when(request.getHeader(AppConstants.AUTHORIZATION_HEADER)).thenReturn(testAuthHeader);
-        when(jwtUtil.extractUsername(testToken)).thenReturn(testEmail);
-        when(jwtUtil.extractRole(testToken)).thenReturn("");
-        when(jwtUtil.validateToken(eq(testToken), any())).thenReturn(true);
+        when(jwtUtil.verify(testToken)).thenReturn(verifiedToken(testEmail, ""));
         
         UserInfo userInfo = UserInfo.builder()
             .id(1L)
@@ -340,9 +331,7 @@ class JwtAuthenticationFilterTest {
     @Test
     void testAuthenticateUserWithRoleWithoutPrefix() throws Exception {
         when(request.getHeader(AppConstants.AUTHORIZATION_HEADER)).thenReturn(testAuthHeader);
-        when(jwtUtil.extractUsername(testToken)).thenReturn(testEmail);
-        when(jwtUtil.extractRole(testToken)).thenReturn("STUDENT");
-        when(jwtUtil.validateToken(eq(testToken), any())).thenReturn(true);
+        when(jwtUtil.verify(testToken)).thenReturn(verifiedToken(testEmail, "STUDENT"));
         
         UserInfo userInfo = UserInfo.builder()
             .id(1L)
@@ -369,9 +358,7 @@ class JwtAuthenticationFilterTest {
     @Test
     void testAddUserIdToHeaderWhenUserInfoIsNull() throws Exception {
         when(request.getHeader(AppConstants.AUTHORIZATION_HEADER)).thenReturn(testAuthHeader);
-        when(jwtUtil.extractUsername(testToken)).thenReturn(testEmail);
-        when(jwtUtil.extractRole(testToken)).thenReturn(AppConstants.ROLE_PREFIX + testRole);
-        when(jwtUtil.validateToken(eq(testToken), any())).thenReturn(true);
+        when(jwtUtil.verify(testToken)).thenReturn(verifiedToken(testEmail, AppConstants.ROLE_PREFIX + testRole));
         
         when(authServiceClient.getUserByEmail(testEmail)).thenReturn(null);
         
@@ -383,9 +370,7 @@ class JwtAuthenticationFilterTest {
     @Test
     void testAddUserIdToHeaderWhenUserIdIsNull() throws Exception {
         when(request.getHeader(AppConstants.AUTHORIZATION_HEADER)).thenReturn(testAuthHeader);
-        when(jwtUtil.extractUsername(testToken)).thenReturn(testEmail);
-        when(jwtUtil.extractRole(testToken)).thenReturn(AppConstants.ROLE_PREFIX + testRole);
-        when(jwtUtil.validateToken(eq(testToken), any())).thenReturn(true);
+        when(jwtUtil.verify(testToken)).thenReturn(verifiedToken(testEmail, AppConstants.ROLE_PREFIX + testRole));
         
         UserInfo userInfo = UserInfo.builder()
             .id(null)
@@ -404,9 +389,7 @@ class JwtAuthenticationFilterTest {
     @Test
     void testSetUserInfoHeadersWhenUserNameIsNull() throws Exception {
         when(request.getHeader(AppConstants.AUTHORIZATION_HEADER)).thenReturn(testAuthHeader);
-        when(jwtUtil.extractUsername(testToken)).thenReturn(testEmail);
-        when(jwtUtil.extractRole(testToken)).thenReturn(AppConstants.ROLE_PREFIX + testRole);
-        when(jwtUtil.validateToken(eq(testToken), any())).thenReturn(true);
+        when(jwtUtil.verify(testToken)).thenReturn(verifiedToken(testEmail, AppConstants.ROLE_PREFIX + testRole));
         
         UserInfo userInfo = UserInfo.builder()
             .id(1L)
@@ -425,9 +408,7 @@ class JwtAuthenticationFilterTest {
     @Test
     void testSetAuthenticationCookiesWithSpecificValues() throws Exception {
         when(request.getHeader(AppConstants.AUTHORIZATION_HEADER)).thenReturn(testAuthHeader);
-        when(jwtUtil.extractUsername(testToken)).thenReturn(testEmail);
-        when(jwtUtil.extractRole(testToken)).thenReturn(AppConstants.ROLE_PREFIX + testRole);
-        when(jwtUtil.validateToken(eq(testToken), any())).thenReturn(true);
+        when(jwtUtil.verify(testToken)).thenReturn(verifiedToken(testEmail, AppConstants.ROLE_PREFIX + testRole));
         
         UserInfo userInfo = UserInfo.builder()
             .id(1L)
@@ -465,9 +446,7 @@ class JwtAuthenticationFilterTest {
     @Test
     void testSetCacheControlHeadersWithSpecificValues() throws Exception {
         when(request.getHeader(AppConstants.AUTHORIZATION_HEADER)).thenReturn(testAuthHeader);
-        when(jwtUtil.extractUsername(testToken)).thenReturn(testEmail);
-        when(jwtUtil.extractRole(testToken)).thenReturn(AppConstants.ROLE_PREFIX + testRole);
-        when(jwtUtil.validateToken(eq(testToken), any())).thenReturn(true);
+        when(jwtUtil.verify(testToken)).thenReturn(verifiedToken(testEmail, AppConstants.ROLE_PREFIX + testRole));
         
         UserInfo userInfo = UserInfo.builder()
             .id(1L)
@@ -484,4 +463,164 @@ class JwtAuthenticationFilterTest {
         verify(response).setHeader(eq("Pragma"), eq("no-cache"));
         verify(response).setHeader(eq("Expires"), eq("0"));
     }
+
+    @Test
+    void doFilterInternalShouldResolveUserOnceAndStoreIt() throws Exception {
+        when(request.getHeader(AppConstants.AUTHORIZATION_HEADER)).thenReturn(testAuthHeader);
+        when(jwtUtil.verify(testToken)).thenReturn(verifiedToken(testEmail, AppConstants.ROLE_PREFIX + testRole));
+
+        UserInfo userInfo = UserInfo.builder()
+            .id(1L)
+            .email(testEmail)
+            .name("Test User")
+            .roles(Collections.singletonList(testRole))
+            .build();
+        when(authServiceClient.getUserByEmail(testEmail)).thenReturn(userInfo);
+
+        jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
+
+        verify(authServiceClient, times(1)).getUserByEmail(testEmail);
+        verify(request).setAttribute(ResolvedPrincipal.REQUEST_ATTRIBUTE, userInfo);
+        verify(response).setHeader("X-User-Id", "1");
+        verify(response).setHeader("X-Auth-Name", "Test User");
+    }
+
+    @Test
+    void doFilterInternalShouldNotStorePrincipalWhenValidationFails() throws Exception {
+        when(request.getHeader(AppConstants.AUTHORIZATION_HEADER)).thenReturn(testAuthHeader);
+        when(jwtUtil.verify(testToken)).thenReturn(null);
+        when(authServiceClient.getUserByEmail(testEmail)).thenReturn(UserInfo.builder()
+            .id(1L)
+            .email(testEmail)
+            .roles(Collections.singletonList(testRole))
+            .build());
+
+        jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
+
+        verify(request, never()).setAttribute(eq(ResolvedPrincipal.REQUEST_ATTRIBUTE), any());
+    }
+
+    @Test
+
+    void trustedClaimsWithCurrentRoleVersionSkipTheAuthDatabase() throws Exception {
+        when(request.getHeader(AppConstants.AUTHORIZATION_HEADER)).thenReturn(testAuthHeader);
+        when(jwtUtil.verify(testToken)).thenReturn(trustedToken(7L, 2L));
+        when(jwtConfig.isTrustedClaimsEnabled()).thenReturn(true);
+        when(roleVersionRegistry.isCurrent(7L, 2L)).thenReturn(true);
+        jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
+        verify(authServiceClient, never()).getUserByEmail(anyString());
+        ArgumentCaptor<Object> stored = ArgumentCaptor.forClass(Object.class);
+        verify(request).setAttribute(eq(ResolvedPrincipal.REQUEST_ATTRIBUTE), stored.capture());
+        UserInfo userInfo = (UserInfo) stored.getValue();
+        assertEquals(7L, userInfo.getId());
+        assertEquals("trusted@example.com", userInfo.getEmail());
+        assertEquals(List.of("STAFF"), userInfo.getRoles());
+        assertTrue(SecurityContextHolder.getContext().getAuthentication().getAuthorities().stream()
+            .anyMatch(a -> a.getAuthority().equals("ROLE_STAFF")));
+        verify(response).setHeader("X-User-Id", "7");
+        verify(response).setHeader("X-Auth-Name", "Trusted User");
+        verify(filterChain).doFilter(request, response);
+    }
+    @Test
+
+    void trustedClaimsWithStaleRoleVersionReadTheAuthDatabase() throws Exception {
+        when(request.getHeader(AppConstants.AUTHORIZATION_HEADER)).thenReturn(testAuthHeader);
+        when(jwtUtil.verify(testToken)).thenReturn(trustedToken(7L, 1L));
+        when(jwtConfig.isTrustedClaimsEnabled()).thenReturn(true);
+        when(roleVersionRegistry.isCurrent(7L, 1L)).thenReturn(false);
+        when(authServiceClient.getUserByEmail("trusted@example.com")).thenReturn(UserInfo.builder()
+            .id(7L).email("trusted@example.com").name("Trusted User").roles(List.of("STUDENT")).build());
+        jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
+        verify(authServiceClient).getUserByEmail("trusted@example.com");
+        assertTrue(SecurityContextHolder.getContext().getAuthentication().getAuthorities().stream()
+            .allMatch(a -> a.getAuthority().equals("ROLE_STUDENT")));
+        verify(filterChain).doFilter(request, response);
+    }
+    @Test
+
+    void identityClaimsAreIgnoredWhenTrustedModeIsDisabled() throws Exception {
+        when(request.getHeader(AppConstants.AUTHORIZATION_HEADER)).thenReturn(testAuthHeader);
+        when(jwtUtil.verify(testToken)).thenReturn(trustedToken(7L, 2L));
+        when(jwtConfig.isTrustedClaimsEnabled()).thenReturn(false);
+        jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
+        verify(roleVersionRegistry, never()).isCurrent(any(), any());
+        verify(authServiceClient).getUserByEmail("trusted@example.com");
+        verify(filterChain).doFilter(request, response);
+    }
+    @Test
+
+    void revokedTokenIsNotAuthenticated() throws Exception {
+        VerifiedToken verified = verifiedToken(testEmail, AppConstants.ROLE_PREFIX + testRole);
+        when(request.getHeader(AppConstants.AUTHORIZATION_HEADER)).thenReturn(testAuthHeader);
+        when(jwtUtil.verify(testToken)).thenReturn(verified);
+        when(tokenRevocationService.isRevoked(verified)).thenReturn(true);
+        jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
+        assertEquals(null, SecurityContextHolder.getContext().getAuthentication());
+        verify(authServiceClient, never()).getUserByEmail(anyString());
+        verify(filterChain).doFilter(request, response);
+    }
+    @Test
+
+    void apiResponsesCarryNoAuthenticationHeadersUnlessRequested() throws Exception {
+        when(request.getHeader(AppConstants.AUTH_ECHO_HEADER)).thenReturn(null);
+        when(request.getHeader(AppConstants.AUTHORIZATION_HEADER)).thenReturn(testAuthHeader);
+        when(jwtUtil.verify(testToken)).thenReturn(verifiedToken(testEmail, AppConstants.ROLE_PREFIX + testRole));
+        when(authServiceClient.getUserByEmail(testEmail)).thenReturn(UserInfo.builder()
+            .id(1L).email(testEmail).name("Test User").roles(List.of(testRole)).build());
+        jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
+        assertTrue(SecurityContextHolder.getContext().getAuthentication().isAuthenticated());
+        verify(request).setAttribute("X-User-Email", testEmail);
+        verify(response, never()).setHeader(anyString(), anyString());
+        verify(response, never()).addCookie(any(Cookie.class));
+        verify(filterChain).doFilter(request, response);
+    }
+    @Test
+
+    void authPathResponsesCarryAuthenticationHeaders() throws Exception {
+        when(request.getHeader(AppConstants.AUTH_ECHO_HEADER)).thenReturn(null);
+        when(request.getRequestURI()).thenReturn("/auth/refresh-token");
+        when(request.getHeader(AppConstants.AUTHORIZATION_HEADER)).thenReturn(testAuthHeader);
+        when(jwtUtil.verify(testToken)).thenReturn(verifiedToken(testEmail, AppConstants.ROLE_PREFIX + testRole));
+        jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
+        verify(response).setHeader("X-Auth-Status", "authenticated");
+        verify(response, times(2)).addCookie(any(Cookie.class));
+    }
+    @Test
+
+    void alwaysEchoModeKeepsTheHeadersOnEveryResponse() throws Exception {
+        when(request.getHeader(AppConstants.AUTH_ECHO_HEADER)).thenReturn(null);
+        when(jwtConfig.isAuthEchoAlways()).thenReturn(true);
+        when(request.getHeader(AppConstants.AUTHORIZATION_HEADER)).thenReturn(testAuthHeader);
+        when(jwtUtil.verify(testToken)).thenReturn(verifiedToken(testEmail, AppConstants.ROLE_PREFIX + testRole));
+        jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
+        verify(response).setHeader("X-Auth-Status", "authenticated");
+        verify(response).setHeader("Cache-Control", "no-cache, no-store, must-revalidate");
+    }
+    @Test
+
+    void infrastructurePathsAndPreflightsSkipTheFilter() {
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getRequestURI()).thenReturn("/actuator/health/liveness");
+        assertTrue(jwtAuthenticationFilter.shouldNotFilter(request));
+        when(request.getRequestURI()).thenReturn("/api/reports");
+        assertFalse(jwtAuthenticationFilter.shouldNotFilter(request));
+        when(request.getMethod()).thenReturn("OPTIONS");
+        assertTrue(jwtAuthenticationFilter.shouldNotFilter(request));
+    }
+    @Test
+
+    void malformedAuthorizationHeadersAreRejectedBeforeParsing() throws Exception {
+        for (String header : List.of(
+                AppConstants.BEARER_PREFIX + "only.two",
+                AppConstants.BEARER_PREFIX + "a.b.c.d",
+                AppConstants.BEARER_PREFIX + ".b.c",
+                AppConstants.BEARER_PREFIX + "a.b c.d",
+                AppConstants.BEARER_PREFIX + "a." + "x".repeat(JwtAuthenticationFilter.MAX_AUTHORIZATION_HEADER_LENGTH) + ".c")) {
+            when(request.getHeader(AppConstants.AUTHORIZATION_HEADER)).thenReturn(header);
+            jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
+        }
+        verify(jwtUtil, never()).verify(anyString());
+        verify(filterChain, times(5)).doFilter(request, response);
+        assertTrue(JwtAuthenticationFilter.isWellFormed(testAuthHeader));
+    }
 }
@@ -0,0 +1,106 @@
+package udehnih.report.filter;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import static org.junit.jupiter.api.Assertions.*;
+class RequestLoggingFilterTest {
+    private static RequestLoggingFilter filter(MockEnvironment env) throws Exception {
+        RequestLoggingFilter filter = new RequestLoggingFilter();
+        ReflectionTestUtils.setField(filter, "env", env);
+        filter.afterPropertiesSet();
+        return filter;
+    }
+    @Test
+
+    void requestIdIsInTheMdcDuringTheRequestAndClearedAfter() throws Exception {
+        RequestLoggingFilter filter = filter(new MockEnvironment());
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/reports");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicReference<String> seen = new AtomicReference<>();
+
+        filter.doFilter(request, response, (req, res) -> seen.set(MDC.get(RequestLoggingFilter.REQUEST_ID_MDC_KEY)));
+
+        assertNotNull(seen.get());
+        assertEquals(seen.get(), response.getHeader(RequestLoggingFilter.REQUEST_ID_HEADER));
+        assertNull(MDC.get(RequestLoggingFilter.REQUEST_ID_MDC_KEY));
+    }
+    @Test
+
+    void callerRequestIdIsReusedOnlyWhenSafe() {
+        assertEquals("abc-123_x.y", RequestLoggingFilter.requestId("abc-123_x.y"));
+        assertNotEquals("bad id\r\nforged", RequestLoggingFilter.requestId("bad id\r\nforged"));
+        assertNotEquals("x".repeat(65), RequestLoggingFilter.requestId("x".repeat(65)));
+        assertEquals(16, RequestLoggingFilter.requestId(null).length());
+    }
+    @Test
+
+    void longestPrefixDecidesTheSampleRate() throws Exception {
+        RequestLoggingFilter filter = filter(new MockEnvironment()
+            .withProperty("REQUEST_LOG_SAMPLE_RATE", "0.5")
+            .withProperty("REQUEST_LOG_SAMPLE_RATES", "/api/=0.25,/api/staff/=1,/actuator/=0,/bad=x"));
+
+        assertEquals(1.0, filter.rateFor("/api/staff/reports"));
+        assertEquals(0.25, filter.rateFor("/api/reports"));
+        assertEquals(0.5, filter.rateFor("/auth/login"));
+        assertTrue(filter.sampled("/api/staff/reports"));
+        assertFalse(filter.sampled("/actuator/prometheus"));
+    }
+    @Test
+
+    void defaultsLogAuthButNotScrapes() throws Exception {
+        RequestLoggingFilter filter = filter(new MockEnvironment());
+        assertEquals(1.0, filter.rateFor("/auth/login"));
+        assertEquals(0.0, filter.rateFor("/actuator/prometheus"));
+        assertEquals(RequestLoggingFilter.DEFAULT_SAMPLE_RATE, filter.rateFor("/api/reports"));
+    }
+    @Test
+
+    void asyncRequestsAreLoggedWhenTheyCompleteWithTheirFinalStatus() throws Exception {
+        RequestLoggingFilter filter = filter(new MockEnvironment().withProperty("REQUEST_LOG_SAMPLE_RATE", "0"));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/reports/1");
+        request.setAsyncSupported(true);
+        request.addHeader(RequestLoggingFilter.REQUEST_ID_HEADER, "async-1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        Logger logger = (Logger) LoggerFactory.getLogger(RequestLoggingFilter.class);
+        ListAppender<ILoggingEvent> appender = new ListAppender<>() {
+            @Override
+
+            protected void append(ILoggingEvent event) {
+                // Capture the MDC while the listener still has it set
+                event.prepareForDeferredProcessing();
+                super.append(event);
+            }
+        };
+        appender.start();
+        logger.addAppender(appender);
+        try {
+            filter.doFilter(request, response, (req, res) -> req.startAsync());
+
+            assertTrue(appender.list.isEmpty(), "nothing is logged before the async request completes");
+            assertNull(MDC.get(RequestLoggingFilter.REQUEST_ID_MDC_KEY));
+
+            response.setStatus(503);
+            ((MockAsyncContext) request.getAsyncContext()).complete();
+
+            List<ILoggingEvent> events = appender.list;
+            assertEquals(1, events.size());
+            assertEquals(Level.WARN, events.get(0).getLevel());
+            assertTrue(events.get(0).getFormattedMessage().startsWith("GET /api/reports/1 -> 503 in "));
+            assertEquals("async-1", events.get(0).getMDCPropertyMap().get(RequestLoggingFilter.REQUEST_ID_MDC_KEY));
+            assertNull(MDC.get(RequestLoggingFilter.REQUEST_ID_MDC_KEY));
+        } finally {
+            logger.detachAppender(appender);
+        }
+    }
+}
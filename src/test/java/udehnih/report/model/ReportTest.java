@@ -61,7 +61,8 @@ public class ReportTest {
         RejectionMessage rejectionMessage = RejectionMessage.INCOMPLETE_DETAIL;
         LocalDateTime createdAt = LocalDateTime.now();
         LocalDateTime updatedAt = LocalDateTime.now();
-        Report report = new Report(reportId, studentId, title, detail, status, rejectionMessage, createdAt, updatedAt);
+        Long version = 3L;
+        Report report = new Report(reportId, studentId, title, detail, status, rejectionMessage, createdAt, updatedAt, version);
         assertEquals(reportId, report.getReportId());
         assertEquals(studentId, report.getStudentId());
         assertEquals(title, report.getTitle());
@@ -70,6 +71,7 @@ public class ReportTest {
         assertEquals(rejectionMessage, report.getRejectionMessage());
         assertEquals(createdAt, report.getCreatedAt());
         assertEquals(updatedAt, report.getUpdatedAt());
+        assertEquals(version, report.getVersion());
     }
     @Test
 
@@ -5,9 +5,14 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import udehnih.report.enums.ReportStatus;
+import udehnih.report.enums.RejectionMessage;
+import udehnih.report.dto.ReportSummary;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.ExecutionException;
 import static org.assertj.core.api.Assertions.assertThat;
 @DataJpaTest
 public class ReportRepositoryTests {
@@ -36,13 +41,13 @@ public class ReportRepositoryTests {
     }
     @Test
 
-    void findByStudentIdShouldReturnReports() throws ExecutionException, InterruptedException {
+    void findByStudentIdShouldReturnReports() {
         Report report1 = ReportFactory.createOpenReport("12345", "Test Report 1", "Test Detail 1");
         Report report2 = ReportFactory.createOpenReport("12345", "Test Report 2", "Test Detail 2");
         entityManager.persist(report1);
         entityManager.persist(report2);
         entityManager.flush();
-        List<Report> found = reportRepository.findByStudentId("12345").get();
+        List<Report> found = reportRepository.findByStudentId("12345");
         assertThat(found).hasSize(2);
         assertThat(found).allMatch(report -> report.getStudentId().equals("12345"));
     }
@@ -81,13 +86,87 @@ public class ReportRepositoryTests {
     }
     @Test
 
-    void findAllAsyncShouldReturnAllReports() throws ExecutionException, InterruptedException {
+    void findAllShouldReturnAllReports() {
         Report report1 = ReportFactory.createOpenReport("12345", "Test Report 1", "Test Detail 1");
         Report report2 = ReportFactory.createOpenReport("67890", "Test Report 2", "Test Detail 2");
         entityManager.persist(report1);
         entityManager.persist(report2);
         entityManager.flush();
-        List<Report> found = reportRepository.findAllAsync().get();
+        List<Report> found = reportRepository.findAll();
         assertThat(found).hasSize(2);
     }
+    @Test
+
+    void keysetPagesWalkEveryReportExactlyOnceNewestFirst() {
+        for (int i = 0; i < 5; i++) {
+            entityManager.persist(ReportFactory.createOpenReport("12345", "Report " + i, "Detail " + i));
+        }
+        entityManager.flush();
+        List<Report> walked = new ArrayList<>();
+        List<Report> page = reportRepository.findFirstPage(null, null, null, PageRequest.of(0, 2));
+        while (!page.isEmpty()) {
+            walked.addAll(page);
+            Report last = page.get(page.size() - 1);
+            page = reportRepository.findPageAfter(null, null, null,
+                last.getCreatedAt(), last.getReportId(), PageRequest.of(0, 2));
+        }
+        assertThat(walked).hasSize(5);
+        assertThat(walked).extracting(Report::getReportId).doesNotHaveDuplicates();
+        for (int i = 1; i < walked.size(); i++) {
+            Report previous = walked.get(i - 1);
+            Report current = walked.get(i);
+            assertThat(!current.getCreatedAt().isAfter(previous.getCreatedAt())).isTrue();
+            if (current.getCreatedAt().equals(previous.getCreatedAt())) {
+                assertThat(current.getReportId()).isLessThan(previous.getReportId());
+            }
+        }
+    }
+    @Test
+
+    void findFirstPageShouldApplyStatusFilter() {
+        Report open = ReportFactory.createOpenReport("12345", "Open Report", "Detail");
+        Report closed = ReportFactory.createOpenReport("67890", "Closed Report", "Detail");
+        closed.setStatus(ReportStatus.CLOSED);
+        entityManager.persist(open);
+        entityManager.persist(closed);
+        entityManager.flush();
+        List<Report> found = reportRepository.findFirstPage(ReportStatus.CLOSED, null, null, PageRequest.of(0, 10));
+        assertThat(found).hasSize(1);
+        assertThat(found.get(0).getStudentId()).isEqualTo("67890");
+    }
+    @Test
+
+    void summaryQueriesShouldProjectListColumnsOnly() {
+        Report report = ReportFactory.createOpenReport("13579", "Summary Report", "Detail");
+        entityManager.persist(report);
+        entityManager.flush();
+        List<ReportSummary> byStudent = reportRepository.findSummariesByStudentId("13579");
+        assertThat(byStudent).hasSize(1);
+        assertThat(byStudent.get(0).getReportId()).isEqualTo(report.getReportId());
+        assertThat(byStudent.get(0).getTitle()).isEqualTo("Summary Report");
+        assertThat(byStudent.get(0).getStatus()).isEqualTo(ReportStatus.OPEN);
+        List<ReportSummary> firstPage = reportRepository.findSummaryFirstPage(null, null, null, PageRequest.of(0, 10));
+        assertThat(firstPage).extracting(ReportSummary::getReportId).containsExactly(report.getReportId());
+        List<ReportSummary> afterLast = reportRepository.findSummaryPageAfter(null, null, null,
+            firstPage.get(0).getCreatedAt(), firstPage.get(0).getReportId(), PageRequest.of(0, 10));
+        assertThat(afterLast).isEmpty();
+    }
+    @Test
+
+    void transitionStatusShouldOnlyMoveOpenReportsOnce() {
+        Report report = ReportFactory.createOpenReport("12345", "Test Report", "Test Detail");
+        entityManager.persist(report);
+        entityManager.flush();
+        Long initialVersion = report.getVersion();
+        int first = reportRepository.transitionStatus(report.getReportId(), ReportStatus.OPEN,
+            ReportStatus.REJECTED, RejectionMessage.SIMILAR_REPORT, LocalDateTime.now());
+        int second = reportRepository.transitionStatus(report.getReportId(), ReportStatus.OPEN,
+            ReportStatus.RESOLVED, null, LocalDateTime.now());
+        assertThat(first).isEqualTo(1);
+        assertThat(second).isZero();
+        Report reloaded = reportRepository.findById(report.getReportId()).orElseThrow();
+        assertThat(reloaded.getStatus()).isEqualTo(ReportStatus.REJECTED);
+        assertThat(reloaded.getRejectionMessage()).isEqualTo(RejectionMessage.SIMILAR_REPORT);
+        assertThat(reloaded.getVersion()).isEqualTo(initialVersion + 1);
+    }
 }
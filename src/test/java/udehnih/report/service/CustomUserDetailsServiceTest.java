@@ -12,6 +12,10 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 
 import udehnih.report.client.AuthServiceClient;
 import udehnih.report.model.UserInfo;
+import udehnih.report.util.ResolvedPrincipal;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
 import java.util.Arrays;
 import java.util.Collection;
@@ -19,6 +23,7 @@ import java.util.Collections;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 class CustomUserDetailsServiceTest {
@@ -185,4 +190,26 @@ class CustomUserDetailsServiceTest {
         
         assertNull(result);
     }
+
+    @Test
+    void loadUserByUsernameShouldReuseResolvedPrincipal() {
+        UserInfo userInfo = UserInfo.builder()
+            .id(testId)
+            .email(testEmail)
+            .name(testName)
+            .roles(Collections.singletonList("STAFF"))
+            .build();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        ResolvedPrincipal.store(request, userInfo);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        try {
+            UserDetails userDetails = userDetailsService.loadUserByUsername(testEmail);
+
+            assertTrue(userDetails.getAuthorities().contains(new SimpleGrantedAuthority("ROLE_STAFF")));
+            assertEquals(Optional.of(testId.toString()), userDetailsService.getUserIdByEmail(testEmail));
+            verify(authServiceClient, never()).getUserByEmail(anyString());
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
 }
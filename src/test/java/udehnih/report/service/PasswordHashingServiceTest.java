@@ -0,0 +1,120 @@
+package udehnih.report.service;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import udehnih.report.exception.PasswordHashingRejectedException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+class PasswordHashingServiceTest {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private ThreadPoolTaskExecutor executor;
+
+    private PasswordHashingService service(PasswordEncoder encoder, int threads, int queueCapacity, Duration timeout) {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.initialize();
+        return new PasswordHashingService(encoder, executor, timeout, registry);
+    }
+
+    // Encoder whose hashes hold a pool thread until the test releases them
+    private PasswordEncoder blockingEncoder(CountDownLatch started) {
+        PasswordEncoder encoder = mock(PasswordEncoder.class);
+        when(encoder.encode(any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return "hash";
+        });
+        return encoder;
+    }
+    @AfterEach
+
+    void tearDown() {
+        release.countDown();
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+    @Test
+
+    void hashesRunOffTheCallingThreadAndAreTimed() {
+        PasswordEncoder encoder = mock(PasswordEncoder.class);
+        Thread caller = Thread.currentThread();
+        when(encoder.matches("pw", "hash")).thenAnswer(invocation -> Thread.currentThread() != caller);
+        when(encoder.encode("pw")).thenReturn("hash");
+        PasswordHashingService service = service(encoder, 2, 4, Duration.ofSeconds(5));
+
+        assertTrue(service.matches("pw", "hash"));
+        assertEquals("hash", service.encode("pw"));
+
+        assertEquals(1, registry.get(PasswordHashingService.HASH_METRIC).tag("operation", "matches").timer().count());
+        assertEquals(1, registry.get(PasswordHashingService.HASH_METRIC).tag("operation", "encode").timer().count());
+    }
+    @Test
+
+    void fullQueueIsRejectedImmediatelyWithRetryAfter() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        PasswordHashingService service = service(blockingEncoder(started), 1, 0, Duration.ofSeconds(5));
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> service.encode("pw"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        PasswordHashingRejectedException rejected =
+            assertThrows(PasswordHashingRejectedException.class, () -> service.encode("pw"));
+
+        assertTrue(rejected.getRetryAfterSeconds() >= 1 && rejected.getRetryAfterSeconds() <= 30);
+        assertEquals(1.0, registry.get(PasswordHashingService.REJECTED_METRIC).tag("reason", "queue_full")
+            .counter().count());
+        release.countDown();
+        assertEquals("hash", first.get(5, TimeUnit.SECONDS));
+    }
+    @Test
+
+    void hashWaitingTooLongIsRejectedAndSkipped() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        PasswordEncoder encoder = blockingEncoder(started);
+        PasswordHashingService service = service(encoder, 1, 1, Duration.ofMillis(50));
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> service.encode("pw"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertThrows(PasswordHashingRejectedException.class, () -> service.encode("pw"));
+
+        assertEquals(1.0, registry.get(PasswordHashingService.REJECTED_METRIC).tag("reason", "timeout")
+            .counter().count());
+        // The running hash is past the timeout too, but it has started, so its caller still gets the result
+        release.countDown();
+        assertEquals("hash", first.get(5, TimeUnit.SECONDS));
+        executor.getThreadPoolExecutor().shutdown();
+        assertTrue(executor.getThreadPoolExecutor().awaitTermination(5, TimeUnit.SECONDS));
+        verify(encoder, times(1)).encode(any());
+        assertEquals(1, registry.get(PasswordHashingService.HASH_METRIC).tag("operation", "encode").timer().count());
+    }
+    @Test
+
+    void rehashCheckIsAnsweredByTheEncoderWithoutThePool() {
+        PasswordEncoder encoder = mock(PasswordEncoder.class);
+        when(encoder.upgradeEncoding("$2a$10$legacy")).thenReturn(true);
+        PasswordHashingService service = service(encoder, 1, 1, Duration.ofSeconds(5));
+
+        assertTrue(service.needsRehash("$2a$10$legacy"));
+        assertFalse(service.needsRehash(null));
+        assertEquals(0, executor.getThreadPoolExecutor().getTaskCount());
+    }
+    @Test
+
+    void encoderFailuresPropagateUnchanged() {
+        PasswordEncoder encoder = mock(PasswordEncoder.class);
+        when(encoder.matches(any(), anyString())).thenThrow(new IllegalArgumentException("Encoded password is not BCrypt"));
+        PasswordHashingService service = service(encoder, 1, 1, Duration.ofSeconds(5));
+
+        assertThrows(IllegalArgumentException.class, () -> service.matches("pw", "plain"));
+    }
+}
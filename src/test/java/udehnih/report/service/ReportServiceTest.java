@@ -4,30 +4,42 @@ import udehnih.report.repository.ReportRepository;
 import udehnih.report.factory.ReportFactory;
 import udehnih.report.enums.ReportStatus;
 import udehnih.report.dto.RejectionRequestDto;
+import udehnih.report.dto.ReportCursor;
+import udehnih.report.dto.ReportPage;
+import udehnih.report.dto.ReportSummary;
 import udehnih.report.enums.RejectionMessage;
 import udehnih.report.exception.ReportNotFoundException;
 import udehnih.report.exception.InvalidReportStateException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 import static org.junit.jupiter.api.Assertions.*;
 public class ReportServiceTest {
     @Mock
     private ReportRepository reportRepository;
-    @InjectMocks
     private ReportServiceImpl reportService;
     @BeforeEach
 
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        reportService = new ReportServiceImpl(reportRepository, Runnable::run);
     }
     @Test
 
@@ -58,7 +70,7 @@ public class ReportServiceTest {
             ReportFactory.createOpenReport(studentId, "Report 2", "Detail 2")
         );
         when(reportRepository.findByStudentId(studentId))
-            .thenReturn(CompletableFuture.completedFuture(expectedReports));
+            .thenReturn(expectedReports);
         CompletableFuture<List<Report>> futureResult = reportService.getUserReports(studentId);
         List<Report> result = futureResult.get(); 
         assertEquals(2, result.size());
@@ -67,6 +79,37 @@ public class ReportServiceTest {
     }
     @Test
 
+    void concurrentGetUserReportsShouldShareOneQuery() throws ExecutionException, InterruptedException {
+        List<Runnable> pending = new ArrayList<>();
+        ReportServiceImpl coalescing = new ReportServiceImpl(reportRepository, pending::add);
+        List<Report> expectedReports = List.of(ReportFactory.createOpenReport("24680", "Report 1", "Detail 1"));
+        when(reportRepository.findByStudentId("24680")).thenReturn(expectedReports);
+        CompletableFuture<List<Report>> first = coalescing.getUserReports("24680");
+        CompletableFuture<List<Report>> second = coalescing.getUserReports("24680");
+        CompletableFuture<List<Report>> other = coalescing.getUserReports("13579");
+        assertEquals(2, pending.size());
+        assertFalse(first.isDone());
+        pending.forEach(Runnable::run);
+        assertSame(expectedReports, first.get());
+        assertSame(expectedReports, second.get());
+        assertTrue(other.isDone());
+        verify(reportRepository, times(1)).findByStudentId("24680");
+        coalescing.getUserReports("24680");
+        assertEquals(3, pending.size());
+    }
+    @Test
+
+    void getUserReportsShouldNotCacheFailures() {
+        when(reportRepository.findByStudentId("11111"))
+            .thenThrow(new RuntimeException("Database down"))
+            .thenReturn(List.of());
+        CompletableFuture<List<Report>> failed = reportService.getUserReports("11111");
+        assertTrue(failed.isCompletedExceptionally());
+        assertEquals(List.of(), reportService.getUserReports("11111").join());
+        verify(reportRepository, times(2)).findByStudentId("11111");
+    }
+    @Test
+
     void updateReportWithValidReportShouldUpdateSuccessfully() {
         Integer reportId = 1;
         Report existingReport = ReportFactory.createOpenReport("12345", "Old Title", "Old Detail");
@@ -94,33 +137,39 @@ public class ReportServiceTest {
 
     void processReportWithValidRejectionShouldRejectReport() {
         Integer reportId = 1;
-        Report existingReport = ReportFactory.createOpenReport("12345", "Test", "Detail");
+        Report rejectedReport = ReportFactory.createOpenReport("12345", "Test", "Detail");
+        rejectedReport.setStatus(ReportStatus.REJECTED);
+        rejectedReport.setRejectionMessage(RejectionMessage.INCOMPLETE_DETAIL);
         RejectionRequestDto rejectionRequest = new RejectionRequestDto();
         rejectionRequest.setRejectionMessage(RejectionMessage.INCOMPLETE_DETAIL);
-        when(reportRepository.findById(reportId)).thenReturn(Optional.of(existingReport));
-        when(reportRepository.save(any(Report.class))).thenAnswer(i -> i.getArgument(0));
+        when(reportRepository.transitionStatus(eq(reportId), eq(ReportStatus.OPEN), eq(ReportStatus.REJECTED),
+            eq(RejectionMessage.INCOMPLETE_DETAIL), any(LocalDateTime.class))).thenReturn(1);
+        when(reportRepository.findById(reportId)).thenReturn(Optional.of(rejectedReport));
         Report result = reportService.processReport(reportId, rejectionRequest);
         assertEquals(ReportStatus.REJECTED, result.getStatus());
         assertEquals(RejectionMessage.INCOMPLETE_DETAIL, result.getRejectionMessage());
-        verify(reportRepository, times(2)).save(any(Report.class));
+        verify(reportRepository, never()).save(any(Report.class));
     }
     @Test
 
     void processReportWithNoRejectionShouldResolveReport() {
         Integer reportId = 1;
-        Report existingReport = ReportFactory.createOpenReport("12345", "Test", "Detail");
-        when(reportRepository.findById(reportId)).thenReturn(Optional.of(existingReport));
-        when(reportRepository.save(any(Report.class))).thenAnswer(i -> i.getArgument(0));
+        Report resolvedReport = ReportFactory.createOpenReport("12345", "Test", "Detail");
+        resolvedReport.setStatus(ReportStatus.RESOLVED);
+        when(reportRepository.transitionStatus(eq(reportId), eq(ReportStatus.OPEN), eq(ReportStatus.RESOLVED),
+            isNull(), any(LocalDateTime.class))).thenReturn(1);
+        when(reportRepository.findById(reportId)).thenReturn(Optional.of(resolvedReport));
         Report result = reportService.processReport(reportId, null);
         assertEquals(ReportStatus.RESOLVED, result.getStatus());
         assertNull(result.getRejectionMessage());
-        verify(reportRepository).save(any(Report.class));
+        verify(reportRepository, never()).save(any(Report.class));
     }
     @Test
 
     void processReportWithNonExistentReportShouldThrowException() {
         Integer reportId = 999;
-        when(reportRepository.findById(reportId)).thenReturn(Optional.empty());
+        when(reportRepository.transitionStatus(eq(reportId), any(), any(), any(), any())).thenReturn(0);
+        when(reportRepository.existsById(reportId)).thenReturn(false);
         Exception exception = assertThrows(ReportNotFoundException.class, () -> {
             reportService.processReport(reportId, null);
         });
@@ -130,31 +179,40 @@ public class ReportServiceTest {
 
     void processReportWithNonOpenReportShouldThrowException() {
         Integer reportId = 1;
-        Report existingReport = Report.builder()
-                .reportId(reportId)
-                .studentId("12345")
-                .title("Test")
-                .detail("Detail")
-                .status(ReportStatus.RESOLVED)
-                .build();
-        when(reportRepository.findById(reportId)).thenReturn(Optional.of(existingReport));
+        when(reportRepository.transitionStatus(eq(reportId), any(), any(), any(), any())).thenReturn(0);
+        when(reportRepository.existsById(reportId)).thenReturn(true);
         Exception exception = assertThrows(InvalidReportStateException.class, () -> {
             reportService.processReport(reportId, null);
         });
         assertEquals("Report cannot be processed because it is not in OPEN status", exception.getMessage());
+        verify(reportRepository, never()).findById(reportId);
     }
     @Test
 
     void processReportWithEmptyRejectionMessageShouldResolveReport() {
         Integer reportId = 1;
-        Report existingReport = ReportFactory.createOpenReport("12345", "Test", "Detail");
+        Report resolvedReport = ReportFactory.createOpenReport("12345", "Test", "Detail");
+        resolvedReport.setStatus(ReportStatus.RESOLVED);
         RejectionRequestDto rejectionRequest = new RejectionRequestDto();
-        when(reportRepository.findById(reportId)).thenReturn(Optional.of(existingReport));
-        when(reportRepository.save(any(Report.class))).thenAnswer(i -> i.getArgument(0));
+        when(reportRepository.transitionStatus(eq(reportId), eq(ReportStatus.OPEN), eq(ReportStatus.RESOLVED),
+            isNull(), any(LocalDateTime.class))).thenReturn(1);
+        when(reportRepository.findById(reportId)).thenReturn(Optional.of(resolvedReport));
         Report result = reportService.processReport(reportId, rejectionRequest);
         assertEquals(ReportStatus.RESOLVED, result.getStatus());
         assertNull(result.getRejectionMessage());
-        verify(reportRepository).save(any(Report.class));
+    }
+    @Test
+
+    void updateReportWithStaleVersionShouldThrowOptimisticLockFailure() {
+        Integer reportId = 1;
+        Report existingReport = ReportFactory.createOpenReport("12345", "Old Title", "Old Detail");
+        existingReport.setVersion(4L);
+        Report updatedReport = ReportFactory.createOpenReport("12345", "New Title", "New Detail");
+        updatedReport.setVersion(3L);
+        when(reportRepository.findById(reportId)).thenReturn(Optional.of(existingReport));
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+            () -> reportService.updateReport(reportId, updatedReport));
+        verify(reportRepository, never()).save(any(Report.class));
     }
     @Test
 
@@ -171,12 +229,90 @@ public class ReportServiceTest {
             ReportFactory.createOpenReport("12345", "Report 1", "Detail 1"),
             ReportFactory.createOpenReport("67890", "Report 2", "Detail 2")
         );
-        when(reportRepository.findAllAsync())
-            .thenReturn(CompletableFuture.completedFuture(expectedReports));
+        when(reportRepository.findAll())
+            .thenReturn(expectedReports);
         CompletableFuture<List<Report>> futureResult = reportService.getAllReports();
         List<Report> result = futureResult.get(); 
         assertEquals(2, result.size());
-        verify(reportRepository).findAllAsync();
+        verify(reportRepository).findAll();
+    }
+    @Test
+
+    void getReportsPageShouldFetchOneExtraRowAndReturnNextCursor() throws ExecutionException, InterruptedException {
+        Report newest = ReportFactory.createOpenReport("12345", "Report 1", "Detail 1");
+        newest.setReportId(3);
+        newest.setCreatedAt(LocalDateTime.of(2025, 5, 3, 9, 0));
+        Report middle = ReportFactory.createOpenReport("12345", "Report 2", "Detail 2");
+        middle.setReportId(2);
+        middle.setCreatedAt(LocalDateTime.of(2025, 5, 2, 9, 0));
+        Report extra = ReportFactory.createOpenReport("12345", "Report 3", "Detail 3");
+        extra.setReportId(1);
+        extra.setCreatedAt(LocalDateTime.of(2025, 5, 1, 9, 0));
+        when(reportRepository.findFirstPage(isNull(), isNull(), isNull(), any(Pageable.class)))
+            .thenReturn(Arrays.asList(newest, middle, extra));
+        ReportPage<Report> page = reportService.getReportsPage(null, null, null, null, 2).get();
+        assertEquals(Arrays.asList(newest, middle), page.getItems());
+        assertEquals(new ReportCursor(middle.getCreatedAt(), 2), ReportCursor.decode(page.getNextCursor()));
+        verify(reportRepository).findFirstPage(isNull(), isNull(), isNull(),
+            argThat(pageable -> pageable.getPageSize() == 3));
+    }
+    @Test
+
+    void getReportsPageWithCursorShouldSeekPastIt() throws ExecutionException, InterruptedException {
+        ReportCursor cursor = new ReportCursor(LocalDateTime.of(2025, 5, 2, 9, 0), 2);
+        Report older = ReportFactory.createOpenReport("12345", "Report 3", "Detail 3");
+        older.setReportId(1);
+        when(reportRepository.findPageAfter(eq(ReportStatus.OPEN), isNull(), isNull(),
+            eq(cursor.getCreatedAt()), eq(2), any(Pageable.class)))
+            .thenReturn(List.of(older));
+        ReportPage<Report> page = reportService.getReportsPage(ReportStatus.OPEN, null, null, cursor, 2).get();
+        assertEquals(List.of(older), page.getItems());
+        assertNull(page.getNextCursor());
+        verify(reportRepository, never()).findFirstPage(any(), any(), any(), any());
+    }
+    @Test
+
+    void getUserReportSummariesShouldUseProjectionQuery() throws ExecutionException, InterruptedException {
+        ReportSummary summary = new SpelAwareProxyProjectionFactory().createProjection(ReportSummary.class,
+            ReportFactory.createOpenReport("12345", "Report 1", "Detail 1"));
+        when(reportRepository.findSummariesByStudentId("12345")).thenReturn(List.of(summary));
+        List<ReportSummary> result = reportService.getUserReportSummaries("12345").get();
+        assertEquals(List.of(summary), result);
+        verify(reportRepository, never()).findByStudentId(any());
+    }
+    @Test
+
+    void getReportSummariesPageShouldTrimExtraRow() throws ExecutionException, InterruptedException {
+        SpelAwareProxyProjectionFactory projections = new SpelAwareProxyProjectionFactory();
+        Report newer = ReportFactory.createOpenReport("12345", "Report 1", "Detail 1");
+        newer.setReportId(2);
+        newer.setCreatedAt(LocalDateTime.of(2025, 5, 2, 9, 0));
+        Report older = ReportFactory.createOpenReport("12345", "Report 2", "Detail 2");
+        older.setReportId(1);
+        older.setCreatedAt(LocalDateTime.of(2025, 5, 1, 9, 0));
+        when(reportRepository.findSummaryFirstPage(isNull(), isNull(), isNull(), any(Pageable.class)))
+            .thenReturn(List.of(projections.createProjection(ReportSummary.class, newer),
+                projections.createProjection(ReportSummary.class, older)));
+        ReportPage<ReportSummary> page = reportService.getReportSummariesPage(null, null, null, null, 1).get();
+        assertEquals(1, page.getItems().size());
+        assertEquals(2, page.getItems().get(0).getReportId());
+        assertEquals(new ReportCursor(newer.getCreatedAt(), 2), ReportCursor.decode(page.getNextCursor()));
+    }
+    @Test
+
+    void getReportByIdShouldNotHopOffTheCallingThread() {
+        Integer reportId = 5;
+        Report expectedReport = ReportFactory.createOpenReport("12345", "Test Report", "Test Detail");
+        Thread caller = Thread.currentThread();
+        AtomicReference<Thread> queryThread = new AtomicReference<>();
+        when(reportRepository.findById(reportId)).thenAnswer(invocation -> {
+            queryThread.set(Thread.currentThread());
+            return Optional.of(expectedReport);
+        });
+        CompletableFuture<Report> futureResult = reportService.getReportById(reportId);
+        assertTrue(futureResult.isDone());
+        assertSame(caller, queryThread.get());
+        assertSame(expectedReport, futureResult.join());
     }
     
     @Test
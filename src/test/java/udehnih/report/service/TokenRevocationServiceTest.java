@@ -0,0 +1,137 @@
+package udehnih.report.service;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import udehnih.report.model.RevokedToken;
+import udehnih.report.repository.RevokedTokenRepository;
+import udehnih.report.util.VerifiedToken;
+import org.springframework.test.util.ReflectionTestUtils;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+class TokenRevocationServiceTest {
+    private RevokedTokenRepository repository;
+    private TokenRevocationService service;
+
+    private static VerifiedToken token(String subject, String jti, Instant issuedAt) {
+        return new VerifiedToken(subject, List.of("ROLE_STUDENT"), Instant.now().plusSeconds(3600), issuedAt,
+            null, null, null, jti);
+    }
+    @BeforeEach
+
+    void setUp() {
+        repository = mock(RevokedTokenRepository.class);
+        when(repository.findByIdGreaterThanOrderByIdAsc(anyLong())).thenReturn(List.of());
+        when(repository.save(any(RevokedToken.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        service = new TokenRevocationService(repository, 1_000, 0.001, Duration.ofHours(1));
+    }
+    @Test
+
+    void tokensMissingFromTheFilterNeverReachTheDatabase() {
+        for (int i = 0; i < 100; i++) {
+            assertFalse(service.isRevoked(token("user" + i + "@test.com", "jti-" + i, Instant.now())));
+        }
+        verify(repository, never()).existsByJti(anyString());
+        verify(repository, never()).findLatestCutoff(anyString());
+    }
+    @Test
+
+    void revokedJtiIsConfirmedAgainstTheDatabase() {
+        VerifiedToken revoked = token("a@test.com", "jti-1", Instant.now());
+        service.revoke(revoked);
+        when(repository.existsByJti("jti-1")).thenReturn(true);
+
+        assertTrue(service.isRevoked(revoked));
+        assertFalse(service.isRevoked(token("a@test.com", "jti-2", Instant.now())));
+    }
+    @Test
+
+    void cutoffRevokesOnlyTokensIssuedUpToIt() {
+        Instant cutoff = Instant.parse("2026-01-01T10:00:00Z");
+        service.revokeAllIssuedBefore("a@test.com", cutoff);
+        when(repository.findLatestCutoff("a@test.com")).thenReturn(cutoff);
+
+        assertTrue(service.isRevoked(token("a@test.com", "old", cutoff.minusSeconds(60))));
+        assertTrue(service.isRevoked(token("a@test.com", "same-second", cutoff)));
+        assertFalse(service.isRevoked(token("a@test.com", "new", cutoff.plusSeconds(1))));
+    }
+    @Test
+
+    void entriesOutliveTheTokenByTheRefreshGrace() {
+        service = new TokenRevocationService(repository, 1_000, 0.001, Duration.ofHours(1), Duration.ofDays(1),
+            Duration.ofMinutes(1));
+        VerifiedToken revoked = token("f@test.com", "jti-4", Instant.now());
+        service.revoke(revoked);
+
+        verify(repository).save(argThat((RevokedToken entry) ->
+            revoked.expiresAt().plus(Duration.ofDays(1)).equals(entry.getExpiresAt())));
+    }
+    @Test
+
+    void tokenWithoutJtiIsRevokedThroughASubjectCutoff() {
+        service.revoke(token("legacy@test.com", null, Instant.now()));
+
+        verify(repository).save(argThat((RevokedToken entry) ->
+            entry.isCutoff() && "legacy@test.com".equals(entry.getSubject())));
+    }
+    @Test
+
+    void refreshPicksUpEntriesWrittenElsewhere() {
+        VerifiedToken token = token("b@test.com", "remote-jti", Instant.now());
+        assertFalse(service.isRevoked(token));
+
+        RevokedToken remote = RevokedToken.builder().id(7L).jti("remote-jti").subject("b@test.com")
+            .expiresAt(Instant.now().plusSeconds(3600)).revokedAt(LocalDateTime.now()).build();
+        when(repository.findByIdGreaterThanOrRevokedAtGreaterThanEqualOrderByIdAsc(eq(0L), any()))
+            .thenReturn(List.of(remote));
+        when(repository.existsByJti("remote-jti")).thenReturn(true);
+        service.refresh();
+
+        assertTrue(service.isRevoked(token));
+        service.refresh();
+        verify(repository).findByIdGreaterThanOrRevokedAtGreaterThanEqualOrderByIdAsc(eq(7L), any());
+    }
+    @Test
+
+    void refreshPicksUpARowCommittedLateWithALowerId() {
+        LocalDateTime now = LocalDateTime.now();
+        RevokedToken early = RevokedToken.builder().id(1L).jti("late-jti").subject("d@test.com")
+            .expiresAt(Instant.now().plusSeconds(3600)).revokedAt(now.minusSeconds(2)).build();
+        RevokedToken later = RevokedToken.builder().id(2L).jti("first-jti").subject("e@test.com")
+            .expiresAt(Instant.now().plusSeconds(3600)).revokedAt(now.minusSeconds(1)).build();
+        // Row 2 commits first; row 1 only becomes visible after the filter has seen id 2
+        when(repository.findByIdGreaterThanOrderByIdAsc(0L)).thenReturn(List.of(later));
+        service.refresh();
+        when(repository.findByIdGreaterThanOrRevokedAtGreaterThanEqualOrderByIdAsc(eq(2L), any()))
+            .thenReturn(List.of(early, later));
+        when(repository.existsByJti("late-jti")).thenReturn(true);
+        service.refresh();
+
+        assertTrue(service.isRevoked(token("d@test.com", "late-jti", Instant.now())));
+        verify(repository).findByIdGreaterThanOrRevokedAtGreaterThanEqualOrderByIdAsc(eq(2L),
+            argThat((LocalDateTime since) -> !since.isAfter(early.getRevokedAt())));
+        assertEquals(2L, ReflectionTestUtils.getField(service, "entryCount"),
+            "the re-read row must not be counted again");
+    }
+    @Test
+
+    void flaggedTokenIsRevokedWhenTheDatabaseCannotConfirm() {
+        VerifiedToken revoked = token("c@test.com", "jti-3", Instant.now());
+        service.revoke(revoked);
+        when(repository.existsByJti("jti-3")).thenThrow(new RuntimeException("connection refused"));
+
+        assertTrue(service.isRevoked(revoked));
+    }
+    @Test
+
+    void purgeRemovesExpiredEntriesAndRebuilds() {
+        when(repository.deleteExpired(any(Instant.class))).thenReturn(3);
+        service.purgeAndRebuild();
+
+        verify(repository).deleteExpired(any(Instant.class));
+        verify(repository, atLeastOnce()).findByIdGreaterThanOrderByIdAsc(0L);
+    }
+}
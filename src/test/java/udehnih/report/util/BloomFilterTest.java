@@ -0,0 +1,39 @@
+package udehnih.report.util;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+class BloomFilterTest {
+    @Test
+
+    void everyInsertedValueIsReported() {
+        BloomFilter filter = BloomFilter.create(10_000, 0.001);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("jti:" + i);
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("jti:" + i));
+        }
+    }
+    @Test
+
+    void falsePositiveRateStaysNearTheConfiguredRate() {
+        BloomFilter filter = BloomFilter.create(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("jti:" + i);
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("other:" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+    }
+    @Test
+
+    void emptyFilterContainsNothing() {
+        BloomFilter filter = BloomFilter.create(100, 0.001);
+        assertFalse(filter.mightContain("sub:a@b.c"));
+        assertTrue(filter.hashCount() > 1);
+        assertTrue(filter.bitCount() >= 64);
+    }
+}
@@ -0,0 +1,51 @@
+package udehnih.report.util;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+class CalibratedBCryptPasswordEncoderTest {
+    @Test
+
+    void costIsReadFromTheHash() {
+        assertEquals(10, CalibratedBCryptPasswordEncoder.costOf("$2a$10$ixlPY3AAd4ty1l6E2IsQ9OFZi2ba9ZQE0bP7RFcGIWNhyFrrT3YUi"));
+        assertEquals(4, CalibratedBCryptPasswordEncoder.costOf(new CalibratedBCryptPasswordEncoder(4).encode("pw")));
+        assertEquals(-1, CalibratedBCryptPasswordEncoder.costOf("plain-text"));
+        assertEquals(-1, CalibratedBCryptPasswordEncoder.costOf(null));
+    }
+    @Test
+
+    void onlyWeakerOrOutOfBoundsHashesAreUpgraded() {
+        CalibratedBCryptPasswordEncoder encoder = new CalibratedBCryptPasswordEncoder(5, 4, 6);
+
+        assertFalse(encoder.upgradeEncoding(encoder.encode("pw")));
+        assertTrue(encoder.upgradeEncoding(new CalibratedBCryptPasswordEncoder(4).encode("pw")));
+        // An instance that calibrated higher must not be undone by this one
+        assertFalse(encoder.upgradeEncoding(new CalibratedBCryptPasswordEncoder(6).encode("pw")));
+        assertTrue(encoder.upgradeEncoding(new CalibratedBCryptPasswordEncoder(7).encode("pw")));
+        assertFalse(encoder.upgradeEncoding("plain-text"));
+    }
+    @Test
+
+    void aPinnedCostOutsideTheBoundsIsNotRehashedForever() {
+        CalibratedBCryptPasswordEncoder encoder = new CalibratedBCryptPasswordEncoder(4, 10, 14);
+
+        assertFalse(encoder.upgradeEncoding(encoder.encode("pw")));
+    }
+    @Test
+
+    void costIsExtrapolatedFromTheProbeAndClamped() {
+        long probe = TimeUnit.MILLISECONDS.toNanos(10);
+        assertEquals(8, CalibratedBCryptPasswordEncoder.chooseCost(probe, 8, probe, 4, 31));
+        // 80 ms is three doublings of 10 ms
+        assertEquals(11, CalibratedBCryptPasswordEncoder.chooseCost(probe, 8, TimeUnit.MILLISECONDS.toNanos(80), 4, 31));
+        assertEquals(10, CalibratedBCryptPasswordEncoder.chooseCost(probe, 8, TimeUnit.MILLISECONDS.toNanos(1), 10, 14));
+        assertEquals(14, CalibratedBCryptPasswordEncoder.chooseCost(probe, 8, TimeUnit.SECONDS.toNanos(60), 10, 14));
+    }
+    @Test
+
+    void calibrationStaysWithinBounds() {
+        int cost = CalibratedBCryptPasswordEncoder.calibrate(Duration.ofMillis(100), 4, 6);
+
+        assertTrue(cost >= 4 && cost <= 6, "cost " + cost);
+    }
+}
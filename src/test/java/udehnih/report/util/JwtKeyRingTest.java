@@ -0,0 +1,60 @@
+package udehnih.report.util;
+import org.junit.jupiter.api.Test;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.*;
+class JwtKeyRingTest {
+    private static final String SECRET_A = "firstSecretKeyWithAtLeast32Characters1";
+    private static final String SECRET_B = "secondSecretKeyWithAtLeast32Characters2";
+    private static final String LEGACY = "testSecretKeyWithAtLeast32Characters12345";
+    private static Map<String, String> keys(String... pairs) {
+        Map<String, String> keys = new LinkedHashMap<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            keys.put(pairs[i], pairs[i + 1]);
+        }
+        return keys;
+    }
+    @Test
+
+    void legacySecretAloneIsActive() {
+        JwtKeyRing ring = JwtKeyRing.of(Map.of(), LEGACY, null);
+        assertEquals(JwtKeyRing.LEGACY_KEY_ID, ring.activeKeyId());
+        assertSame(ring.activeKey(), ring.keyFor(null));
+    }
+    @Test
+
+    void lastConfiguredKeyIsActiveByDefault() {
+        JwtKeyRing ring = JwtKeyRing.of(keys("a", SECRET_A, "b", SECRET_B), LEGACY, null);
+        assertEquals("b", ring.activeKeyId());
+        assertEquals(3, ring.size());
+        assertNotSame(ring.keyFor("a"), ring.keyFor("b"));
+        assertSame(ring.keyFor(JwtKeyRing.LEGACY_KEY_ID), ring.keyFor(null));
+        assertNull(ring.keyFor("missing"));
+    }
+    @Test
+
+    void explicitActiveKeyIdWins() {
+        JwtKeyRing ring = JwtKeyRing.of(keys("a", SECRET_A, "b", SECRET_B), null, "a");
+        assertEquals("a", ring.activeKeyId());
+        assertSame(ring.keyFor("a"), ring.keyFor(null));
+    }
+    @Test
+
+    void rejectsUnknownActiveKeyAndEmptyRing() {
+        assertThrows(IllegalStateException.class, () -> JwtKeyRing.of(keys("a", SECRET_A), null, "b"));
+        assertThrows(IllegalStateException.class, () -> JwtKeyRing.of(Map.of(), " ", null));
+    }
+    @Test
+
+    void detectsRetiredAndReplacedKeys() {
+        JwtKeyRing before = JwtKeyRing.of(keys("a", SECRET_A), null, null);
+        JwtKeyRing added = JwtKeyRing.of(keys("a", SECRET_A, "b", SECRET_B), null, null);
+        JwtKeyRing retired = JwtKeyRing.of(keys("b", SECRET_B), null, null);
+        JwtKeyRing replaced = JwtKeyRing.of(keys("a", SECRET_B), null, null);
+        assertTrue(added.retainsAllKeysOf(before));
+        assertFalse(retired.retainsAllKeysOf(added));
+        assertFalse(replaced.retainsAllKeysOf(before));
+        assertTrue(before.sameAs(JwtKeyRing.of(keys("a", SECRET_A), null, null)));
+        assertFalse(before.sameAs(added));
+    }
+}
@@ -0,0 +1,121 @@
+package udehnih.report.util;
+import io.jsonwebtoken.MalformedJwtException;
+import org.junit.jupiter.api.Test;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.*;
+class JwtPayloadDecoderTest {
+    private static String encode(String json) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+    private static String token(String header, String payload) {
+        return encode(header) + "." + encode(payload) + ".c2lnbmF0dXJl";
+    }
+    @Test
+
+    void decodesKnownClaimsAndSkipsTheRest() {
+        String token = token("{\"alg\":\"HS256\",\"kid\":\"k1\",\"typ\":\"JWT\"}",
+            "{\"sub\":\"a@b.c\",\"nested\":{\"x\":[1,2]},\"exp\":1700000000,\"iat\":1690000000,"
+                + "\"role\":\"ROLE_STAFF\",\"roles\":[\"ROLE_STAFF\",\"ROLE_ADMIN\"],\"uid\":7,"
+                + "\"name\":\"Ana \\u00e9\",\"rv\":3,\"jti\":\"t-1\",\"aud\":\"x\"}");
+        JwtPayloadDecoder.Segments segments = JwtPayloadDecoder.segments(token);
+        JwtPayloadDecoder.Header header = JwtPayloadDecoder.decodeHeader(token, segments);
+        JwtPayloadDecoder.Payload payload = JwtPayloadDecoder.decodePayload(token, segments);
+        assertEquals(new JwtPayloadDecoder.Header("HS256", "k1"), header);
+        assertEquals("a@b.c", payload.subject());
+        assertEquals(1700000000L, payload.expiresAt());
+        assertEquals(1690000000L, payload.issuedAt());
+        assertNull(payload.notBefore());
+        assertEquals("ROLE_STAFF", payload.role());
+        assertEquals(List.of("ROLE_STAFF", "ROLE_ADMIN"), payload.roles());
+        assertEquals(7L, payload.userId());
+        assertEquals("Ana \u00e9", payload.name());
+        assertEquals(3L, payload.roleVersion());
+        assertEquals("t-1", payload.tokenId());
+    }
+    @Test
+
+    void missingAndMistypedClaimsAreNull() {
+        String token = token("{\"alg\":\"HS256\"}", "{\"sub\":42,\"exp\":\"soon\",\"roles\":\"ROLE_STAFF\"}");
+        JwtPayloadDecoder.Segments segments = JwtPayloadDecoder.segments(token);
+        assertNull(JwtPayloadDecoder.decodeHeader(token, segments).keyId());
+        JwtPayloadDecoder.Payload payload = JwtPayloadDecoder.decodePayload(token, segments);
+        assertNull(payload.subject());
+        assertNull(payload.expiresAt());
+        assertNull(payload.roles());
+    }
+    @Test
+
+    void otherScalarClaimsAreCollectedWhenAsked() {
+        String token = token("{\"alg\":\"HS256\"}",
+            "{\"sub\":\"a@b.c\",\"iss\":\"auth\",\"n\":123,\"ok\":true,\"nested\":{\"x\":1},\"list\":[1]}");
+        Map<String, Object> others = new HashMap<>();
+        JwtPayloadDecoder.Payload payload = JwtPayloadDecoder.decodePayload(token, JwtPayloadDecoder.segments(token),
+            others);
+        assertEquals("a@b.c", payload.subject());
+        assertEquals(Map.of("iss", "auth", "n", 123, "ok", true), others);
+    }
+    @Test
+
+    void base64UrlMatchesTheJdkDecoderForEveryLength() {
+        byte[] data = new byte[70];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 37 - 128);
+        }
+        for (int length = 0; length <= data.length; length++) {
+            byte[] expected = Arrays.copyOf(data, length);
+            String encoded = Base64.getUrlEncoder().withoutPadding().encodeToString(expected);
+            byte[] target = new byte[JwtPayloadDecoder.decodedLength(encoded.length()) + 2];
+            int written = JwtPayloadDecoder.decodeBase64Url(encoded, 0, encoded.length(), target, 2);
+            assertArrayEquals(expected, Arrays.copyOfRange(target, 2, 2 + written));
+        }
+    }
+    @Test
+
+    void onlyTheCanonicalSpellingOfABase64UrlValueIsAccepted() {
+        for (int length : new int[] {32, 48, 64}) {
+            String encoded = Base64.getUrlEncoder().withoutPadding().encodeToString(new byte[length]);
+            assertTrue(JwtPayloadDecoder.isCanonicalBase64Url(encoded, 0, encoded.length(), length));
+            String padded = Base64.getUrlEncoder().encodeToString(new byte[length]);
+            if (!padded.equals(encoded)) {
+                assertFalse(JwtPayloadDecoder.isCanonicalBase64Url(padded, 0, padded.length(), length));
+            }
+            String trailing = encoded + "=AA";
+            assertFalse(JwtPayloadDecoder.isCanonicalBase64Url(trailing, 0, trailing.length(), length));
+            assertFalse(JwtPayloadDecoder.isCanonicalBase64Url(encoded, 0, encoded.length() - 1, length));
+            String badCharacter = "*" + encoded.substring(1);
+            assertFalse(JwtPayloadDecoder.isCanonicalBase64Url(badCharacter, 0, badCharacter.length(), length));
+        }
+        // 32 bytes leave 2 unused bits, 64 bytes leave 4; any of them set is non-canonical
+        String thirtyTwo = Base64.getUrlEncoder().withoutPadding().encodeToString(new byte[32]);
+        String lowBitSet = thirtyTwo.substring(0, thirtyTwo.length() - 1) + "B";
+        assertFalse(JwtPayloadDecoder.isCanonicalBase64Url(lowBitSet, 0, lowBitSet.length(), 32));
+        String sixtyFour = Base64.getUrlEncoder().withoutPadding().encodeToString(new byte[64]);
+        String highUnusedBitSet = sixtyFour.substring(0, sixtyFour.length() - 1) + "I";
+        assertFalse(JwtPayloadDecoder.isCanonicalBase64Url(highUnusedBitSet, 0, highUnusedBitSet.length(), 64));
+    }
+    @Test
+
+    void rejectsMalformedTokens() {
+        assertThrows(MalformedJwtException.class, () -> JwtPayloadDecoder.segments("only.two"));
+        assertThrows(MalformedJwtException.class, () -> JwtPayloadDecoder.segments("a.b.c.d"));
+        assertThrows(MalformedJwtException.class, () -> JwtPayloadDecoder.segments(".b.c"));
+        String badCharacter = "e30.e3*.sig";
+        JwtPayloadDecoder.Segments segments = JwtPayloadDecoder.segments(badCharacter);
+        assertThrows(MalformedJwtException.class, () -> JwtPayloadDecoder.decodePayload(badCharacter, segments));
+        String notAnObject = token("{\"alg\":\"HS256\"}", "[1]");
+        assertThrows(MalformedJwtException.class,
+            () -> JwtPayloadDecoder.decodePayload(notAnObject, JwtPayloadDecoder.segments(notAnObject)));
+    }
+    @Test
+
+    void growsTheScratchBufferForLargePayloads() {
+        String name = "x".repeat(5000);
+        String token = token("{\"alg\":\"HS256\"}", "{\"sub\":\"a\",\"name\":\"" + name + "\"}");
+        assertEquals(name, JwtPayloadDecoder.decodePayload(token, JwtPayloadDecoder.segments(token)).name());
+    }
+}
@@ -1,5 +1,6 @@
 package udehnih.report.util;
 import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -10,6 +11,7 @@ import org.springframework.security.core.userdetails.UserDetails;
 import udehnih.report.config.JwtConfig;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -29,6 +31,7 @@ class JwtUtilTest {
         MockitoAnnotations.openMocks(this);
         when(jwtConfig.getSecretKey()).thenReturn("testSecretKeyWithAtLeast32Characters12345");
         when(jwtConfig.getExpiration()).thenReturn(3600000L);
+        when(jwtConfig.getSigningKeys()).thenReturn(new JwtConfig.SigningKeys(Map.of(), null));
         userDetails = User.withUsername(testEmail)
                 .password("password")
                 .authorities("ROLE_STUDENT")
@@ -439,4 +442,261 @@ class JwtUtilTest {
         String role = jwtUtil.extractRole(externalToken);
         assertEquals("ROLE_EXTERNAL", role);
     }
+
+    @Test
+    void verifyShouldReturnClaimsOfValidToken() {
+        String token = jwtUtil.generateToken(testEmail, "STUDENT,STAFF");
+        VerifiedToken verified = jwtUtil.verify(token);
+        assertNotNull(verified);
+        assertEquals(testEmail, verified.subject());
+        assertEquals(java.util.List.of("ROLE_STUDENT", "ROLE_STAFF"), verified.roles());
+        assertEquals("ROLE_STUDENT,ROLE_STAFF", verified.roleString());
+        assertTrue(verified.expiresAt().isAfter(java.time.Instant.now()));
+        assertNotNull(verified.issuedAt());
+    }
+
+    @Test
+    void verifyShouldRejectUnsignedExternalToken() {
+        String header = "{\"typ\":\"JWT\",\"alg\":\"HS256\"}";
+        String payload = "{\"sub\":\"external@example.com\",\"role\":\"ROLE_ADMIN\",\"exp\":" + (System.currentTimeMillis() / 1000 + 3600) + "}";
+        String encodedHeader = java.util.Base64.getUrlEncoder().withoutPadding().encodeToString(header.getBytes());
+        String encodedPayload = java.util.Base64.getUrlEncoder().withoutPadding().encodeToString(payload.getBytes());
+        assertNull(jwtUtil.verify(encodedHeader + "." + encodedPayload + ".invalid_signature"));
+    }
+
+    @Test
+    void verifyShouldRejectExpiredMalformedAndMissingTokens() throws Exception {
+        when(jwtConfig.getExpiration()).thenReturn(1L);
+        String expired = jwtUtil.generateToken(testEmail, testRole);
+        Thread.sleep(10);
+        assertNull(jwtUtil.verify(expired));
+        assertNull(jwtUtil.verify("invalid.token.string"));
+        assertNull(jwtUtil.verify(""));
+        assertNull(jwtUtil.verify(null));
+    }
+
+    @Test
+    void verifyForRefreshShouldAcceptTokensExpiredWithinTheGraceWindow() {
+        when(jwtConfig.getExpiration()).thenReturn(-5000L);
+        when(jwtConfig.getRefreshGrace()).thenReturn(java.time.Duration.ofHours(1));
+        String expired = jwtUtil.generateToken(testEmail, testRole, 1L, "Test User", 2L);
+
+        assertNull(jwtUtil.verify(expired));
+        VerifiedToken verified = jwtUtil.verifyForRefresh(expired);
+        assertNotNull(verified);
+        assertEquals(testEmail, verified.subject());
+        assertEquals(1L, verified.userId());
+        assertNotNull(verified.tokenId());
+
+        when(jwtConfig.getRefreshGrace()).thenReturn(java.time.Duration.ZERO);
+        assertNull(jwtUtil.verifyForRefresh(expired));
+    }
+
+    @Test
+    void verifyForRefreshShouldStillCheckTheSignature() {
+        when(jwtConfig.getExpiration()).thenReturn(-5000L);
+        when(jwtConfig.getRefreshGrace()).thenReturn(java.time.Duration.ofHours(1));
+        String[] parts = jwtUtil.generateToken(testEmail, testRole).split("\\.");
+        String forgedPayload = java.util.Base64.getUrlEncoder().withoutPadding().encodeToString(
+            ("{\"sub\":\"admin@example.com\",\"role\":\"ROLE_ADMIN\",\"exp\":"
+                + (System.currentTimeMillis() / 1000 - 5) + "}").getBytes());
+        assertNull(jwtUtil.verifyForRefresh(parts[0] + "." + forgedPayload + "." + parts[2]));
+        assertNull(jwtUtil.verifyForRefresh(null));
+    }
+
+    @Test
+    void verifyShouldBuildSigningKeyOnlyOnce() {
+        String token = jwtUtil.generateToken(testEmail, testRole);
+        for (int i = 0; i < 5; i++) {
+            assertNotNull(jwtUtil.verify(token));
+        }
+        verify(jwtConfig, times(1)).getSecretKey();
+    }
+
+    @Test
+    void verifyShouldServeRepeatedTokensFromCache() {
+        when(jwtConfig.getVerifiedTokenCacheSize()).thenReturn(100L);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        jwtUtil.setMeterRegistry(registry);
+        String token = jwtUtil.generateToken(testEmail, testRole);
+        String otherToken = jwtUtil.generateToken("other@example.com", testRole);
+        VerifiedToken first = jwtUtil.verify(token);
+        VerifiedToken second = jwtUtil.verify(token);
+        assertSame(first, second);
+        assertEquals("other@example.com", jwtUtil.verify(otherToken).subject());
+        assertEquals(1.0 / 3, registry.get(JwtUtil.VERIFIED_TOKEN_HIT_RATIO_METRIC).gauge().value(), 0.0001);
+    }
+
+    @Test
+    void verifyShouldNotServeCachedTokenPastItsExpiry() throws Exception {
+        when(jwtConfig.getVerifiedTokenCacheSize()).thenReturn(100L);
+        when(jwtConfig.getExpiration()).thenReturn(1000L);
+        String token = jwtUtil.generateToken(testEmail, testRole);
+        VerifiedToken verified = jwtUtil.verify(token);
+        if (verified != null) {
+            assertSame(verified, jwtUtil.verify(token));
+        }
+        Thread.sleep(1100);
+        assertNull(jwtUtil.verify(token));
+    }
+
+    @Test
+    void verifyShouldNotCacheRejectedTokens() {
+        when(jwtConfig.getVerifiedTokenCacheSize()).thenReturn(100L);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        jwtUtil.setMeterRegistry(registry);
+        assertNull(jwtUtil.verify("invalid.token.string"));
+        assertNull(jwtUtil.verify("invalid.token.string"));
+        assertEquals(0.0, registry.get(JwtUtil.VERIFIED_TOKEN_HIT_RATIO_METRIC).gauge().value());
+    }
+
+    @Test
+    void verifyShouldReadIdentityClaims() {
+        String token = jwtUtil.generateToken(testEmail, testRole, 42L, "Test User", 3L);
+        VerifiedToken verified = jwtUtil.verify(token);
+        assertEquals(42L, verified.userId());
+        assertEquals("Test User", verified.name());
+        assertEquals(3L, verified.roleVersion());
+        assertTrue(verified.hasIdentityClaims());
+        assertEquals(testEmail, jwtUtil.extractUsername(token));
+    }
+
+    @Test
+    void verifyShouldLeaveIdentityClaimsNullForLegacyTokens() {
+        VerifiedToken verified = jwtUtil.verify(jwtUtil.generateToken(testEmail, testRole));
+        assertNull(verified.userId());
+        assertNull(verified.name());
+        assertNull(verified.roleVersion());
+        assertFalse(verified.hasIdentityClaims());
+    }
+
+    @Test
+    void generateTokenShouldGiveEveryTokenItsOwnId() {
+        VerifiedToken first = jwtUtil.verify(jwtUtil.generateToken(testEmail, testRole));
+        VerifiedToken second = jwtUtil.verify(jwtUtil.generateToken(testEmail, testRole));
+        assertNotNull(first.tokenId());
+        assertNotEquals(first.tokenId(), second.tokenId());
+    }
+
+    private static String keyIdOf(String token) {
+        String header = new String(java.util.Base64.getUrlDecoder().decode(token.split("\\.")[0]));
+        return header.replaceAll(".*\"kid\":\"([^\"]+)\".*", "$1");
+    }
+
+    @Test
+    void generateTokenShouldNameTheActiveKey() {
+        assertEquals(JwtKeyRing.LEGACY_KEY_ID, keyIdOf(jwtUtil.generateToken(testEmail, testRole)));
+    }
+
+    @Test
+    void refreshKeyRingShouldRotateWithoutDroppingRetainedKeys() {
+        when(jwtConfig.getVerifiedTokenCacheSize()).thenReturn(100L);
+        String oldToken = jwtUtil.generateToken(testEmail, testRole);
+        assertNotNull(jwtUtil.verify(oldToken));
+
+        when(jwtConfig.getSigningKeys()).thenReturn(
+            new JwtConfig.SigningKeys(Map.of("k2", "rotatedSecretKeyWithAtLeast32Characters99"), null));
+        jwtUtil.refreshKeyRing();
+        String newToken = jwtUtil.generateToken(testEmail, testRole);
+        assertEquals("k2", keyIdOf(newToken));
+        assertNotNull(jwtUtil.verify(newToken));
+        assertNotNull(jwtUtil.verify(oldToken));
+
+        when(jwtConfig.getSecretKey()).thenReturn(null);
+        jwtUtil.refreshKeyRing();
+        assertNull(jwtUtil.verify(oldToken), "tokens signed with a retired key must be rejected, even if cached");
+        assertNotNull(jwtUtil.verify(newToken));
+    }
+
+    @Test
+    void refreshKeyRingShouldKeepCurrentKeysWhenReloadFails() {
+        String token = jwtUtil.generateToken(testEmail, testRole);
+        when(jwtConfig.getSigningKeys()).thenReturn(new JwtConfig.SigningKeys(Map.of(), "missing"));
+        jwtUtil.refreshKeyRing();
+        assertNotNull(jwtUtil.verify(token));
+    }
+
+    @Test
+    void refreshKeyRingShouldKeepCurrentKeysWhenTheKeysFileCannotBeRead() {
+        when(jwtConfig.getVerifiedTokenCacheSize()).thenReturn(100L);
+        when(jwtConfig.getSigningKeys()).thenReturn(
+            new JwtConfig.SigningKeys(Map.of("k2", "rotatedSecretKeyWithAtLeast32Characters99"), null));
+        String token = jwtUtil.generateToken(testEmail, testRole);
+        VerifiedToken verified = jwtUtil.verify(token);
+        when(jwtConfig.getSigningKeys()).thenThrow(
+            new java.io.UncheckedIOException("Could not read JWT keys file", new java.io.IOException("busy")));
+        jwtUtil.refreshKeyRing();
+        assertSame(verified, jwtUtil.verify(token), "a failed read must neither drop keys nor clear the cache");
+        assertEquals("k2", keyIdOf(jwtUtil.generateToken(testEmail, testRole)));
+    }
+
+    @Test
+    void verifyShouldRejectUnknownKeyId() {
+        String foreign = io.jsonwebtoken.Jwts.builder()
+            .setSubject(testEmail)
+            .setHeaderParam("kid", "unknown")
+            .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+            .signWith(io.jsonwebtoken.security.Keys.hmacShaKeyFor(
+                "testSecretKeyWithAtLeast32Characters12345".getBytes()))
+            .compact();
+        assertNull(jwtUtil.verify(foreign));
+    }
+
+    private static String resign(String token, String header) {
+        String[] parts = token.split("\\.");
+        String encodedHeader = java.util.Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(header.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+        return encodedHeader + "." + parts[1] + "." + parts[2];
+    }
+
+    @Test
+    void verifyShouldRejectTamperedPayloadOrSignature() {
+        String token = jwtUtil.generateToken(testEmail, testRole);
+        String[] parts = token.split("\\.");
+        String forgedPayload = java.util.Base64.getUrlEncoder().withoutPadding().encodeToString(
+            ("{\"sub\":\"admin@example.com\",\"role\":\"ROLE_ADMIN\",\"exp\":"
+                + (System.currentTimeMillis() / 1000 + 3600) + "}").getBytes());
+        assertNull(jwtUtil.verify(parts[0] + "." + forgedPayload + "." + parts[2]));
+        char last = parts[2].charAt(0);
+        String flipped = (last == 'A' ? 'B' : 'A') + parts[2].substring(1);
+        assertNull(jwtUtil.verify(parts[0] + "." + parts[1] + "." + flipped));
+        assertNull(jwtUtil.verify(parts[0] + "." + parts[1] + "."));
+    }
+
+    @Test
+    void verifyShouldRejectNonCanonicalSpellingsOfAValidSignature() {
+        when(jwtConfig.getVerifiedTokenCacheSize()).thenReturn(100L);
+        String token = jwtUtil.generateToken(testEmail, testRole);
+        assertNotNull(jwtUtil.verify(token));
+        String[] parts = token.split("\\.");
+        String signed = parts[0] + "." + parts[1] + ".";
+        String signature = parts[2];
+        assertNull(jwtUtil.verify(signed + signature + "="));
+        assertNull(jwtUtil.verify(signed + signature + "=AAAA"));
+        assertNull(jwtUtil.verify(signed + signature + "AAAA"));
+        assertNull(jwtUtil.verify(signed + signature.substring(0, signature.length() - 1)));
+        // HS256 leaves two unused bits in the last character; setting one must not verify
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        char last = signature.charAt(signature.length() - 1);
+        char nonCanonical = alphabet.charAt(alphabet.indexOf(last) | 1);
+        assertNull(jwtUtil.verify(signed + signature.substring(0, signature.length() - 1) + nonCanonical));
+        assertNull(jwtUtil.verify(signed + signature.replace('-', '+').replace('_', '/') + "*"));
+    }
+
+    @Test
+    void verifyShouldRejectUnsupportedOrStrongerAlgorithms() {
+        String token = jwtUtil.generateToken(testEmail, testRole);
+        assertNull(jwtUtil.verify(resign(token, "{\"alg\":\"none\",\"kid\":\"default\"}")));
+        assertNull(jwtUtil.verify(resign(token, "{\"kid\":\"default\"}")));
+        assertNull(jwtUtil.verify(resign(token, "{\"alg\":\"HS512\",\"kid\":\"default\"}")));
+    }
+
+    @Test
+    void verifyShouldAgreeWithTheLibraryParser() {
+        String token = jwtUtil.generateToken(testEmail, "STUDENT,ADMIN", 5L, "Test User", 1L);
+        VerifiedToken verified = jwtUtil.verify(token);
+        assertEquals(jwtUtil.extractUsername(token), verified.subject());
+        assertEquals(jwtUtil.extractExpiration(token).toInstant(), verified.expiresAt());
+        assertEquals(List.of("ROLE_STUDENT", "ROLE_ADMIN"), verified.roles());
+    }
 }
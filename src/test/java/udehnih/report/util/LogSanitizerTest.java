@@ -0,0 +1,27 @@
+package udehnih.report.util;
+import org.junit.jupiter.api.Test;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.*;
+class LogSanitizerTest {
+    @Test
+
+    void credentialHeadersAreRedacted() {
+        assertEquals("<redacted 12 chars>", LogSanitizer.headerValue("Authorization", "Bearer a.b.c"));
+        assertEquals("<redacted 5 chars>", LogSanitizer.headerValue("cookie", "a=b;c"));
+        assertEquals("application/json", LogSanitizer.headerValue("Accept", "application/json"));
+        assertNull(LogSanitizer.headerValue("Authorization", null));
+    }
+    @Test
+
+    void bodyKeepsKeysButNotSecrets() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("email", "a@b.c");
+        body.put("password", "hunter2");
+        Map<String, Object> safe = LogSanitizer.body(body);
+        assertEquals("a@b.c", safe.get("email"));
+        assertEquals("<redacted 7 chars>", safe.get("password"));
+        assertEquals("hunter2", body.get("password"));
+        assertNull(LogSanitizer.body(null));
+    }
+}
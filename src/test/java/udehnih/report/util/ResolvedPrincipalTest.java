@@ -0,0 +1,68 @@
+package udehnih.report.util;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import udehnih.report.model.UserInfo;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+class ResolvedPrincipalTest {
+    private final UserInfo userInfo = UserInfo.builder()
+        .id(1L)
+        .email("student@example.com")
+        .name("Student")
+        .roles(List.of("STUDENT"))
+        .build();
+    @AfterEach
+
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+    @Test
+
+    void getShouldReturnStoredUserForMatchingEmail() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        ResolvedPrincipal.store(request, userInfo);
+
+        assertSame(userInfo, ResolvedPrincipal.get(request, "student@example.com"));
+        assertSame(userInfo, ResolvedPrincipal.get(request, "Student@Example.com"));
+    }
+    @Test
+
+    void getShouldIgnoreStoredUserForDifferentEmail() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        ResolvedPrincipal.store(request, userInfo);
+
+        assertNull(ResolvedPrincipal.get(request, "other@example.com"));
+        assertNull(ResolvedPrincipal.get(request, null));
+    }
+    @Test
+
+    void getShouldReturnNullWhenNothingStored() {
+        assertNull(ResolvedPrincipal.get(new MockHttpServletRequest(), "student@example.com"));
+        assertNull(ResolvedPrincipal.get(null, "student@example.com"));
+    }
+    @Test
+
+    void storeShouldIgnoreNullUser() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        ResolvedPrincipal.store(request, null);
+
+        assertNull(request.getAttribute(ResolvedPrincipal.REQUEST_ATTRIBUTE));
+    }
+    @Test
+
+    void currentShouldReadFromBoundRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        ResolvedPrincipal.store(request, userInfo);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        assertSame(userInfo, ResolvedPrincipal.current("student@example.com"));
+    }
+    @Test
+
+    void currentShouldReturnNullOutsideRequest() {
+        assertNull(ResolvedPrincipal.current("student@example.com"));
+    }
+}
@@ -1,4 +1,5 @@
 -- Auth database schema for tests
+DROP TABLE IF EXISTS user_role_versions;
 DROP TABLE IF EXISTS user_roles;
 DROP TABLE IF EXISTS roles;
 DROP TABLE IF EXISTS users;
@@ -29,6 +30,13 @@ CREATE TABLE user_roles (
     FOREIGN KEY (role_id) REFERENCES roles(id)
 );
 
+-- Bumped whenever a user's roles change; no row means version 0
+CREATE TABLE user_role_versions (
+    user_id BIGINT PRIMARY KEY,
+    role_version BIGINT DEFAULT 0 NOT NULL,
+    FOREIGN KEY (user_id) REFERENCES users(id)
+);
+
 -- Insert default roles
 INSERT INTO roles (name) VALUES ('ADMIN');
 INSERT INTO roles (name) VALUES ('STAFF');
@@ -1,5 +1,6 @@
 -- Main database schema for tests
 DROP TABLE IF EXISTS report;
+DROP TABLE IF EXISTS revoked_token;
 
 CREATE TABLE report (
     report_id INT AUTO_INCREMENT PRIMARY KEY,
@@ -9,9 +10,23 @@ CREATE TABLE report (
     status VARCHAR(50) NOT NULL CHECK (status IN ('OPEN', 'CLOSED', 'IN_PROGRESS', 'RESOLVED', 'REJECTED')),
     rejection_message VARCHAR(255),
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    updated_at TIMESTAMP
+    updated_at TIMESTAMP,
+    version BIGINT DEFAULT 0 NOT NULL
+);
+
+CREATE TABLE revoked_token (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    jti VARCHAR(64),
+    subject VARCHAR(255) NOT NULL,
+    issued_before TIMESTAMP WITH TIME ZONE,
+    expires_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    revoked_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
 -- Create indexes
 CREATE INDEX idx_report_student_id ON report(student_id);
 CREATE INDEX idx_report_status ON report(status);
+CREATE INDEX idx_report_created_at_report_id ON report(created_at, report_id);
+CREATE INDEX idx_revoked_token_jti ON revoked_token(jti);
+CREATE INDEX idx_revoked_token_subject ON revoked_token(subject);
+CREATE INDEX idx_revoked_token_expires_at ON revoked_token(expires_at);